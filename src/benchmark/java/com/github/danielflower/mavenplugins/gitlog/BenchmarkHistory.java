@@ -0,0 +1,69 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The generated repository a benchmark runs against. The shape of the repository is set with the JMH
+ * parameters, for example <code>-p commits=100000 -p modules=50 -p tagEvery=20 -p mergeEvery=0</code>.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkHistory {
+
+	@Param({"10000", "100000", "1000000"})
+	public int commits;
+
+	@Param({"20"})
+	public int modules;
+
+	@Param({"100"})
+	public int tagEvery;
+
+	@Param({"10"})
+	public int mergeEvery;
+
+	private Repository repository;
+	private List<RevCommit> history;
+
+	@Setup(Level.Trial)
+	public void openRepository() throws IOException {
+		repository = new SyntheticHistory(commits, modules, tagEvery, mergeEvery).open();
+	}
+
+	@TearDown(Level.Trial)
+	public void closeRepository() {
+		repository.close();
+	}
+
+	public Repository getRepository() {
+		return repository;
+	}
+
+	/**
+	 * Returns every commit of the repository, newest first, with its message parsed.
+	 */
+	public List<RevCommit> getHistory() throws IOException {
+		if (history == null) {
+			RevWalk walk = new RevWalk(repository);
+			walk.markStart(walk.parseCommit(repository.resolve(Constants.HEAD)));
+			history = new ArrayList<RevCommit>(commits);
+			for (RevCommit commit : walk) {
+				history.add(commit);
+			}
+			walk.release();
+		}
+		return history;
+	}
+}
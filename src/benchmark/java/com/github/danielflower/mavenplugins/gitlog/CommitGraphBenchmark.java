@@ -0,0 +1,107 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import com.github.danielflower.mavenplugins.gitlog.filters.CommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.DuplicateCommitMessageFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.MavenReleasePluginMessageFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.MergeCommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.renderers.ChangeLogRenderer;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares walking the generated history with and without git's commit-graph file, which is written with the
+ * git command line before the benchmark and removed afterwards so that the other benchmarks do not use it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CommitGraphBenchmark {
+
+	private static class CountingRenderer implements ChangeLogRenderer {
+		int rendered;
+
+		public void renderHeader(String reportTitle) {
+		}
+
+		public void renderTag(RevTag tag) {
+			rendered++;
+		}
+
+		public void renderCommit(RevCommit commit) {
+			rendered++;
+		}
+
+		public void renderFooter() {
+		}
+
+		public void close() {
+		}
+	}
+
+	@Param({"false", "true"})
+	public boolean useCommitGraph;
+
+	private File commitGraph;
+	private Date lastHundredCommits;
+
+	@Setup(Level.Trial)
+	public void writeCommitGraph(BenchmarkHistory history) throws Exception {
+		File gitDir = history.getRepository().getDirectory();
+		commitGraph = new File(gitDir, "objects/info/commit-graph");
+		Process git = new ProcessBuilder("git", "--git-dir=" + gitDir.getAbsolutePath(), "commit-graph", "write",
+				"--reachable").redirectErrorStream(true).start();
+		if (git.waitFor() != 0) {
+			throw new IOException("git commit-graph write failed");
+		}
+		lastHundredCommits = new Date(history.getHistory().get(100).getCommitTime() * 1000L);
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteCommitGraph() {
+		commitGraph.delete();
+	}
+
+	@Benchmark
+	public int wholeHistory(BenchmarkHistory history) throws IOException {
+		return generate(history, new Date(0));
+	}
+
+	@Benchmark
+	public int recentCommits(BenchmarkHistory history) throws IOException {
+		return generate(history, lastHundredCommits);
+	}
+
+	private int generate(BenchmarkHistory history, Date includeCommitsAfter) throws IOException {
+		CountingRenderer renderer = new CountingRenderer();
+		List<CommitFilter> filters = Arrays.<CommitFilter>asList(new MavenReleasePluginMessageFilter(),
+				new MergeCommitFilter(), new DuplicateCommitMessageFilter());
+		Generator generator = new Generator(Arrays.<ChangeLogRenderer>asList(renderer), filters, new SilentLog());
+		generator.setUseCommitGraph(useCommitGraph);
+		generator.openRepository(history.getRepository(), null);
+		generator.generate("Benchmark", includeCommitsAfter);
+		return renderer.rendered;
+	}
+}
@@ -0,0 +1,84 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import com.github.danielflower.mavenplugins.gitlog.filters.CommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.DuplicateCommitMessageFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.MavenReleasePluginMessageFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.MergeCommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.renderers.ChangeLogRenderer;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Generator#generate(String)} end to end, walking and filtering the generated history, with a
+ * renderer that only counts what it is given so that the renderers can be measured separately.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GeneratorBenchmark {
+
+	private static class CountingRenderer implements ChangeLogRenderer {
+		int rendered;
+
+		public void renderHeader(String reportTitle) {
+		}
+
+		public void renderTag(RevTag tag) {
+			rendered++;
+		}
+
+		public void renderCommit(RevCommit commit) {
+			rendered++;
+		}
+
+		public void renderFooter() {
+		}
+
+		public void close() {
+		}
+	}
+
+	@Benchmark
+	public int wholeRepository(BenchmarkHistory history) throws IOException {
+		return generate(history, null, new ArrayList<CommitFilter>());
+	}
+
+	@Benchmark
+	public int singleModule(BenchmarkHistory history) throws IOException {
+		return generate(history, SyntheticHistory.moduleName(history.modules / 2), new ArrayList<CommitFilter>());
+	}
+
+	@Benchmark
+	public int defaultFilters(BenchmarkHistory history) throws IOException {
+		// the duplicate message filter remembers what it has seen, so each run needs new filters
+		List<CommitFilter> filters = Arrays.<CommitFilter>asList(new MavenReleasePluginMessageFilter(),
+				new MergeCommitFilter(), new DuplicateCommitMessageFilter());
+		return generate(history, null, filters);
+	}
+
+	private static int generate(BenchmarkHistory history, String module, List<CommitFilter> filters) throws IOException {
+		CountingRenderer renderer = new CountingRenderer();
+		Generator generator = new Generator(Arrays.<ChangeLogRenderer>asList(renderer), filters, new SilentLog());
+		generator.openRepository(history.getRepository(), module);
+		generator.generate("Benchmark");
+		return renderer.rendered;
+	}
+}
@@ -0,0 +1,99 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import com.github.danielflower.mavenplugins.gitlog.filters.CommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.DuplicateCommitMessageFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.MavenReleasePluginMessageFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.MergeCommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.renderers.ChangeLogRenderer;
+import com.github.danielflower.mavenplugins.gitlog.renderers.JsonRenderer;
+import com.github.danielflower.mavenplugins.gitlog.renderers.PlainTextRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures generating the changelog of every module of the generated repository, as a parallel build does:
+ * one generator per module, all sharing the repository, on a number of threads; and reading the history of
+ * every module once, as <code>singleReactorWalk</code> does, with the commits diffed on that many threads, as
+ * <code>moduleThreads</code> does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ModuleThreadsBenchmark {
+
+	@Param({"1", "2", "4", "8"})
+	public int threads;
+
+	@Benchmark
+	public int allModules(final BenchmarkHistory history) throws Exception {
+		final File output = new File("target/benchmark-output/module-threads-" + threads);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Long>> generated = new ArrayList<Future<Long>>();
+			for (int m = 0; m < history.modules; m++) {
+				final String module = SyntheticHistory.moduleName(m);
+				generated.add(executor.submit(new Callable<Long>() {
+					public Long call() throws Exception {
+						return generate(history, module, new File(output, module));
+					}
+				}));
+			}
+			long bytes = 0;
+			for (Future<Long> future : generated) {
+				bytes += future.get();
+			}
+			return (int) bytes;
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Benchmark
+	public int reactorHistory(BenchmarkHistory history) throws Exception {
+		List<String> modules = new ArrayList<String>();
+		for (int m = 0; m < history.modules; m++) {
+			modules.add(SyntheticHistory.moduleName(m));
+		}
+		ReactorHistory reactor = new ReactorHistory(history.getRepository(), modules, null, threads, new SilentLog());
+		int commits = 0;
+		for (String module : modules) {
+			commits += reactor.take(module).commits.size();
+		}
+		return commits;
+	}
+
+	private static long generate(BenchmarkHistory history, String module, File directory) throws Exception {
+		directory.mkdirs();
+		SilentLog log = new SilentLog();
+		List<ChangeLogRenderer> renderers = Arrays.<ChangeLogRenderer>asList(
+				new PlainTextRenderer(log, directory, "changelog.txt", false),
+				new JsonRenderer(log, directory, "changelog.json", false));
+		List<CommitFilter> filters = Arrays.<CommitFilter>asList(new MavenReleasePluginMessageFilter(),
+				new MergeCommitFilter(), new DuplicateCommitMessageFilter());
+		Generator generator = new Generator(renderers, filters, log);
+		generator.openRepository(history.getRepository(), module);
+		generator.generate("Benchmark");
+		return new File(directory, "changelog.txt").length();
+	}
+}
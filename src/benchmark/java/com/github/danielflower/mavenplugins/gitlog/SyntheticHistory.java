@@ -0,0 +1,206 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.internal.storage.file.GC;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TagBuilder;
+import org.eclipse.jgit.lib.TreeFormatter;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Random;
+
+/**
+ * Generates git repositories for the benchmarks: a linear history with merged side branches, spread over
+ * a number of modules, with annotated and lightweight tags and a mix of commit messages for the filters and
+ * issue link converters to work on.
+ * <p>
+ * Generating a large history takes a while, so each repository is written once to the directory named by the
+ * <code>benchmark.repositories</code> system property, <code>target/benchmark-repositories</code> by default,
+ * packed, and reused by later runs with the same shape.
+ */
+public class SyntheticHistory {
+
+	public static final int FILES_PER_MODULE = 10;
+	private static final int DISTINCT_CONTENTS = 32;
+	private static final int START_TIME = 1000000000;
+	private static final String COMPLETE_MARKER = "gitlog-benchmark-complete";
+
+	private final int commits;
+	private final int modules;
+	private final int tagEvery;
+	private final int mergeEvery;
+
+	private Repository repository;
+	private ObjectInserter inserter;
+	private final Random random = new Random(42);
+	private ObjectId[] contents;
+	private int[][] files;
+	private ObjectId[] moduleTrees;
+	private int count;
+
+	/**
+	 * @param commits the number of commits, including the side branch commits and merges
+	 * @param modules the number of module directories, each containing {@link #FILES_PER_MODULE} files
+	 * @param tagEvery tag every this many commits, alternating annotated and lightweight tags, or 0 for none
+	 * @param mergeEvery merge a side branch every this many commits, or 0 for a linear history
+	 */
+	public SyntheticHistory(int commits, int modules, int tagEvery, int mergeEvery) {
+		this.commits = commits;
+		this.modules = modules;
+		this.tagEvery = tagEvery;
+		this.mergeEvery = mergeEvery;
+	}
+
+	public static String moduleName(int module) {
+		return String.format("module-%03d", module);
+	}
+
+	/**
+	 * Opens the repository of this shape, generating it first if it does not exist yet.
+	 */
+	public Repository open() throws IOException {
+		String root = System.getProperty("benchmark.repositories", "target/benchmark-repositories");
+		File directory = new File(root, "commits-" + commits + "-modules-" + modules + "-tags-" + tagEvery
+				+ "-merges-" + mergeEvery + ".git");
+		if (!new File(directory, COMPLETE_MARKER).isFile()) {
+			delete(directory);
+			generate(directory);
+		}
+		return new FileRepository(directory);
+	}
+
+	private void generate(File directory) throws IOException {
+		repository = new FileRepository(directory);
+		repository.create(true);
+		inserter = repository.newObjectInserter();
+		try {
+			contents = new ObjectId[DISTINCT_CONTENTS];
+			for (int i = 0; i < DISTINCT_CONTENTS; i++) {
+				contents[i] = inserter.insert(Constants.OBJ_BLOB, Constants.encode("content " + i + "\n"));
+			}
+			files = new int[modules][FILES_PER_MODULE];
+			moduleTrees = new ObjectId[modules];
+			for (int m = 0; m < modules; m++) {
+				moduleTrees[m] = moduleTree(m);
+			}
+			ObjectId head = commit(new ObjectId[0], "Initial commit");
+			while (count < commits) {
+				if (mergeEvery > 0 && count % mergeEvery == 0 && commits - count >= 3) {
+					ObjectId side = commit(new ObjectId[] {head}, message());
+					ObjectId mainline = commit(new ObjectId[] {head}, message());
+					head = commit(new ObjectId[] {mainline, side}, "Merge branch 'feature-" + count + "'");
+				} else {
+					head = commit(new ObjectId[] {head}, message());
+				}
+				if (tagEvery > 0 && count % tagEvery == 0) {
+					tag(head);
+				}
+			}
+			inserter.flush();
+			updateRef(Constants.R_HEADS + Constants.MASTER, head);
+			new GC((FileRepository) repository).gc();
+			if (!new File(directory, COMPLETE_MARKER).createNewFile()) {
+				throw new IOException("Could not mark " + directory + " as complete");
+			}
+		} catch (ParseException e) {
+			// thrown by gc() when the configured prune expiry cannot be parsed
+			throw new IOException(e);
+		} finally {
+			inserter.release();
+			repository.close();
+		}
+	}
+
+	/**
+	 * Changes one file of one module and commits the result on top of the given parents.
+	 */
+	private ObjectId commit(ObjectId[] parents, String message) throws IOException {
+		int module = random.nextInt(modules);
+		int file = random.nextInt(FILES_PER_MODULE);
+		files[module][file] = (files[module][file] + 1 + random.nextInt(DISTINCT_CONTENTS - 1)) % DISTINCT_CONTENTS;
+		moduleTrees[module] = moduleTree(module);
+		TreeFormatter root = new TreeFormatter();
+		for (int m = 0; m < modules; m++) {
+			root.append(moduleName(m), FileMode.TREE, moduleTrees[m]);
+		}
+		PersonIdent ident = new PersonIdent("Developer " + (count % 7), "developer" + (count % 7) + "@example.com",
+				(START_TIME + count) * 1000L, 0);
+		CommitBuilder builder = new CommitBuilder();
+		builder.setTreeId(root.insertTo(inserter));
+		builder.setParentIds(parents);
+		builder.setAuthor(ident);
+		builder.setCommitter(ident);
+		builder.setMessage(message);
+		count++;
+		return inserter.insert(builder);
+	}
+
+	private ObjectId moduleTree(int module) throws IOException {
+		TreeFormatter tree = new TreeFormatter();
+		for (int f = 0; f < FILES_PER_MODULE; f++) {
+			tree.append(String.format("File%02d.java", f), FileMode.REGULAR_FILE, contents[files[module][f]]);
+		}
+		return tree.insertTo(inserter);
+	}
+
+	private String message() {
+		if (count % 97 == 0) {
+			return "[maven-release-plugin] prepare for next development iteration";
+		}
+		if (count % 29 == 0) {
+			return "Update the dependencies";
+		}
+		if (count % 13 == 0) {
+			return "Fix #" + (count % 500) + " when the cache is empty\n\nThe cache was read before it was written.";
+		}
+		if (count % 11 == 0) {
+			return "PROJ-" + (count % 800) + " Speed up the <a href=\"http://example.com/" + count + "\">export</a>";
+		}
+		return "Change " + count;
+	}
+
+	private void tag(ObjectId commit) throws IOException {
+		String name = "v1." + count;
+		if ((count / tagEvery) % 2 == 0) {
+			TagBuilder builder = new TagBuilder();
+			builder.setTag(name);
+			builder.setObjectId(commit, Constants.OBJ_COMMIT);
+			builder.setTagger(new PersonIdent("Release Manager", "release@example.com", (START_TIME + count) * 1000L, 0));
+			builder.setMessage("Release " + name + "\n");
+			updateRef(Constants.R_TAGS + name, inserter.insert(builder));
+		} else {
+			updateRef(Constants.R_TAGS + name, commit);
+		}
+	}
+
+	private void updateRef(String name, ObjectId id) throws IOException {
+		inserter.flush();
+		RefUpdate update = repository.updateRef(name);
+		update.setNewObjectId(id);
+		update.setForceUpdate(true);
+		RefUpdate.Result result = update.update();
+		if (result == RefUpdate.Result.LOCK_FAILURE || result == RefUpdate.Result.IO_FAILURE
+				|| result == RefUpdate.Result.REJECTED) {
+			throw new IOException("Could not update " + name + ": " + result);
+		}
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
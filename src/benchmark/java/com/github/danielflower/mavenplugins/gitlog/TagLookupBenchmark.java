@@ -0,0 +1,135 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTag;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost, per walked commit, of finding the tags of the commit: probing a map keyed by the hex
+ * name of the commit, as generation used to, against probing the {@link TagIndex} with the commit itself.
+ * One commit in a hundred is tagged.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TagLookupBenchmark {
+
+	private static final int COMMITS = 10000;
+	private static final int TAG_EVERY = 100;
+
+	private File directory;
+	private SyntheticRepository repo;
+	private List<RevCommit> commits;
+	private Map<String, List<RevTag>> tagsByName;
+	private TagIndex tagIndex;
+
+	@Setup(Level.Trial)
+	public void createRepository() throws IOException {
+		directory = File.createTempFile("gitlog-benchmark", ".git");
+		directory.delete();
+		repo = new SyntheticRepository(directory);
+		Map<String, String> files = new TreeMap<String, String>();
+		ObjectId head = null;
+		for (int i = 0; i < COMMITS; i++) {
+			files.put("File" + (i % 50) + ".java", "change " + i);
+			head = (head == null) ? repo.commit("Change " + i, 1000000000 + i, files)
+					: repo.commit("Change " + i, 1000000000 + i, files, head);
+			if (i % TAG_EVERY == 0) {
+				repo.tag("v" + i, head, 1000000000 + i);
+			}
+		}
+		repo.setHead(head);
+
+		Repository repository = repo.getRepository();
+		RevWalk walk = new RevWalk(repository);
+		walk.markStart(walk.parseCommit(repository.resolve(Constants.HEAD)));
+		commits = new ArrayList<RevCommit>(COMMITS);
+		for (RevCommit commit : walk) {
+			commits.add(commit);
+		}
+		tagsByName = new HashMap<String, List<RevTag>>();
+		for (Ref ref : repository.getTags().values()) {
+			RevTag tag = walk.parseTag(ref.getObjectId());
+			String commitID = tag.getObject().getId().getName();
+			if (!tagsByName.containsKey(commitID)) {
+				tagsByName.put(commitID, new ArrayList<RevTag>());
+			}
+			tagsByName.get(commitID).add(tag);
+		}
+		tagIndex = new TagIndex(repository, null, new SystemStreamLog());
+		// parse the tags up front so that only the lookups are measured
+		for (RevCommit commit : commits) {
+			tagIndex.getTags(commit);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteRepository() {
+		repo.close();
+		delete(directory);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COMMITS)
+	public int hexNameHashMap() {
+		int tagged = 0;
+		for (RevCommit commit : commits) {
+			if (tagsByName.get(commit.name()) != null) {
+				tagged++;
+			}
+		}
+		return tagged;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COMMITS)
+	public int objectIdOwnerMap() throws IOException {
+		int tagged = 0;
+		for (RevCommit commit : commits) {
+			if (tagIndex.getTags(commit) != null) {
+				tagged++;
+			}
+		}
+		return tagged;
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
@@ -0,0 +1,97 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import com.github.danielflower.mavenplugins.gitlog.filters.CommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.renderers.ChangeLogRenderer;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTag;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the heap still in use once the whole history has been walked, with and without bounded memory,
+ * reported as the <code>retainedBytesPerCommit</code> counter. With bounded memory this is the 100 to 130 bytes
+ * per commit the walk needs whatever the number of commits, for example <code>-p commits=10000,1000000</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+// the counter is summed over the iterations, so there is only one
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class WalkMemoryBenchmark {
+
+	@Param({"false", "true"})
+	public boolean boundedMemory;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Retained {
+		public long retainedBytesPerCommit;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			retainedBytesPerCommit = 0;
+		}
+	}
+
+	private static class HeapRenderer implements ChangeLogRenderer {
+		private final long before = usedHeap();
+		int commits;
+		long retained;
+
+		public void renderHeader(String reportTitle) {
+		}
+
+		public void renderTag(RevTag tag) {
+		}
+
+		public void renderCommit(RevCommit commit) {
+			commits++;
+		}
+
+		public void renderFooter() {
+			// the walk is still open here, so everything it holds on to is still reachable
+			retained = usedHeap() - before;
+		}
+
+		public void close() {
+		}
+	}
+
+	@Benchmark
+	public int wholeRepository(BenchmarkHistory history, Retained counters) throws IOException {
+		HeapRenderer renderer = new HeapRenderer();
+		Generator generator = new Generator(Arrays.<ChangeLogRenderer>asList(renderer), new ArrayList<CommitFilter>(),
+				new SilentLog());
+		generator.setBoundedMemory(boundedMemory);
+		generator.openRepository(history.getRepository(), null);
+		generator.generate("Benchmark");
+		counters.retainedBytesPerCommit = renderer.retained / Math.max(1, renderer.commits);
+		return renderer.commits;
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,75 @@
+package com.github.danielflower.mavenplugins.gitlog.filters;
+
+import com.github.danielflower.mavenplugins.gitlog.BenchmarkHistory;
+import com.github.danielflower.mavenplugins.gitlog.SilentLog;
+import com.github.danielflower.mavenplugins.gitlog.SyntheticHistory;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each commit filter over the whole generated history, read up front, calling
+ * {@link CommitFilter#renderCommit} as generation does for the filters that cannot be applied to the walk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CommitFilterBenchmark {
+
+	@Param({"mavenReleasePlugin", "merge", "duplicateMessage", "module"})
+	public String filter;
+
+	private Repository repository;
+	private List<RevCommit> commits;
+	private String module;
+
+	@Setup(Level.Trial)
+	public void readHistory(BenchmarkHistory history) throws IOException {
+		repository = history.getRepository();
+		commits = history.getHistory();
+		module = SyntheticHistory.moduleName(history.modules / 2);
+	}
+
+	@Benchmark
+	public int renderCommit() {
+		CommitFilter commitFilter = createFilter();
+		int accepted = 0;
+		for (RevCommit commit : commits) {
+			if (commitFilter.renderCommit(commit, repository)) {
+				accepted++;
+			}
+		}
+		return accepted;
+	}
+
+	private CommitFilter createFilter() {
+		if ("mavenReleasePlugin".equals(filter)) {
+			return new MavenReleasePluginMessageFilter();
+		} else if ("merge".equals(filter)) {
+			return new MergeCommitFilter();
+		} else if ("duplicateMessage".equals(filter)) {
+			return new DuplicateCommitMessageFilter();
+		} else if ("module".equals(filter)) {
+			return ModuleCommitFilter.forModulePath(module, new SilentLog(), false);
+		}
+		throw new IllegalArgumentException("Unknown filter " + filter);
+	}
+}
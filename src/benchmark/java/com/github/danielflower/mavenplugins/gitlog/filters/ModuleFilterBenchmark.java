@@ -0,0 +1,156 @@
+package com.github.danielflower.mavenplugins.gitlog.filters;
+
+import com.github.danielflower.mavenplugins.gitlog.SyntheticRepository;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares diffing every commit in {@link ModuleCommitFilter#renderCommit}, with and without a
+ * {@link ChangedPathIndex} built beforehand, with letting the walk match the module directory, on a generated
+ * repository where each commit changes one file of one of many modules.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ModuleFilterBenchmark {
+
+	private static final int MODULES = 20;
+	private static final int FILES_PER_MODULE = 10;
+	private static final String MODULE = "module-7";
+
+	@Param({"10000"})
+	public int commits;
+
+	private File directory;
+	private File indexDirectory;
+	private SyntheticRepository repo;
+
+	@Setup(Level.Trial)
+	public void createRepository() throws IOException {
+		directory = File.createTempFile("gitlog-benchmark", ".git");
+		directory.delete();
+		repo = new SyntheticRepository(directory);
+		Random random = new Random(42);
+		Map<String, String> files = new TreeMap<String, String>();
+		for (int m = 0; m < MODULES; m++) {
+			for (int f = 0; f < FILES_PER_MODULE; f++) {
+				files.put("module-" + m + "/src/File" + f + ".java", "initial");
+			}
+		}
+		ObjectId head = repo.commit("Initial commit", 1000000000, files);
+		for (int i = 1; i < commits; i++) {
+			String path = "module-" + random.nextInt(MODULES) + "/src/File" + random.nextInt(FILES_PER_MODULE) + ".java";
+			files.put(path, "change " + i);
+			head = repo.commit("Change " + i, 1000000000 + i, files, head);
+		}
+		repo.setHead(head);
+
+		indexDirectory = File.createTempFile("gitlog-benchmark", ".index");
+		indexDirectory.delete();
+		ChangedPathIndex index = new ChangedPathIndex(indexDirectory, new SystemStreamLog());
+		RevWalk walk = startWalk(repo.getRepository());
+		for (RevCommit commit : walk) {
+			index.mightHaveChanged(commit, MODULE, repo.getRepository());
+		}
+		walk.release();
+		index.save();
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteRepository() {
+		repo.close();
+		delete(directory);
+		delete(indexDirectory);
+	}
+
+	@Benchmark
+	public int diffEachCommit() throws IOException {
+		return renderEach(ModuleCommitFilter.forModulePath(MODULE, new SystemStreamLog(), false));
+	}
+
+	@Benchmark
+	public int diffWithChangedPathIndex() throws IOException {
+		ModuleCommitFilter filter = ModuleCommitFilter.forModulePath(MODULE, new SystemStreamLog(), false);
+		filter.setChangedPathIndex(new ChangedPathIndex(indexDirectory, new SystemStreamLog()));
+		return renderEach(filter);
+	}
+
+	private int renderEach(ModuleCommitFilter filter) throws IOException {
+		Repository repository = repo.getRepository();
+		RevWalk walk = startWalk(repository);
+		int accepted = 0;
+		for (RevCommit commit : walk) {
+			if (filter.renderCommit(commit, repository)) {
+				accepted++;
+			}
+		}
+		walk.release();
+		return accepted;
+	}
+
+	@Benchmark
+	public int treeFilterInTheWalk() throws IOException {
+		return walkWith(ModuleCommitFilter.forModulePath(MODULE, new SystemStreamLog(), false));
+	}
+
+	@Benchmark
+	public int followRenamesInTheWalk() throws IOException {
+		return walkWith(ModuleCommitFilter.forModulePath(MODULE, new SystemStreamLog(), true));
+	}
+
+	private int walkWith(WalkCommitFilter filter) throws IOException {
+		Repository repository = repo.getRepository();
+		RevWalk walk = new RevWalk(repository);
+		filter.applyTo(walk, repository);
+		walk.markStart(walk.parseCommit(repository.resolve(Constants.HEAD)));
+		int accepted = 0;
+		for (RevCommit ignored : walk) {
+			accepted++;
+		}
+		walk.release();
+		return accepted;
+	}
+
+	private static RevWalk startWalk(Repository repository) throws IOException {
+		RevWalk walk = new RevWalk(repository);
+		walk.markStart(walk.parseCommit(repository.resolve(Constants.HEAD)));
+		return walk;
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
@@ -0,0 +1,84 @@
+package com.github.danielflower.mavenplugins.gitlog.renderers;
+
+import com.github.danielflower.mavenplugins.gitlog.BenchmarkHistory;
+import com.github.danielflower.mavenplugins.gitlog.SilentLog;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the issue and link converters over every message of the generated history. The issue converters
+ * share the {@link MessageTokenizer}, which scans each message once however many trackers there are.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MessageConverterBenchmark {
+
+	private String[] messages;
+	private final GitHubIssueLinkConverter gitHub = new GitHubIssueLinkConverter(new SilentLog(), "https://github.com/example/project/issues/");
+	private final JiraIssueLinkConverter jira = new JiraIssueLinkConverter(new SilentLog(), "https://jira.example.com/browse/");
+	private final MarkdownLinkConverter markdown = new MarkdownLinkConverter(new SilentLog());
+	private final MessageTokenizer bothTrackers = new MessageTokenizer(gitHub, jira);
+
+	@Setup(Level.Trial)
+	public void readMessages(BenchmarkHistory history) throws IOException {
+		List<RevCommit> commits = history.getHistory();
+		messages = new String[commits.size()];
+		for (int i = 0; i < messages.length; i++) {
+			messages[i] = commits.get(i).getFullMessage();
+		}
+	}
+
+	@Benchmark
+	public int gitHubIssueLinks() {
+		int length = 0;
+		for (String message : messages) {
+			length += gitHub.formatCommitMessage(message).length();
+		}
+		return length / messages.length;
+	}
+
+	@Benchmark
+	public int jiraIssueLinks() {
+		int length = 0;
+		for (String message : messages) {
+			length += jira.formatCommitMessage(message).length();
+		}
+		return length / messages.length;
+	}
+
+	@Benchmark
+	public int bothTrackersInOnePass() {
+		int length = 0;
+		for (String message : messages) {
+			length += bothTrackers.formatCommitMessage(message).length();
+		}
+		return length / messages.length;
+	}
+
+	@Benchmark
+	public int markdownLinks() {
+		int length = 0;
+		for (String message : messages) {
+			length += markdown.formatCommitMessage(message).length();
+		}
+		return length / messages.length;
+	}
+}
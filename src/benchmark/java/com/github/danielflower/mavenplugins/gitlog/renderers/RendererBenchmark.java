@@ -0,0 +1,115 @@
+package com.github.danielflower.mavenplugins.gitlog.renderers;
+
+import com.github.danielflower.mavenplugins.gitlog.BenchmarkHistory;
+import com.github.danielflower.mavenplugins.gitlog.SilentLog;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevTag;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each renderer writing the whole generated history, read up front so that only the rendering and
+ * the writing of the file is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RendererBenchmark {
+
+	@Param({"plainText", "markdown", "simpleHtml", "htmlTableOnly", "json", "mavenLogger"})
+	public String renderer;
+
+	private File directory;
+	private List<RevCommit> commits;
+	private Map<RevCommit, RevTag> tags;
+
+	@Setup(Level.Trial)
+	public void readHistory(BenchmarkHistory history) throws IOException {
+		directory = File.createTempFile("gitlog-benchmark", "");
+		directory.delete();
+		directory.mkdirs();
+		commits = history.getHistory();
+		tags = new HashMap<RevCommit, RevTag>();
+		Repository repository = history.getRepository();
+		RevWalk walk = new RevWalk(repository);
+		for (Ref ref : repository.getTags().values()) {
+			RevObject tagged = walk.parseAny(ref.getObjectId());
+			if (tagged instanceof RevTag) {
+				// the renderers are given lightweight tags by the generator, which is measured separately
+				tags.put(walk.parseCommit(((RevTag) tagged).getObject()), (RevTag) tagged);
+			}
+		}
+		walk.release();
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteOutput() {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	@Benchmark
+	public void render() throws IOException {
+		ChangeLogRenderer changeLogRenderer = createRenderer();
+		changeLogRenderer.renderHeader("Benchmark");
+		for (RevCommit commit : commits) {
+			RevTag tag = tags.get(commit);
+			if (tag != null) {
+				changeLogRenderer.renderTag(tag);
+			}
+			changeLogRenderer.renderCommit(commit);
+		}
+		changeLogRenderer.renderFooter();
+		changeLogRenderer.close();
+	}
+
+	private ChangeLogRenderer createRenderer() throws IOException {
+		Log log = new SilentLog();
+		MessageConverter converter = new GitHubIssueLinkConverter(log, "https://github.com/example/project/issues/");
+		if ("plainText".equals(renderer)) {
+			return new PlainTextRenderer(log, directory, "changelog.txt", false);
+		} else if ("markdown".equals(renderer)) {
+			return new MarkdownRenderer(log, directory, "changelog.md", false, converter);
+		} else if ("simpleHtml".equals(renderer)) {
+			return new SimpleHtmlRenderer(log, directory, "changelog.html", false, converter, false);
+		} else if ("htmlTableOnly".equals(renderer)) {
+			return new SimpleHtmlRenderer(log, directory, "changelog-table.html", false, converter, true);
+		} else if ("json".equals(renderer)) {
+			return new JsonRenderer(log, directory, "changelog.json", false);
+		} else if ("mavenLogger".equals(renderer)) {
+			return new MavenLoggerRenderer(log);
+		}
+		throw new IllegalArgumentException("Unknown renderer " + renderer);
+	}
+}
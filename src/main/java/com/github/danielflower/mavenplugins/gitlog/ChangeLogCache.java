@@ -0,0 +1,259 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An on-disk copy of the commits and tags read from the repository during a previous run, together with the
+ * commit the history was read from. Later runs only need to walk the commits made since that tip.
+ * <p>
+ * Commits and annotated tags are stored as their raw object buffers so that they can be turned back into
+ * {@link RevCommit} and {@link org.eclipse.jgit.revwalk.RevTag} instances without going back to the object
+ * database. A walk limited to a module rewrites the parents of the commits it returns, which the raw buffers
+ * do not show, so the number of parents each commit had in the walk is stored with it.
+ * <p>
+ * A cache can also be kept in memory, by a process that generates the changelog again and again, in which case
+ * it holds the commits themselves and nothing is written to disk.
+ */
+class ChangeLogCache {
+
+	private static final int MAGIC = 0x47434c43; // "GCLC"
+	private static final int VERSION = 2;
+	private static final String FILENAME = "gitlog-history.cache";
+
+	private final File file;
+	private final Log log;
+	private final boolean inMemory;
+
+	private ObjectId tip;
+	private final List<byte[]> commits = new ArrayList<byte[]>();
+	private final List<Integer> walkedParentCounts = new ArrayList<Integer>();
+	// cached merges whose parents collapsed into a single one in the walk the history was read with
+	private final Set<RevCommit> simplifiedMerges = new HashSet<RevCommit>();
+	private final Map<ObjectId, byte[]> tags = new HashMap<ObjectId, byte[]>();
+	private String savedKey;
+	private List<RevCommit> savedHistory;
+
+	public ChangeLogCache(File directory, Log log) {
+		this(new File(directory, FILENAME), false, log);
+	}
+
+	private ChangeLogCache(File file, boolean inMemory, Log log) {
+		this.file = file;
+		this.inMemory = inMemory;
+		this.log = log;
+	}
+
+	/**
+	 * Returns a cache that keeps what is saved to it in memory. Until something is saved, it loads the cache
+	 * on disk in the given directory, if there is one, but it never writes to it.
+	 */
+	public static ChangeLogCache inMemory(File directory, Log log) {
+		return new ChangeLogCache(directory == null ? null : new File(directory, FILENAME), true, log);
+	}
+
+	/**
+	 * Loads the cache from disk. Returns false if there is no usable cache for the given key, for example
+	 * because it was written for a different module or by an incompatible version of this plugin.
+	 */
+	public boolean load(String key) {
+		if (savedKey != null) {
+			return savedKey.equals(key);
+		}
+		tip = null;
+		commits.clear();
+		walkedParentCounts.clear();
+		tags.clear();
+		if (file == null || !file.isFile()) {
+			log.debug("No changelog cache found at " + file);
+			return false;
+		}
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+			if (in.readInt() != MAGIC || in.readInt() != VERSION || !key.equals(in.readUTF())) {
+				log.info("Ignoring changelog cache at " + file + " as it was written for a different configuration");
+				return false;
+			}
+			tip = readId(in);
+			int commitCount = in.readInt();
+			for (int i = 0; i < commitCount; i++) {
+				commits.add(readBuffer(in));
+				walkedParentCounts.add(in.readInt());
+			}
+			int tagCount = in.readInt();
+			for (int i = 0; i < tagCount; i++) {
+				ObjectId id = readId(in);
+				tags.put(id, readBuffer(in));
+			}
+			return true;
+		} catch (EOFException e) {
+			log.warn("The changelog cache at " + file + " is truncated and will be rebuilt");
+		} catch (IOException e) {
+			log.warn("Could not read the changelog cache at " + file + "; it will be rebuilt", e);
+		} finally {
+			close(in);
+		}
+		tip = null;
+		commits.clear();
+		walkedParentCounts.clear();
+		tags.clear();
+		return false;
+	}
+
+	/**
+	 * The commit the cached history was read from, or null if nothing is cached.
+	 */
+	public ObjectId getTip() {
+		return tip;
+	}
+
+	/**
+	 * Parses the cached commits into the given walk, in the order they were originally walked. The merges
+	 * among them that the original walk simplified are then given by {@link #getSimplifiedMerges()}.
+	 */
+	public List<RevCommit> getCommits(RevWalk walk) throws IOException {
+		if (savedHistory != null) {
+			// the commits were read by an earlier walk, and are only used for what they hold
+			return new ArrayList<RevCommit>(savedHistory);
+		}
+		List<RevCommit> result = new ArrayList<RevCommit>(commits.size());
+		simplifiedMerges.clear();
+		for (int i = 0; i < commits.size(); i++) {
+			RevCommit commit = RevCommit.parse(walk, commits.get(i));
+			if (commit.getParentCount() >= 2 && walkedParentCounts.get(i) < 2) {
+				simplifiedMerges.add(commit);
+			}
+			result.add(commit);
+		}
+		return result;
+	}
+
+	/**
+	 * The cached merges that had a single parent, or none, in the walk they were read with, because the walk
+	 * was limited to a module. Parsed from their raw buffers, they still have all their parents.
+	 */
+	public Set<RevCommit> getSimplifiedMerges() {
+		return simplifiedMerges;
+	}
+
+	public int getTagCount() {
+		return tags.size();
+	}
+
+	/**
+	 * Returns the raw buffer of the cached annotated tag with the given id, or null if that tag was not seen before.
+	 */
+	public byte[] getTag(ObjectId id) {
+		return tags.get(id);
+	}
+
+	/**
+	 * Replaces the cache on disk, or the one in memory. The file is written next to the existing one and
+	 * renamed over it so that an interrupted build never leaves a half-written cache behind. The history holds
+	 * the commits as the walk returned them, with their parents rewritten, apart from those read from this cache.
+	 */
+	public void save(String key, ObjectId newTip, List<RevCommit> history, Map<ObjectId, byte[]> allTags) {
+		if (inMemory) {
+			savedKey = key;
+			tip = newTip;
+			savedHistory = new ArrayList<RevCommit>(history);
+			// the simplified merges read from disk stay in the history, and walked commits keep their parents
+			commits.clear();
+			walkedParentCounts.clear();
+			tags.clear();
+			tags.putAll(allTags);
+			return;
+		}
+		File directory = file.getParentFile();
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			log.warn("Could not create the changelog cache directory " + directory);
+			return;
+		}
+		File temp = new File(directory, FILENAME + ".tmp");
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 65536));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(key);
+			writeId(out, newTip);
+			out.writeInt(history.size());
+			for (RevCommit commit : history) {
+				writeBuffer(out, commit.getRawBuffer());
+				out.writeInt(simplifiedMerges.contains(commit) ? 1 : commit.getParentCount());
+			}
+			out.writeInt(allTags.size());
+			for (Map.Entry<ObjectId, byte[]> tag : allTags.entrySet()) {
+				writeId(out, tag.getKey());
+				writeBuffer(out, tag.getValue());
+			}
+			out.close();
+			out = null;
+			if (file.exists() && !file.delete()) {
+				throw new IOException("Could not replace " + file);
+			}
+			if (!temp.renameTo(file)) {
+				throw new IOException("Could not rename " + temp + " to " + file);
+			}
+			log.debug("Wrote " + history.size() + " commits to the changelog cache at " + file);
+		} catch (IOException e) {
+			log.warn("Could not write the changelog cache at " + file, e);
+			temp.delete();
+		} finally {
+			close(out);
+		}
+	}
+
+	private static ObjectId readId(DataInputStream in) throws IOException {
+		byte[] raw = new byte[20];
+		in.readFully(raw);
+		return ObjectId.fromRaw(raw);
+	}
+
+	private static void writeId(DataOutputStream out, ObjectId id) throws IOException {
+		byte[] raw = new byte[20];
+		id.copyRawTo(raw, 0);
+		out.write(raw);
+	}
+
+	private static byte[] readBuffer(DataInputStream in) throws IOException {
+		byte[] buffer = new byte[in.readInt()];
+		in.readFully(buffer);
+		return buffer;
+	}
+
+	private static void writeBuffer(DataOutputStream out, byte[] buffer) throws IOException {
+		out.writeInt(buffer.length);
+		out.write(buffer);
+	}
+
+	private static void close(Closeable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+}
@@ -0,0 +1,188 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+/**
+ * Generates the changelogs of the project in the working directory from the command line, without starting
+ * Maven:
+ * <pre>
+ * java -jar maven-gitlog-plugin-cli.jar --reportTitle="My project changelog" --generateMarkdownChangeLog
+ * </pre>
+ * Each option sets the parameter of the generate goal with the same name, as <code>--name=value</code>, or
+ * <code>--name</code> alone for a parameter that is true or false. Issue trackers are given as
+ * <code>--issueTrackers.github=https://github.com/owner/project/issues</code>. Given the same settings, the
+ * changelogs are the same as those the generate goal writes.
+ * <p>
+ * The exit status is 0 when the changelogs were generated or were already up to date, 1 when they could not
+ * be generated and 2 when the options are wrong.
+ */
+public class ChangeLogCommand {
+
+	private static final String ISSUE_TRACKERS = "issueTrackers.";
+	private static final String DEBUG = "--debug";
+
+	public static void main(String[] args) {
+		System.exit(run(args, new ConsoleLog(Arrays.asList(args).contains(DEBUG)), System.out));
+	}
+
+	static int run(String[] args, Log log, PrintStream out) {
+		ChangeLogGenerator changeLog = new ChangeLogGenerator(log);
+		Map<String, String> issueTrackers = new LinkedHashMap<String, String>();
+		for (String arg : args) {
+			if ("--help".equals(arg) || "-h".equals(arg)) {
+				printUsage(out);
+				return 0;
+			}
+			if (DEBUG.equals(arg)) {
+				continue;
+			}
+			int equals = arg.indexOf('=');
+			String name = arg.substring(0, (equals < 0) ? arg.length() : equals);
+			String value = (equals < 0) ? null : arg.substring(equals + 1);
+			if (!name.startsWith("--") || name.length() == 2) {
+				log.error("Unknown argument " + arg + ". Run with --help to list the options.");
+				return 2;
+			}
+			name = name.substring(2);
+			try {
+				if (name.startsWith(ISSUE_TRACKERS)) {
+					issueTrackers.put(name.substring(ISSUE_TRACKERS.length()), required(name, value));
+				} else {
+					set(changeLog, name, value);
+				}
+			} catch (IllegalArgumentException e) {
+				log.error(e.getMessage() + ". Run with --help to list the options.");
+				return 2;
+			}
+		}
+		if (!issueTrackers.isEmpty()) {
+			changeLog.setIssueTrackers(issueTrackers);
+		}
+		return changeLog.generate() ? 0 : 1;
+	}
+
+	/**
+	 * Calls the setter of the option, turning the value into the type it takes.
+	 */
+	private static void set(ChangeLogGenerator changeLog, String name, String value) {
+		Method setter = options().get(name);
+		if (setter == null) {
+			throw new IllegalArgumentException("Unknown option --" + name);
+		}
+		Class<?> type = setter.getParameterTypes()[0];
+		Object converted;
+		if (type == boolean.class) {
+			if (value != null && !"true".equalsIgnoreCase(value) && !"false".equalsIgnoreCase(value)) {
+				throw new IllegalArgumentException("--" + name + " is either true or false, not " + value);
+			}
+			converted = (value == null) || Boolean.parseBoolean(value);
+		} else if (type == int.class) {
+			try {
+				converted = Integer.valueOf(required(name, value));
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("--" + name + " takes a number, not " + value);
+			}
+		} else if (type == File.class) {
+			converted = new File(required(name, value));
+		} else {
+			converted = required(name, value);
+		}
+		try {
+			setter.invoke(changeLog, converted);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		} catch (InvocationTargetException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private static String required(String name, String value) {
+		if (value == null) {
+			throw new IllegalArgumentException("--" + name + " needs a value, as in --" + name + "=<value>");
+		}
+		return value;
+	}
+
+	/**
+	 * The options, which are the public setters of {@link ChangeLogGenerator} that take a single value,
+	 * by name.
+	 */
+	private static Map<String, Method> options() {
+		Map<String, Method> options = new TreeMap<String, Method>();
+		for (Method method : ChangeLogGenerator.class.getMethods()) {
+			Class<?>[] types = method.getParameterTypes();
+			if (method.getName().startsWith("set") && method.getName().length() > 3 && types.length == 1
+					&& (types[0] == boolean.class || types[0] == int.class || types[0] == String.class
+							|| types[0] == File.class)) {
+				String name = method.getName().substring(3);
+				options.put(Character.toLowerCase(name.charAt(0)) + name.substring(1), method);
+			}
+		}
+		return options;
+	}
+
+	private static void printUsage(PrintStream out) {
+		out.println("Generates the changelogs of the project in the working directory, or in --projectDirectory.");
+		out.println();
+		out.println("Options, which are those of the generate goal of the plugin:");
+		for (Map.Entry<String, Method> option : options().entrySet()) {
+			Class<?> type = option.getValue().getParameterTypes()[0];
+			if (type == boolean.class) {
+				out.println("  --" + option.getKey() + "[=true|false]");
+			} else {
+				out.println("  --" + option.getKey() + "=<" + type.getSimpleName().toLowerCase() + ">");
+			}
+		}
+		out.println("  --" + ISSUE_TRACKERS + "<system>=<url>");
+		out.println("  " + DEBUG);
+		out.println("  --help");
+	}
+
+	/**
+	 * Writes to the console, leaving out the debug messages unless they are asked for.
+	 */
+	private static class ConsoleLog extends SystemStreamLog {
+
+		private final boolean debug;
+
+		ConsoleLog(boolean debug) {
+			this.debug = debug;
+		}
+
+		@Override
+		public boolean isDebugEnabled() {
+			return debug;
+		}
+
+		@Override
+		public void debug(CharSequence content) {
+			if (debug) {
+				super.debug(content);
+			}
+		}
+
+		@Override
+		public void debug(CharSequence content, Throwable error) {
+			if (debug) {
+				super.debug(content, error);
+			}
+		}
+
+		@Override
+		public void debug(Throwable error) {
+			if (debug) {
+				super.debug(error);
+			}
+		}
+	}
+}
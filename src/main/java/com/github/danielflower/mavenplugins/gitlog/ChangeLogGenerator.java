@@ -0,0 +1,669 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.lib.Repository;
+
+import com.github.danielflower.mavenplugins.gitlog.filters.ChangedPathIndex;
+import com.github.danielflower.mavenplugins.gitlog.filters.CommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.DuplicateCommitMessageFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.PatchIdCache;
+import com.github.danielflower.mavenplugins.gitlog.renderers.ChangeLogRenderer;
+import com.github.danielflower.mavenplugins.gitlog.renderers.DateFormatter;
+import com.github.danielflower.mavenplugins.gitlog.renderers.FileRenderer;
+import com.github.danielflower.mavenplugins.gitlog.renderers.GitHubIssueLinkConverter;
+import com.github.danielflower.mavenplugins.gitlog.renderers.IssueTracker;
+import com.github.danielflower.mavenplugins.gitlog.renderers.JiraIssueLinkConverter;
+import com.github.danielflower.mavenplugins.gitlog.renderers.JsonRenderer;
+import com.github.danielflower.mavenplugins.gitlog.renderers.MarkdownRenderer;
+import com.github.danielflower.mavenplugins.gitlog.renderers.MavenLoggerRenderer;
+import com.github.danielflower.mavenplugins.gitlog.renderers.MessageConverter;
+import com.github.danielflower.mavenplugins.gitlog.renderers.MessageTokenizer;
+import com.github.danielflower.mavenplugins.gitlog.renderers.NullMessageConverter;
+import com.github.danielflower.mavenplugins.gitlog.renderers.PlainTextRenderer;
+import com.github.danielflower.mavenplugins.gitlog.renderers.SimpleHtmlRenderer;
+
+/**
+ * Generates the changelogs of a project in a git repository, for use without Maven: from the command line
+ * with {@link ChangeLogCommand}, or from any other build tool. The settings are those of the generate goal,
+ * with the same names and defaults, and the goal does nothing more than pass its parameters on to this
+ * class, so the same settings give the same changelogs byte for byte however they are generated.
+ * <p>
+ * Progress and problems are reported to a Maven {@link Log}, which is a plain interface with no Maven
+ * runtime behind it; {@link org.apache.maven.plugin.logging.SystemStreamLog} writes to the console.
+ * Instances are not thread safe, but any number of them can generate changelogs at the same time.
+ */
+public class ChangeLogGenerator {
+
+	private final Log log;
+
+	private File projectDirectory = new File("").getAbsoluteFile();
+	private File outputDirectory;
+	private String reportTitle = "Changelog";
+	private boolean generatePlainTextChangeLog = true;
+	private String plainTextChangeLogFilename = "changelog.txt";
+	private boolean generateMarkdownChangeLog;
+	private String markdownChangeLogFilename = "changelog.md";
+	private boolean generateSimpleHTMLChangeLog = true;
+	private String simpleHTMLChangeLogFilename = "changelog.html";
+	private boolean generateHTMLTableOnlyChangeLog;
+	private String htmlTableOnlyChangeLogFilename = "changelogtable.html";
+	private boolean generateJSONChangeLog = true;
+	private String jsonChangeLogFilename = "changelog.json";
+	private boolean verbose;
+	private String issueManagementSystem;
+	private String issueManagementUrl;
+	private Map<String, String> issueTrackers;
+	private String dateFormat = DateFormatter.DEFAULT_FORMAT;
+	private String timeZone;
+	private boolean fullGitMessage;
+	private String includeCommitsAfter = "1970-01-01 00:00:00 GMT";
+	private boolean trustCommitTimes;
+	private boolean useCache;
+	private File cacheDirectory;
+	private boolean followRenames;
+	private int rendererThreads = 1;
+	private int moduleThreads = 1;
+	private boolean boundedMemory;
+	private boolean useCommitGraph = true;
+	private boolean useChangedPathIndex;
+	private boolean removeDuplicatesAcrossHistory;
+	private boolean removeCherryPicks;
+	private String startRef;
+	private String endRef;
+	private String sinceTagPattern;
+	private boolean writeMetrics;
+	private String metricsFilename = "gitlog-metrics.json";
+	private boolean compressedCopies;
+	private boolean skipWhenUnchanged;
+
+	// set by the generate goal only
+	private Repository repository;
+	private ChangeLogCache history;
+	private List<String> reactorPoms;
+	private ReactorHistory reactorHistory;
+
+	public ChangeLogGenerator(Log log) {
+		this.log = log;
+	}
+
+	/**
+	 * The directory of the project, in which the <code>pom.xml</code> would be. Only the commits that change
+	 * files in it are written, and the repository is found from it. Defaults to the working directory.
+	 */
+	public void setProjectDirectory(File projectDirectory) {
+		this.projectDirectory = projectDirectory.getAbsoluteFile();
+	}
+
+	/**
+	 * Defaults to <code>target</code> in the project directory.
+	 */
+	public void setOutputDirectory(File outputDirectory) {
+		this.outputDirectory = outputDirectory;
+	}
+
+	public File getOutputDirectory() {
+		return (outputDirectory == null) ? new File(projectDirectory, "target") : outputDirectory;
+	}
+
+	public void setReportTitle(String reportTitle) {
+		this.reportTitle = reportTitle;
+	}
+
+	public void setGeneratePlainTextChangeLog(boolean generatePlainTextChangeLog) {
+		this.generatePlainTextChangeLog = generatePlainTextChangeLog;
+	}
+
+	public void setPlainTextChangeLogFilename(String plainTextChangeLogFilename) {
+		this.plainTextChangeLogFilename = plainTextChangeLogFilename;
+	}
+
+	public void setGenerateMarkdownChangeLog(boolean generateMarkdownChangeLog) {
+		this.generateMarkdownChangeLog = generateMarkdownChangeLog;
+	}
+
+	public void setMarkdownChangeLogFilename(String markdownChangeLogFilename) {
+		this.markdownChangeLogFilename = markdownChangeLogFilename;
+	}
+
+	public void setGenerateSimpleHTMLChangeLog(boolean generateSimpleHTMLChangeLog) {
+		this.generateSimpleHTMLChangeLog = generateSimpleHTMLChangeLog;
+	}
+
+	public void setSimpleHTMLChangeLogFilename(String simpleHTMLChangeLogFilename) {
+		this.simpleHTMLChangeLogFilename = simpleHTMLChangeLogFilename;
+	}
+
+	public void setGenerateHTMLTableOnlyChangeLog(boolean generateHTMLTableOnlyChangeLog) {
+		this.generateHTMLTableOnlyChangeLog = generateHTMLTableOnlyChangeLog;
+	}
+
+	public void setHtmlTableOnlyChangeLogFilename(String htmlTableOnlyChangeLogFilename) {
+		this.htmlTableOnlyChangeLogFilename = htmlTableOnlyChangeLogFilename;
+	}
+
+	public void setGenerateJSONChangeLog(boolean generateJSONChangeLog) {
+		this.generateJSONChangeLog = generateJSONChangeLog;
+	}
+
+	public void setJsonChangeLogFilename(String jsonChangeLogFilename) {
+		this.jsonChangeLogFilename = jsonChangeLogFilename;
+	}
+
+	/**
+	 * Also writes the changelog to the log.
+	 */
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+
+	public void setIssueManagementSystem(String issueManagementSystem) {
+		this.issueManagementSystem = issueManagementSystem;
+	}
+
+	public void setIssueManagementUrl(String issueManagementUrl) {
+		this.issueManagementUrl = issueManagementUrl;
+	}
+
+	/**
+	 * More issue trackers to link to, mapped from their system (such as GitHub or JIRA) to their URL.
+	 */
+	public void setIssueTrackers(Map<String, String> issueTrackers) {
+		this.issueTrackers = (issueTrackers == null) ? null : new LinkedHashMap<String, String>(issueTrackers);
+	}
+
+	public void setDateFormat(String dateFormat) {
+		this.dateFormat = dateFormat;
+	}
+
+	/**
+	 * The ID of the time zone the dates are written in. Defaults to the time zone of the JVM.
+	 */
+	public void setTimeZone(String timeZone) {
+		this.timeZone = timeZone;
+	}
+
+	public void setFullGitMessage(boolean fullGitMessage) {
+		this.fullGitMessage = fullGitMessage;
+	}
+
+	/**
+	 * Leaves out the commits made before this date, given in the date format.
+	 */
+	public void setIncludeCommitsAfter(String includeCommitsAfter) {
+		this.includeCommitsAfter = includeCommitsAfter;
+	}
+
+	public void setTrustCommitTimes(boolean trustCommitTimes) {
+		this.trustCommitTimes = trustCommitTimes;
+	}
+
+	public void setUseCache(boolean useCache) {
+		this.useCache = useCache;
+	}
+
+	/**
+	 * Defaults to <code>gitlog-cache</code> in the output directory.
+	 */
+	public void setCacheDirectory(File cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+	}
+
+	public File getCacheDirectory() {
+		return (cacheDirectory == null) ? new File(getOutputDirectory(), "gitlog-cache") : cacheDirectory;
+	}
+
+	public void setFollowRenames(boolean followRenames) {
+		this.followRenames = followRenames;
+	}
+
+	public void setRendererThreads(int rendererThreads) {
+		this.rendererThreads = rendererThreads;
+	}
+
+	public void setModuleThreads(int moduleThreads) {
+		this.moduleThreads = moduleThreads;
+	}
+
+	public void setBoundedMemory(boolean boundedMemory) {
+		this.boundedMemory = boundedMemory;
+	}
+
+	public void setUseCommitGraph(boolean useCommitGraph) {
+		this.useCommitGraph = useCommitGraph;
+	}
+
+	public void setUseChangedPathIndex(boolean useChangedPathIndex) {
+		this.useChangedPathIndex = useChangedPathIndex;
+	}
+
+	public void setRemoveDuplicatesAcrossHistory(boolean removeDuplicatesAcrossHistory) {
+		this.removeDuplicatesAcrossHistory = removeDuplicatesAcrossHistory;
+	}
+
+	public void setRemoveCherryPicks(boolean removeCherryPicks) {
+		this.removeCherryPicks = removeCherryPicks;
+	}
+
+	public void setStartRef(String startRef) {
+		this.startRef = startRef;
+	}
+
+	public void setEndRef(String endRef) {
+		this.endRef = endRef;
+	}
+
+	public void setSinceTagPattern(String sinceTagPattern) {
+		this.sinceTagPattern = sinceTagPattern;
+	}
+
+	public void setWriteMetrics(boolean writeMetrics) {
+		this.writeMetrics = writeMetrics;
+	}
+
+	public void setMetricsFilename(String metricsFilename) {
+		this.metricsFilename = metricsFilename;
+	}
+
+	public void setCompressedCopies(boolean compressedCopies) {
+		this.compressedCopies = compressedCopies;
+	}
+
+	public void setSkipWhenUnchanged(boolean skipWhenUnchanged) {
+		this.skipWhenUnchanged = skipWhenUnchanged;
+	}
+
+	/**
+	 * Reads the history from the given repository, which is left open, rather than from one found from the
+	 * project directory.
+	 */
+	void setRepository(Repository repository) {
+		this.repository = repository;
+	}
+
+	/**
+	 * Uses the given history cache instead of the one on disk.
+	 */
+	void setHistory(ChangeLogCache history) {
+		this.history = history;
+	}
+
+	/**
+	 * Reads the history of all the modules of a reactor, given by their poms, in one walk.
+	 */
+	void setReactorPoms(List<String> reactorPoms) {
+		this.reactorPoms = reactorPoms;
+	}
+
+	/**
+	 * Generates the changelogs. Returns false if they could not be generated, the reason having been logged.
+	 */
+	public boolean generate() {
+		File outputDirectory = getOutputDirectory();
+		File cacheDirectory = getCacheDirectory();
+		log.info(
+				"Generating changelog in " + outputDirectory + " with title "
+						+ reportTitle);
+		File f = outputDirectory;
+		if (!f.exists()) {
+			f.mkdirs();
+		}
+
+		List<ChangeLogRenderer> renderers;
+		try {
+			renderers = createRenderers(outputDirectory);
+		} catch (IOException e) {
+			log.warn(
+					"Error while setting up gitlog renderers.  No changelog will be generated.",
+					e);
+			return false;
+		}
+
+		long started = System.nanoTime();
+		Repository repository = this.repository;
+		try {
+			if (repository == null) {
+				repository = Generator.findRepository(projectDirectory);
+			}
+		} catch (IOException e) {
+			log.warn(
+					"Error opening git repository.  Is this project hosted in a git repository? "
+							+ "No changelog will be generated.", e);
+			return false;
+		} catch (NoGitRepositoryException e) {
+			log.warn(
+					"This project does not appear to be in a git repository, "
+							+ "therefore no git changelog will be generated.");
+			return false;
+		}
+		try {
+			return generate(repository, System.nanoTime() - started, renderers, outputDirectory, cacheDirectory);
+		} finally {
+			if (reactorHistory != null) {
+				reactorHistory.getRepository().close();
+				reactorHistory = null;
+			}
+			if (repository != this.repository) {
+				repository.close();
+			}
+		}
+	}
+
+	private boolean generate(Repository repository, long openTime, List<ChangeLogRenderer> renderers,
+			File outputDirectory, File cacheDirectory) {
+		String pomPath = new File(projectDirectory, "pom.xml").getAbsolutePath();
+		List<CommitFilter> registeredFilters = Defaults.commitFilters();
+		InputFingerprint fingerprint = null;
+		if (skipWhenUnchanged) {
+			try {
+				fingerprint = fingerprintOf(repository, pomPath, outputDirectory, registeredFilters);
+			} catch (IOException e) {
+				// reading the history reports the problem
+			}
+		}
+		boolean upToDate = false;
+		if (fingerprint != null) {
+			if (fingerprint.matches(outputDirectory, outputFiles(renderers))) {
+				log.info("The changelog is up to date: nothing has changed since it was generated");
+				// the files are left as they are, but the changelog is still shown in the log when verbose
+				renderers = withoutFiles(renderers);
+				if (renderers.isEmpty()) {
+					return true;
+				}
+				upToDate = true;
+				fingerprint = null;
+			} else {
+				// until the new changelogs are written in full
+				InputFingerprint.delete(outputDirectory);
+			}
+		}
+		PatchIdCache patchIds = removeCherryPicks ? new PatchIdCache(cacheDirectory, log) : null;
+		ChangedPathIndex changedPaths = useChangedPathIndex ? new ChangedPathIndex(cacheDirectory, log) : null;
+		List<CommitFilter> commitFilters = new ArrayList<CommitFilter>();
+		for (CommitFilter commitFilter : registeredFilters) {
+			// the duplicate filter is configured for this changelog
+			commitFilters.add((commitFilter instanceof DuplicateCommitMessageFilter)
+					? new DuplicateCommitMessageFilter(removeDuplicatesAcrossHistory, patchIds) : commitFilter);
+		}
+		Generator generator = new Generator(renderers, commitFilters, log);
+		generator.getMetrics().addPhase(GenerationMetrics.OPEN, openTime);
+		if (useCache && boundedMemory) {
+			log.warn("The history cache is not used when boundedMemory is set.");
+		} else if (useCache) {
+			generator.setCacheDirectory(cacheDirectory);
+		}
+		if (history != null && !boundedMemory) {
+			generator.setCache(history);
+		}
+		generator.setBoundedMemory(boundedMemory);
+		generator.setUseCommitGraph(useCommitGraph);
+		generator.setChangedPathIndex(changedPaths);
+		generator.setFollowRenames(followRenames);
+		generator.setTrustCommitTimes(trustCommitTimes);
+		generator.setRendererThreads(rendererThreads);
+		generator.setFullGitMessage(fullGitMessage);
+		generator.setRange(startRef, endRef);
+		if (sinceTagPattern != null && !"".equals(sinceTagPattern)) {
+			try {
+				generator.setSinceTagPattern(Pattern.compile(sinceTagPattern));
+			} catch (PatternSyntaxException e) {
+				log.warn("Invalid sinceTagPattern '" + sinceTagPattern + "'. Will retrieve all logs !", e);
+			}
+		}
+
+		try {
+			String workTreePath = repository.getWorkTree().getAbsolutePath();
+			if (!pomPath.startsWith(workTreePath)) {
+				log.warn("The project " + projectDirectory + " is not in the work tree of " + repository.getDirectory()
+						+ ", therefore no git changelog will be generated.");
+				return false;
+			}
+			String module = Generator.modulePath(repository, pomPath);
+			log.info("module -> " + module);
+			if (history == null && reactorPoms != null && !followRenames && !boundedMemory && !generator.hasRange()) {
+				List<String> modules = new ArrayList<String>();
+				for (String reactorPom : reactorPoms) {
+					if (reactorPom.startsWith(workTreePath)) {
+						modules.add(Generator.modulePath(repository, reactorPom));
+					}
+				}
+				reactorHistory = ReactorHistory.forModules(repository, modules, changedPaths, moduleThreads, log);
+				try {
+					generator.useReactorHistory(reactorHistory, module);
+				} catch (IOException e) {
+					// the modules after this one would wait for it to take its history
+					reactorHistory.release();
+					throw e;
+				}
+			} else {
+				generator.openRepository(repository, module);
+			}
+		} catch (IOException e) {
+			log.warn(
+					"Error opening git repository.  Is this project hosted in a git repository? "
+							+ "No changelog will be generated.", e);
+			return false;
+		}
+
+		DateFormatter dateFormatter = DateFormatter.create(
+				"".equals(dateFormat) ? DateFormatter.DEFAULT_FORMAT : dateFormat, timeZone, log);
+		generator.setDateFormatter(dateFormatter);
+		for (ChangeLogRenderer renderer : renderers) {
+			if (renderer instanceof FileRenderer) {
+				((FileRenderer) renderer).setDateFormatter(dateFormatter);
+			} else if (renderer instanceof MavenLoggerRenderer) {
+				((MavenLoggerRenderer) renderer).setDateFormatter(dateFormatter);
+			}
+		}
+
+		Date includeCommitsAfterDate = new Date(0);
+
+		if (includeCommitsAfter != null) {
+			try {
+				SimpleDateFormat includeCommitsAfterFormat = new SimpleDateFormat(dateFormat);
+				includeCommitsAfterFormat.setTimeZone(dateFormatter.getTimeZone());
+				includeCommitsAfterDate = includeCommitsAfterFormat.parse(includeCommitsAfter);
+			} catch (ParseException pe) {
+				log.warn(
+						"Could not format date since pattern is not valid or date is not correct. Will retrieve all logs !",
+						pe);
+			} catch (IllegalArgumentException iae) {
+				log.warn(
+						"Could not format date since pattern is not valid or date is not correct. Will retrieve all logs !",
+						iae);
+			}
+		}
+
+		try {
+			generator.generate(reportTitle, includeCommitsAfterDate);
+		} catch (IOException e) {
+			log.warn(
+					"Error while generating changelog.  Some changelogs may be incomplete or corrupt.",
+					e);
+			return false;
+		}
+		if (fingerprint != null) {
+			fingerprint.save(outputDirectory, log);
+		}
+		if (patchIds != null) {
+			patchIds.save();
+		}
+		if (changedPaths != null) {
+			changedPaths.save();
+		}
+
+		if (writeMetrics && !upToDate) {
+			File metricsFile = new File(outputDirectory, metricsFilename);
+			try {
+				generator.getMetrics().writeJson(metricsFile);
+			} catch (IOException e) {
+				log.warn("Could not write the changelog metrics to " + metricsFile, e);
+			}
+		}
+		return true;
+	}
+
+	private List<ChangeLogRenderer> createRenderers(File outputDirectory) throws IOException {
+		ArrayList<ChangeLogRenderer> renderers = new ArrayList<ChangeLogRenderer>();
+
+		if (generatePlainTextChangeLog) {
+			renderers.add(new PlainTextRenderer(log, outputDirectory,
+					plainTextChangeLogFilename, fullGitMessage));
+		}
+
+		if (generateSimpleHTMLChangeLog || generateHTMLTableOnlyChangeLog
+				|| generateMarkdownChangeLog) {
+			MessageConverter messageConverter = getCommitMessageConverter();
+			if (generateSimpleHTMLChangeLog) {
+				renderers.add(new SimpleHtmlRenderer(log,
+						outputDirectory, simpleHTMLChangeLogFilename,
+						fullGitMessage, messageConverter, false));
+			}
+			if (generateHTMLTableOnlyChangeLog) {
+				renderers.add(new SimpleHtmlRenderer(log,
+						outputDirectory, htmlTableOnlyChangeLogFilename,
+						fullGitMessage, messageConverter, true));
+			}
+			if (generateMarkdownChangeLog) {
+				renderers.add(new MarkdownRenderer(log,
+						outputDirectory, markdownChangeLogFilename,
+						fullGitMessage, messageConverter));
+			}
+		}
+
+		if (generateJSONChangeLog) {
+			renderers.add(new JsonRenderer(log, outputDirectory,
+					jsonChangeLogFilename, fullGitMessage));
+		}
+
+		if (verbose) {
+			renderers.add(new MavenLoggerRenderer(log));
+		}
+
+		for (ChangeLogRenderer renderer : renderers) {
+			if (renderer instanceof FileRenderer) {
+				((FileRenderer) renderer).setCompressedCopy(compressedCopies);
+			}
+		}
+		return renderers;
+	}
+
+	private static List<ChangeLogRenderer> withoutFiles(List<ChangeLogRenderer> renderers) {
+		List<ChangeLogRenderer> others = new ArrayList<ChangeLogRenderer>();
+		for (ChangeLogRenderer renderer : renderers) {
+			if (!(renderer instanceof FileRenderer)) {
+				others.add(renderer);
+			}
+		}
+		return others;
+	}
+
+	private static List<File> outputFiles(List<ChangeLogRenderer> renderers) {
+		List<File> files = new ArrayList<File>();
+		for (ChangeLogRenderer renderer : renderers) {
+			if (renderer instanceof FileRenderer) {
+				files.add(((FileRenderer) renderer).getFile());
+				if (((FileRenderer) renderer).getCompressedFile() != null) {
+					files.add(((FileRenderer) renderer).getCompressedFile());
+				}
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Returns the fingerprint of what the changelog would be generated from. Settings that only change how
+	 * fast the changelog is generated, such as the cache and the threads, are left out.
+	 */
+	private InputFingerprint fingerprintOf(Repository repository, String pomPath, File outputDirectory,
+			List<CommitFilter> commitFilters) throws IOException {
+		InputFingerprint fingerprint = new InputFingerprint(repository, startRef, endRef)
+				.add("pom", pomPath)
+				.add("outputDirectory", outputDirectory.getAbsolutePath())
+				.add("reportTitle", reportTitle)
+				.add("plainText", generatePlainTextChangeLog + " " + plainTextChangeLogFilename)
+				.add("markdown", generateMarkdownChangeLog + " " + markdownChangeLogFilename)
+				.add("simpleHTML", generateSimpleHTMLChangeLog + " " + simpleHTMLChangeLogFilename)
+				.add("htmlTableOnly", generateHTMLTableOnlyChangeLog + " " + htmlTableOnlyChangeLogFilename)
+				.add("json", generateJSONChangeLog + " " + jsonChangeLogFilename)
+				.add("compressedCopies", compressedCopies)
+				.add("issueManagement", issueManagementSystem + " " + issueManagementUrl)
+				.add("issueTrackers", issueTrackers == null ? null : new TreeMap<String, String>(issueTrackers))
+				.add("dateFormat", dateFormat)
+				.add("timeZone", timeZone == null ? TimeZone.getDefault().getID() : timeZone)
+				.add("locale", Locale.getDefault())
+				.add("fullGitMessage", fullGitMessage)
+				.add("includeCommitsAfter", includeCommitsAfter)
+				.add("trustCommitTimes", trustCommitTimes)
+				.add("followRenames", followRenames)
+				.add("removeDuplicatesAcrossHistory", removeDuplicatesAcrossHistory)
+				.add("removeCherryPicks", removeCherryPicks)
+				.add("range", startRef + ".." + endRef)
+				.add("sinceTagPattern", sinceTagPattern);
+		for (CommitFilter commitFilter : commitFilters) {
+			fingerprint.addCode(commitFilter.getClass());
+		}
+		return fingerprint;
+	}
+
+	private MessageConverter getCommitMessageConverter() {
+		List<IssueTracker> trackers = new ArrayList<IssueTracker>();
+		addIssueTracker(trackers, issueManagementSystem, issueManagementUrl);
+		if (issueTrackers != null) {
+			for (Map.Entry<String, String> tracker : issueTrackers.entrySet()) {
+				addIssueTracker(trackers, tracker.getKey(), tracker.getValue());
+			}
+		}
+		if (trackers.isEmpty()) {
+			log.debug("Using tracker " + NullMessageConverter.class.getSimpleName());
+			return new NullMessageConverter();
+		}
+		if (trackers.size() == 1) {
+			return (MessageConverter) trackers.get(0);
+		}
+		return new MessageTokenizer(trackers);
+	}
+
+	private void addIssueTracker(List<IssueTracker> trackers, String issueManagementSystem, String issueManagementUrl) {
+		log.debug(
+				"Trying to load issue tracking info: " + issueManagementSystem
+						+ " / " + issueManagementUrl);
+		IssueTracker tracker = null;
+		try {
+			if (issueManagementUrl != null
+					&& issueManagementUrl.contains("://")) {
+				String system = ("" + issueManagementSystem).toLowerCase();
+				if (system.contains("jira")) {
+					tracker = new JiraIssueLinkConverter(log,
+							issueManagementUrl);
+				} else if (system.contains("github")) {
+					tracker = new GitHubIssueLinkConverter(log,
+							issueManagementUrl);
+				}
+			}
+		} catch (Exception ex) {
+			log.warn(
+					"Could not load issue management system information; no HTML links will be generated for "
+							+ issueManagementSystem + ".",
+					ex);
+		}
+		if (tracker != null) {
+			log.debug("Using tracker " + tracker.getClass().getSimpleName());
+			trackers.add(tracker);
+		}
+	}
+}
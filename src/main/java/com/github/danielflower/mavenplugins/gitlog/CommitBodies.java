@@ -0,0 +1,42 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.lang.reflect.Method;
+
+/**
+ * Releases the message and identities of a commit that has been rendered, keeping only what the walk needs.
+ * <p>
+ * {@link RevCommit} can drop its body, as the walk does for the commits its filter rejects, but the method is
+ * not public in the version of JGit used here, so it is called reflectively. If that is not possible the
+ * bodies are simply kept, as they would be without bounded memory.
+ */
+class CommitBodies {
+
+	private static final Method DISPOSE_BODY = findDisposeBody();
+
+	private static Method findDisposeBody() {
+		try {
+			Method method = RevCommit.class.getDeclaredMethod("disposeBody");
+			method.setAccessible(true);
+			return method;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	static boolean canRelease() {
+		return DISPOSE_BODY != null;
+	}
+
+	static void release(RevCommit commit) {
+		if (DISPOSE_BODY == null) {
+			return;
+		}
+		try {
+			DISPOSE_BODY.invoke(commit);
+		} catch (Exception e) {
+			throw new IllegalStateException("Could not release the body of " + commit.name(), e);
+		}
+	}
+}
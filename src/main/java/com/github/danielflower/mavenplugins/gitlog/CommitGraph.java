@@ -0,0 +1,298 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.MutableObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.util.NB;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The commit-graph file that git writes to <code>objects/info/commit-graph</code>, or the chain of them in
+ * <code>objects/info/commit-graphs</code>. It holds the parents and commit time of every commit it covers,
+ * so the history can be walked without inflating the commit objects.
+ * <p>
+ * Commits are identified by their position in the file, in the order of their IDs; the positions in a chain
+ * continue from one file to the next. The files are mapped rather than read, so opening a graph costs the
+ * same whatever the size of the history. Instances are not thread safe.
+ */
+class CommitGraph {
+
+	private static final int SIGNATURE = 0x43475048; // "CGPH"
+	private static final int OID_FANOUT = 0x4f494446; // "OIDF"
+	private static final int OID_LOOKUP = 0x4f49444c; // "OIDL"
+	private static final int COMMIT_DATA = 0x43444154; // "CDAT"
+	private static final int EXTRA_EDGES = 0x45444745; // "EDGE"
+	private static final int NO_PARENT = 0x70000000;
+	private static final int LAST_EDGE = 0x80000000;
+	private static final int ID_LENGTH = Constants.OBJECT_ID_LENGTH;
+	private static final int DATA_LENGTH = ID_LENGTH + 16;
+
+	private static class Layer {
+		final int offset;
+		final int count;
+		final ByteBuffer buffer;
+		final int fanout;
+		final int lookup;
+		final int data;
+		final int edges;
+
+		Layer(int offset, int count, ByteBuffer buffer, int fanout, int lookup, int data, int edges) {
+			this.offset = offset;
+			this.count = count;
+			this.buffer = buffer;
+			this.fanout = fanout;
+			this.lookup = lookup;
+			this.data = data;
+			this.edges = edges;
+		}
+	}
+
+	private final Layer[] layers;
+	private final int size;
+	private final byte[] raw = new byte[ID_LENGTH];
+	private final int[] none = new int[0];
+	private final int[] oneParent = new int[1];
+	private final int[] twoParents = new int[2];
+
+	private CommitGraph(Layer[] layers) {
+		this.layers = layers;
+		Layer last = layers[layers.length - 1];
+		this.size = last.offset + last.count;
+	}
+
+	/**
+	 * Opens the commit-graph of the repository, or returns null if it has none that can be used: there is no
+	 * file, it is in a format this version does not read, or the history is shallow or grafted, which the
+	 * graph does not know about.
+	 */
+	static CommitGraph open(Repository repository, Log log) {
+		File info = new File(repository.getDirectory(), "objects/info");
+		if (new File(repository.getDirectory(), "shallow").exists() || new File(info, "grafts").exists()) {
+			log.debug("Not using the commit-graph as the history is shallow or grafted");
+			return null;
+		}
+		try {
+			List<File> files = new ArrayList<File>();
+			File single = new File(info, "commit-graph");
+			File chain = new File(info, "commit-graphs/commit-graph-chain");
+			if (single.isFile()) {
+				files.add(single);
+			} else if (chain.isFile()) {
+				BufferedReader reader = new BufferedReader(new FileReader(chain));
+				try {
+					// the base of the chain comes first
+					for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+						if (line.trim().length() > 0) {
+							files.add(new File(info, "commit-graphs/graph-" + line.trim() + ".graph"));
+						}
+					}
+				} finally {
+					reader.close();
+				}
+			}
+			if (files.isEmpty()) {
+				log.debug("The repository has no commit-graph");
+				return null;
+			}
+			Layer[] layers = new Layer[files.size()];
+			int offset = 0;
+			for (int i = 0; i < layers.length; i++) {
+				layers[i] = readLayer(files.get(i), i, offset);
+				if (layers[i] == null) {
+					log.info("Not using the commit-graph " + files.get(i) + " as it is not in a format this plugin reads");
+					return null;
+				}
+				offset += layers[i].count;
+			}
+			return new CommitGraph(layers);
+		} catch (IOException e) {
+			log.warn("Could not read the commit-graph; the history is read from the commits instead", e);
+			return null;
+		}
+	}
+
+	private static Layer readLayer(File file, int baseGraphs, int offset) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		ByteBuffer buffer;
+		try {
+			FileChannel channel = in.getChannel();
+			// the mapping stays valid once the channel is closed
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			in.close();
+		}
+		// version 1, SHA-1 IDs, and as many base graphs as there are files before this one in the chain
+		if (buffer.limit() < 8 || buffer.getInt(0) != SIGNATURE || buffer.get(4) != 1 || buffer.get(5) != 1
+				|| buffer.get(7) != baseGraphs) {
+			return null;
+		}
+		int chunks = buffer.get(6) & 0xff;
+		int fanout = -1;
+		int lookup = -1;
+		int data = -1;
+		int edges = -1;
+		for (int c = 0; c < chunks; c++) {
+			int entry = 8 + c * 12;
+			if (entry + 12 > buffer.limit()) {
+				return null;
+			}
+			long chunkOffset = buffer.getLong(entry + 4);
+			if (chunkOffset < 0 || chunkOffset > buffer.limit()) {
+				return null;
+			}
+			switch (buffer.getInt(entry)) {
+			case OID_FANOUT:
+				fanout = (int) chunkOffset;
+				break;
+			case OID_LOOKUP:
+				lookup = (int) chunkOffset;
+				break;
+			case COMMIT_DATA:
+				data = (int) chunkOffset;
+				break;
+			case EXTRA_EDGES:
+				edges = (int) chunkOffset;
+				break;
+			default:
+				// generation data, Bloom filters and the base graph IDs are not needed
+			}
+		}
+		if (fanout < 0 || lookup < 0 || data < 0 || fanout + 256 * 4 > buffer.limit()) {
+			return null;
+		}
+		int count = buffer.getInt(fanout + 255 * 4);
+		if (count < 0 || (long) lookup + (long) count * ID_LENGTH > buffer.limit()
+				|| (long) data + (long) count * DATA_LENGTH > buffer.limit()) {
+			return null;
+		}
+		return new Layer(offset, count, buffer, fanout, lookup, data, edges);
+	}
+
+	/**
+	 * The number of commits in the graph.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the position of the commit, or -1 if it is not in the graph, for example because it was made
+	 * after the graph was written.
+	 */
+	int find(AnyObjectId id) {
+		id.copyRawTo(raw, 0);
+		int first = raw[0] & 0xff;
+		for (int l = layers.length - 1; l >= 0; l--) {
+			Layer layer = layers[l];
+			int low = (first == 0) ? 0 : layer.buffer.getInt(layer.fanout + (first - 1) * 4);
+			int high = layer.buffer.getInt(layer.fanout + first * 4) - 1;
+			while (low <= high) {
+				int middle = (low + high) >>> 1;
+				int comparison = compare(layer.buffer, layer.lookup + middle * ID_LENGTH);
+				if (comparison < 0) {
+					low = middle + 1;
+				} else if (comparison > 0) {
+					high = middle - 1;
+				} else {
+					return layer.offset + middle;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Compares the ID at the given offset with the one being looked up.
+	 */
+	private int compare(ByteBuffer buffer, int at) {
+		for (int i = 0; i < ID_LENGTH; i += 4) {
+			int stored = buffer.getInt(at + i);
+			int wanted = NB.decodeInt32(raw, i);
+			if (stored != wanted) {
+				// unsigned, as the IDs are sorted byte by byte
+				return (stored ^ 0x80000000) < (wanted ^ 0x80000000) ? -1 : 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Sets the given ID to that of the commit at the given position.
+	 */
+	void getId(int position, MutableObjectId id) {
+		Layer layer = layerOf(position);
+		int at = layer.lookup + (position - layer.offset) * ID_LENGTH;
+		for (int i = 0; i < ID_LENGTH; i++) {
+			raw[i] = layer.buffer.get(at + i);
+		}
+		id.fromRaw(raw);
+	}
+
+	/**
+	 * The commit time in seconds since the epoch, as the committer recorded it.
+	 */
+	int getCommitTime(int position) {
+		Layer layer = layerOf(position);
+		int at = layer.data + (position - layer.offset) * DATA_LENGTH + ID_LENGTH + 8;
+		// the lowest 2 bits of the first word are the top bits of a 34 bit time, which an int cannot hold
+		return layer.buffer.getInt(at + 4);
+	}
+
+	/**
+	 * Returns the positions of the parents of the commit, in order. Unless the commit is an octopus merge, the array is
+	 * reused by the next call.
+	 */
+	int[] getParents(int position) {
+		Layer layer = layerOf(position);
+		int at = layer.data + (position - layer.offset) * DATA_LENGTH + ID_LENGTH;
+		int first = layer.buffer.getInt(at);
+		int second = layer.buffer.getInt(at + 4);
+		if (first == NO_PARENT) {
+			return none;
+		}
+		if (second == NO_PARENT) {
+			oneParent[0] = first;
+			return oneParent;
+		}
+		if ((second & LAST_EDGE) == 0) {
+			twoParents[0] = first;
+			twoParents[1] = second;
+			return twoParents;
+		}
+		// an octopus merge: the second and later parents are listed in the extra edges chunk
+		List<Integer> all = new ArrayList<Integer>();
+		all.add(first);
+		for (int edge = layer.edges + (second & ~LAST_EDGE) * 4;; edge += 4) {
+			int parent = layer.buffer.getInt(edge);
+			all.add(parent & ~LAST_EDGE);
+			if ((parent & LAST_EDGE) != 0) {
+				break;
+			}
+		}
+		int[] octopus = new int[all.size()];
+		for (int i = 0; i < octopus.length; i++) {
+			octopus[i] = all.get(i);
+		}
+		return octopus;
+	}
+
+	private Layer layerOf(int position) {
+		for (int l = layers.length - 1; l > 0; l--) {
+			if (position >= layers[l].offset) {
+				return layers[l];
+			}
+		}
+		return layers[0];
+	}
+}
@@ -0,0 +1,246 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.MutableObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Walks the history from a commit using the parents and commit times in the {@link CommitGraph}, and only
+ * reads the commits it returns. The commits come out in exactly the order a {@link RevWalk} without a sort
+ * would produce them in, so that the changelog is the same whichever way the history was walked.
+ * <p>
+ * Commits that are not in the graph, such as those made since it was written, are read from the repository
+ * through the RevWalk instead, so a graph that is out of date only makes the walk slower.
+ */
+class CommitGraphWalk implements Iterable<RevCommit> {
+
+	/**
+	 * A queued commit: either a position in the graph, or a commit the graph does not have.
+	 */
+	private static class Node {
+		final int position;
+		final RevCommit commit;
+		final int commitTime;
+
+		Node(int position, RevCommit commit, int commitTime) {
+			this.position = position;
+			this.commit = commit;
+			this.commitTime = commitTime;
+		}
+	}
+
+	private final CommitGraph graph;
+	private final RevWalk walk;
+	private final ObjectId head;
+	private final MutableObjectId id = new MutableObjectId();
+	private long cutoffInSecondsSinceEpoch;
+	private boolean stopAtOlderCommits;
+	private TagIndex tagIndex;
+	private RevFlag filteredOut;
+	private RevFilter revFilter;
+
+	CommitGraphWalk(CommitGraph graph, RevWalk walk, ObjectId head) {
+		this.graph = graph;
+		this.walk = walk;
+		this.head = head;
+	}
+
+	/**
+	 * Leaves out the commits made before the given time without reading them. If stopAtOlderCommits is true,
+	 * the walk also ends once it reaches them, with the same allowance for commits out of order as
+	 * {@link CommitTimeCutoffFilter}.
+	 */
+	void setCutoff(long cutoffInSecondsSinceEpoch, boolean stopAtOlderCommits) {
+		this.cutoffInSecondsSinceEpoch = cutoffInSecondsSinceEpoch;
+		this.stopAtOlderCommits = stopAtOlderCommits;
+	}
+
+	/**
+	 * Leaves out merge commits without reading them. Merges with tags are still returned, marked with the
+	 * given flag, so that their tags are rendered.
+	 */
+	void skipMerges(TagIndex tagIndex, RevFlag filteredOut) {
+		this.tagIndex = tagIndex;
+		this.filteredOut = filteredOut;
+	}
+
+	/**
+	 * Only returns the commits the filter includes. The filter is given each commit once it has been read,
+	 * after the merges have been left out.
+	 */
+	void setRevFilter(RevFilter revFilter) {
+		this.revFilter = revFilter;
+	}
+
+	public Iterator<RevCommit> iterator() {
+		return new Iterator<RevCommit>() {
+			private final BitSet seen = new BitSet(graph.size());
+			private final Set<ObjectId> seenOutsideGraph = new HashSet<ObjectId>();
+			private Node[] queue = new Node[16];
+			private int queued;
+			private int olderCommitsInARow;
+			private RevCommit next;
+
+			{
+				queue[queued++] = lookup(head);
+			}
+
+			public boolean hasNext() {
+				if (next == null) {
+					next = produce();
+				}
+				return next != null;
+			}
+
+			public RevCommit next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				RevCommit commit = next;
+				next = null;
+				return commit;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+			private RevCommit produce() {
+				try {
+					while (queued > 0) {
+						Node node = queue[0];
+						System.arraycopy(queue, 1, queue, 0, --queued);
+						queue[queued] = null;
+						// as in the RevWalk, the parents are queued before the commit is filtered
+						int parentCount = queueParents(node);
+						if (cutoffInSecondsSinceEpoch > 0) {
+							if (cutoffInSecondsSinceEpoch < node.commitTime) {
+								olderCommitsInARow = 0;
+							} else if (stopAtOlderCommits && ++olderCommitsInARow >= CommitTimeCutoffFilter.OVER_SCAN) {
+								queued = 0;
+								return null;
+							} else {
+								continue;
+							}
+						}
+						boolean tagged = false;
+						if (filteredOut != null && parentCount > 1) {
+							if (!tagIndex.hasTags(idOf(node))) {
+								continue;
+							}
+							tagged = true;
+						}
+						RevCommit commit = (node.commit != null) ? node.commit : walk.lookupCommit(idOf(node));
+						walk.parseBody(commit);
+						if (tagged) {
+							commit.add(filteredOut);
+						} else if (revFilter != null && !revFilter.include(walk, commit)) {
+							if (!walk.isRetainBody()) {
+								CommitBodies.release(commit);
+							}
+							continue;
+						}
+						return commit;
+					}
+					return null;
+				} catch (IOException e) {
+					throw new IllegalStateException("Could not read the commits from the git repository", e);
+				}
+			}
+
+			private AnyObjectId idOf(Node node) {
+				if (node.commit != null) {
+					return node.commit;
+				}
+				graph.getId(node.position, id);
+				return id;
+			}
+
+			private int queueParents(Node node) throws IOException {
+				if (node.commit != null) {
+					RevCommit[] parents = node.commit.getParents();
+					for (RevCommit parent : parents) {
+						queueIfUnseen(parent);
+					}
+					return parents.length;
+				}
+				int[] parents = graph.getParents(node.position);
+				int parentCount = parents.length;
+				for (int p = 0; p < parentCount; p++) {
+					int parent = parents[p];
+					if (!seen.get(parent)) {
+						seen.set(parent);
+						queue(new Node(parent, null, graph.getCommitTime(parent)));
+					}
+				}
+				return parentCount;
+			}
+
+			private void queueIfUnseen(AnyObjectId commit) throws IOException {
+				int position = graph.find(commit);
+				if (position >= 0) {
+					if (!seen.get(position)) {
+						seen.set(position);
+						queue(new Node(position, null, graph.getCommitTime(position)));
+					}
+				} else if (seenOutsideGraph.add(commit.copy())) {
+					queue(outsideGraph(commit));
+				}
+			}
+
+			private Node lookup(AnyObjectId commit) {
+				try {
+					int position = graph.find(commit);
+					if (position >= 0) {
+						seen.set(position);
+						return new Node(position, null, graph.getCommitTime(position));
+					}
+					seenOutsideGraph.add(commit.copy());
+					return outsideGraph(commit);
+				} catch (IOException e) {
+					throw new IllegalStateException("Could not read the commits from the git repository", e);
+				}
+			}
+
+			private Node outsideGraph(AnyObjectId id) throws IOException {
+				RevCommit commit = walk.parseCommit(id);
+				return new Node(-1, commit, commit.getCommitTime());
+			}
+
+			/**
+			 * Queues the commit behind the entries that are strictly newer than it, or behind the head of the
+			 * queue, which is where the date queue of a RevWalk puts it.
+			 */
+			private void queue(Node node) {
+				if (queued == queue.length) {
+					Node[] grown = new Node[queued * 2];
+					System.arraycopy(queue, 0, grown, 0, queued);
+					queue = grown;
+				}
+				int at;
+				if (queued == 0 || node.commitTime > queue[0].commitTime) {
+					at = 0;
+				} else {
+					at = 1;
+					while (at < queued && queue[at].commitTime > node.commitTime) {
+						at++;
+					}
+				}
+				System.arraycopy(queue, at, queue, at + 1, queued - at);
+				queue[at] = node;
+				queued++;
+			}
+		};
+	}
+}
@@ -0,0 +1,61 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import org.eclipse.jgit.errors.StopWalkException;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+
+/**
+ * Accepts the commits made after a point in time, and can end the walk once it has reached the commits made
+ * before it.
+ * <p>
+ * The walk returns commits newest first, so the first commit that is too old would normally mean that all the
+ * rest are too. Commits made on machines with a wrong clock can appear out of order though, and a commit
+ * made after the point in time can be found behind any number of older ones, so ending the walk early can
+ * leave commits out of the changelog. It is only done when asked for, after several commits in a row have
+ * been too old, the same allowance JGit makes when it looks for the end of a range.
+ */
+class CommitTimeCutoffFilter extends RevFilter {
+
+	static final int OVER_SCAN = 6;
+
+	private final long cutoffInSecondsSinceEpoch;
+	private final boolean stopAtOlderCommits;
+	private int olderCommitsInARow;
+
+	/**
+	 * @param stopAtOlderCommits if true, the walk ends once it has reached the commits made before the cutoff,
+	 *            trusting the commit times to decrease along the history.
+	 */
+	CommitTimeCutoffFilter(long cutoffInSecondsSinceEpoch, boolean stopAtOlderCommits) {
+		this.cutoffInSecondsSinceEpoch = cutoffInSecondsSinceEpoch;
+		this.stopAtOlderCommits = stopAtOlderCommits;
+	}
+
+	@Override
+	public boolean include(RevWalk walker, RevCommit commit) throws StopWalkException {
+		if (cutoffInSecondsSinceEpoch < commit.getCommitTime()) {
+			olderCommitsInARow = 0;
+			return true;
+		}
+		if (stopAtOlderCommits && ++olderCommitsInARow >= OVER_SCAN) {
+			throw StopWalkException.INSTANCE;
+		}
+		return false;
+	}
+
+	@Override
+	public RevFilter clone() {
+		return new CommitTimeCutoffFilter(cutoffInSecondsSinceEpoch, stopAtOlderCommits);
+	}
+
+	@Override
+	public boolean requiresCommitBody() {
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return "COMMIT_TIME_AFTER(" + cutoffInSecondsSinceEpoch + ")";
+	}
+}
@@ -1,7 +1,6 @@
 package com.github.danielflower.mavenplugins.gitlog;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ServiceLoader;
@@ -12,21 +11,22 @@ import com.github.danielflower.mavenplugins.gitlog.filters.MavenReleasePluginMes
 import com.github.danielflower.mavenplugins.gitlog.filters.MergeCommitFilter;
 
 class Defaults {
-	public static final List<CommitFilter> DEFAULT_COMMIT_FILTERS = Arrays.asList(
-			new MavenReleasePluginMessageFilter(),
-			new MergeCommitFilter(),
-			new DuplicateCommitMessageFilter()
-	);
-	
-	public static final List<CommitFilter> COMMIT_FILTERS;
-	
-	static {
-		COMMIT_FILTERS = new ArrayList<CommitFilter>();
-		COMMIT_FILTERS.addAll(DEFAULT_COMMIT_FILTERS);
+
+	/**
+	 * Returns new instances of the default commit filters, followed by the filters registered with the
+	 * {@link ServiceLoader}. Filters do not have to be thread safe, so changelogs generated at the same time
+	 * each need instances of their own.
+	 */
+	static List<CommitFilter> commitFilters() {
+		List<CommitFilter> commitFilters = new ArrayList<CommitFilter>();
+		commitFilters.add(new MavenReleasePluginMessageFilter());
+		commitFilters.add(new MergeCommitFilter());
+		commitFilters.add(new DuplicateCommitMessageFilter());
 		
 		Iterator<CommitFilter> it = ServiceLoader.load(CommitFilter.class).iterator();
 		while (it.hasNext()){
-			COMMIT_FILTERS.add(it.next());
+			commitFilters.add(it.next());
 		}
+		return commitFilters;
 	}
 }
@@ -1,31 +1,15 @@
 package com.github.danielflower.mavenplugins.gitlog;
 
 import java.io.File;
-import java.io.IOException;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.project.MavenProject;
-
-import com.github.danielflower.mavenplugins.gitlog.filters.CommitFilter;
-import com.github.danielflower.mavenplugins.gitlog.filters.ModuleCommitFilter;
-import com.github.danielflower.mavenplugins.gitlog.renderers.ChangeLogRenderer;
-import com.github.danielflower.mavenplugins.gitlog.renderers.Formatter;
-import com.github.danielflower.mavenplugins.gitlog.renderers.GitHubIssueLinkConverter;
-import com.github.danielflower.mavenplugins.gitlog.renderers.JiraIssueLinkConverter;
-import com.github.danielflower.mavenplugins.gitlog.renderers.JsonRenderer;
-import com.github.danielflower.mavenplugins.gitlog.renderers.MarkdownRenderer;
-import com.github.danielflower.mavenplugins.gitlog.renderers.MavenLoggerRenderer;
-import com.github.danielflower.mavenplugins.gitlog.renderers.MessageConverter;
-import com.github.danielflower.mavenplugins.gitlog.renderers.NullMessageConverter;
-import com.github.danielflower.mavenplugins.gitlog.renderers.PlainTextRenderer;
-import com.github.danielflower.mavenplugins.gitlog.renderers.SimpleHtmlRenderer;
+import org.eclipse.jgit.lib.Repository;
 
 /**
  * Goal which generates a changelog based on commits made to the current git
@@ -173,6 +157,17 @@ public class GenerateMojo extends AbstractMojo {
 	 * @parameter expression="${project.issueManagement.url}"
 	 */
 	private String issueManagementUrl;
+
+	/**
+	 * More issue trackers to link to, as well as the one in issueManagement:
+	 * each element is named after the system, as issueManagementSystem is,
+	 * and holds its URL. All of them are linked in a single pass over each
+	 * message; where two trackers recognise the same reference, the
+	 * issueManagement one wins.
+	 *
+	 * @parameter
+	 */
+	private Map<String, String> issueTrackers;
 	
 	/**
 	 * @parameter expression="${project}"
@@ -193,6 +188,14 @@ public class GenerateMojo extends AbstractMojo {
 	 */
 	private String dateFormat;
 
+	/**
+	 * The ID of the time zone dates are shown in, for example "UTC" or "Europe/Paris". Defaults to the
+	 * time zone of the JVM.
+	 *
+	 * @parameter expression="${gitlog.timeZone}"
+	 */
+	private String timeZone;
+
 	/**
 	 * If true, the changelog will include the full git message rather that the
 	 * short git message
@@ -209,144 +212,257 @@ public class GenerateMojo extends AbstractMojo {
 	 */
 	private String includeCommitsAfter;
 
-	public void execute() throws MojoExecutionException, MojoFailureException {
-		getLog().info(
-				"Generating changelog in " + outputDirectory + " with title "
-						+ reportTitle);
-		File f = this.outputDirectory;
-		if (!f.exists()) {
-			f.mkdirs();
-		}
+	/**
+	 * If true, the history is only read until the commits made before includeCommitsAfter, which is faster
+	 * for a long history. A commit made after includeCommitsAfter is then left out if it is found behind
+	 * older ones, which happens when it was made on a machine whose clock was wrong.
+	 *
+	 * @parameter default-value="false" expression="${gitlog.trustCommitTimes}"
+	 */
+	private boolean trustCommitTimes;
 
-		List<ChangeLogRenderer> renderers;
-		try {
-			renderers = createRenderers();
-		} catch (IOException e) {
-			getLog().warn(
-					"Error while setting up gitlog renderers.  No changelog will be generated.",
-					e);
-			return;
-		}
-		List<CommitFilter> commitFilters = new ArrayList<CommitFilter>();
-		commitFilters.addAll(Defaults.COMMIT_FILTERS);
-//		if (this.filterOnModules && mavenProject != null) {
-//			getLog().info(
-//					"Filter on commits, to consider only the ones in given service is enabled.");
-//			commitFilters.add(new ModuleCommitFilter(mavenProject.getBasedir().getPath(), getLog()));
-//		}
-		Generator generator = new Generator(renderers,commitFilters,
-				getLog());
-
-		try {
-			generator.openRepository(project.getFile().getAbsolutePath());
-
-		} catch (IOException e) {
-			getLog().warn(
-					"Error opening git repository.  Is this Maven project hosted in a git repository? "
-							+ "No changelog will be generated.", e);
-			return;
-		} catch (NoGitRepositoryException e) {
-			getLog().warn(
-					"This maven project does not appear to be in a git repository, "
-							+ "therefore no git changelog will be generated.");
-			return;
-		}
+	/**
+	 * If true, the commits read from the git history are kept in the cache directory so that later builds
+	 * only need to read the commits made since the previous build. The cache is rebuilt automatically if
+	 * the history is rewritten, for example after a force-push.
+	 *
+	 * @parameter default-value="false" expression="${gitlog.useCache}"
+	 */
+	private boolean useCache;
 
-		if (!"".equals(dateFormat)) {
-			Formatter.setFormat(dateFormat, getLog());
-		}
+	/**
+	 * The directory the history cache is kept in, if enabled. Point this outside of the build directory to
+	 * keep the cache across clean builds.
+	 *
+	 * @parameter default-value="${project.build.directory}/gitlog-cache"
+	 *            expression="${gitlog.cacheDirectory}"
+	 */
+	private File cacheDirectory;
 
-		Date includeCommitsAfterDate = new Date(0);
-
-		try {
-			includeCommitsAfterDate = new SimpleDateFormat(dateFormat)
-					.parse(includeCommitsAfter);
-		} catch (ParseException pe) {
-			getLog().warn(
-					"Could not format date since pattern is not valid or date is not correct. Will retrieve all logs !",
-					pe);
-		} catch (IllegalArgumentException iae) {
-			getLog().warn(
-					"Could not format date since pattern is not valid or date is not correct. Will retrieve all logs !",
-					iae);
-		}
+	/**
+	 * If true, the changelog of a module that was moved from another directory also includes the commits
+	 * made before the move, on every branch that led to it. In this mode, the commits that changed the module
+	 * on a branch are included even when a merge then kept the module as it was on another branch.
+	 *
+	 * @parameter default-value="false" expression="${gitlog.followRenames}"
+	 */
+	private boolean followRenames;
 
-		try {
-			generator.generate(reportTitle, includeCommitsAfterDate);
-		} catch (IOException e) {
-			getLog().warn(
-					"Error while generating changelog.  Some changelogs may be incomplete or corrupt.",
-					e);
-		}
-	}
+	/**
+	 * The number of threads used to write the changelogs. With more than one thread, each changelog
+	 * format is written on its own thread while the history is being read, up to one thread per format.
+	 *
+	 * @parameter default-value="1" expression="${gitlog.rendererThreads}"
+	 */
+	private int rendererThreads;
 
-	private List<ChangeLogRenderer> createRenderers() throws IOException {
-		ArrayList<ChangeLogRenderer> renderers = new ArrayList<ChangeLogRenderer>();
+	/**
+	 * If true, the git history is read once for all the modules of a multi-module build, rather than once
+	 * for every module. Each module still gets exactly the commits that touched its own directory. The
+	 * history cache is not used in this mode, and it is not available together with followRenames.
+	 *
+	 * @parameter default-value="false" expression="${gitlog.singleReactorWalk}"
+	 */
+	private boolean singleReactorWalk;
 
-		if (generatePlainTextChangeLog) {
-			renderers.add(new PlainTextRenderer(getLog(), this.outputDirectory,
-					plainTextChangeLogFilename, fullGitMessage));
-		}
+	/**
+	 * The number of threads that diff the commits of a multi-module build when singleReactorWalk is set, to
+	 * find the modules each commit changed. The threads share the repository, and so the pack files and
+	 * objects it has read, while each reads them with its own object reader. Each module still generates its
+	 * own changelog, in its own execution of this goal, so the modules themselves are generated at the same
+	 * time by building them in parallel, as with <code>mvn -T 4</code>.
+	 *
+	 * @parameter default-value="1" expression="${gitlog.moduleThreads}"
+	 */
+	private int moduleThreads;
 
-		if (generateSimpleHTMLChangeLog || generateHTMLTableOnlyChangeLog
-				|| generateMarkdownChangeLog) {
-			MessageConverter messageConverter = getCommitMessageConverter();
-			if (generateSimpleHTMLChangeLog) {
-				renderers.add(new SimpleHtmlRenderer(getLog(),
-						this.outputDirectory, simpleHTMLChangeLogFilename,
-						fullGitMessage, messageConverter, false));
-			}
-			if (generateHTMLTableOnlyChangeLog) {
-				renderers.add(new SimpleHtmlRenderer(getLog(),
-						this.outputDirectory, htmlTableOnlyChangeLogFilename,
-						fullGitMessage, messageConverter, true));
-			}
-			if (generateMarkdownChangeLog) {
-				renderers.add(new MarkdownRenderer(getLog(),
-						this.outputDirectory, markdownChangeLogFilename,
-						fullGitMessage, messageConverter));
-			}
-		}
+	/**
+	 * If true, the details of each commit are only kept in memory while the changelogs are written, so that
+	 * the memory needed only grows by about 100 to 130 bytes per commit, whatever the size of the messages. This
+	 * reads each rendered commit twice, so it is slower. The history cache and singleReactorWalk are not used
+	 * in this mode, as both keep the whole history in memory.
+	 *
+	 * @parameter default-value="false" expression="${gitlog.boundedMemory}"
+	 */
+	private boolean boundedMemory;
 
-		if (generateJSONChangeLog) {
-			renderers.add(new JsonRenderer(getLog(), this.outputDirectory,
-					jsonChangeLogFilename, fullGitMessage));
-		}
+	/**
+	 * If true, and the repository has a commit-graph file (written by <code>git commit-graph write</code>, or
+	 * by <code>git gc</code> when <code>gc.writeCommitGraph</code> is set), the history is walked using the
+	 * graph, and only the commits in the changelog are read. Commits made since the graph was written are
+	 * read as usual. Module histories and ranges are always walked without the graph.
+	 *
+	 * @parameter default-value="true" expression="${gitlog.useCommitGraph}"
+	 */
+	private boolean useCommitGraph;
 
-		if (verbose) {
-			renderers.add(new MavenLoggerRenderer(getLog()));
-		}
+	/**
+	 * If true, an index of the paths each commit changed is kept in the cache directory, so that the commits
+	 * that did not change a module are found without diffing them. Building the index takes a full diff of
+	 * every commit once; later builds only add the new commits. It is used for the history of a module when
+	 * the history cache is not, and for singleReactorWalk.
+	 *
+	 * @parameter default-value="false" expression="${gitlog.useChangedPathIndex}"
+	 */
+	private boolean useChangedPathIndex;
+
+	/**
+	 * If true, a commit is left out of the changelog if any later commit has the same message, rather than
+	 * only the commit just after it.
+	 *
+	 * @parameter default-value="false" expression="${gitlog.removeDuplicatesAcrossHistory}"
+	 */
+	private boolean removeDuplicatesAcrossHistory;
+
+	/**
+	 * If true, commits making the same changes as a later commit, such as cherry-picks and back-ports to
+	 * release branches, are left out of the changelog even if their message differs. The changes are compared
+	 * by their git patch-id, which is slow to compute, so the patch-ids are kept in the cacheDirectory whether
+	 * or not useCache is set. Implies removeDuplicatesAcrossHistory.
+	 *
+	 * @parameter default-value="false" expression="${gitlog.removeCherryPicks}"
+	 */
+	private boolean removeCherryPicks;
+
+	/**
+	 * If set, the changelog only contains the commits made after this revision, which can be a tag, a
+	 * branch or a commit ID. Takes precedence over sinceTagPattern.
+	 *
+	 * @parameter expression="${gitlog.startRef}"
+	 */
+	private String startRef;
+
+	/**
+	 * The revision the changelog ends at, which can be a tag, a branch or a commit ID. Defaults to HEAD.
+	 *
+	 * @parameter expression="${gitlog.endRef}"
+	 */
+	private String endRef;
+
+	/**
+	 * If set, and startRef is not, the changelog only contains the commits made since the latest tag whose
+	 * name matches this regular expression, for example "v[0-9.]+". A tag on the end revision itself is
+	 * skipped, so that building a release tag shows the changes since the release before it.
+	 *
+	 * @parameter expression="${gitlog.sinceTagPattern}"
+	 */
+	private String sinceTagPattern;
+
+	/**
+	 * If true, the time spent on each part of generating the changelog, the number of commits read and the
+	 * size of each changelog are written as JSON to the output directory, as well as summarised in the build
+	 * log.
+	 *
+	 * @parameter default-value="false" expression="${gitlog.writeMetrics}"
+	 */
+	private boolean writeMetrics;
 
-		return renderers;
+	/**
+	 * If true, a gzipped copy of each changelog file is written next to it,
+	 * with .gz added to its name, for web servers that serve precompressed
+	 * files.
+	 *
+	 * @parameter default-value="false" expression="${gitlog.compressedCopies}"
+	 */
+	private boolean compressedCopies;
+
+	/**
+	 * If true, the changelogs are left as they are when they were generated
+	 * from the same commit, tags and configuration by the same version of
+	 * the plugin, which is checked without reading the history. A fingerprint
+	 * of these is kept in the output directory. With verbose set, the history
+	 * is still read to show the changelog in the build log.
+	 *
+	 * @parameter default-value="false" expression="${gitlog.skipWhenUnchanged}"
+	 */
+	private boolean skipWhenUnchanged;
+
+	/**
+	 * The filename of the metrics, if written.
+	 *
+	 * @parameter default-value="gitlog-metrics.json"
+	 *            expression="${gitlog.metricsFilename}"
+	 * @required
+	 */
+	private String metricsFilename;
+
+	/**
+	 * @parameter expression="${reactorProjects}"
+	 * @readonly
+	 */
+	private List<MavenProject> reactorProjects;
+
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		generate(null, null);
 	}
 
-	private MessageConverter getCommitMessageConverter() {
-		getLog().debug(
-				"Trying to load issue tracking info: " + issueManagementSystem
-						+ " / " + issueManagementUrl);
-		MessageConverter converter = null;
-		try {
-			if (issueManagementUrl != null
-					&& issueManagementUrl.contains("://")) {
-				String system = ("" + issueManagementSystem).toLowerCase();
-				if (system.contains("jira")) {
-					converter = new JiraIssueLinkConverter(getLog(),
-							issueManagementUrl);
-				} else if (system.contains("github")) {
-					converter = new GitHubIssueLinkConverter(getLog(),
-							issueManagementUrl);
-				}
+	/**
+	 * Generates the changelog of this project. If a repository is given, the project is read from it rather
+	 * than from a newly opened one. If a history cache is given, it is used instead of the one on disk, and the
+	 * project is read on its own rather than with the rest of the reactor.
+	 */
+	void generate(Repository repository, ChangeLogCache history) {
+		ChangeLogGenerator changeLog = new ChangeLogGenerator(getLog());
+		changeLog.setProjectDirectory(project.getBasedir());
+		changeLog.setOutputDirectory(outputDirectory);
+		changeLog.setReportTitle(reportTitle);
+		changeLog.setGeneratePlainTextChangeLog(generatePlainTextChangeLog);
+		changeLog.setPlainTextChangeLogFilename(plainTextChangeLogFilename);
+		changeLog.setGenerateMarkdownChangeLog(generateMarkdownChangeLog);
+		changeLog.setMarkdownChangeLogFilename(markdownChangeLogFilename);
+		changeLog.setGenerateSimpleHTMLChangeLog(generateSimpleHTMLChangeLog);
+		changeLog.setSimpleHTMLChangeLogFilename(simpleHTMLChangeLogFilename);
+		changeLog.setGenerateHTMLTableOnlyChangeLog(generateHTMLTableOnlyChangeLog);
+		changeLog.setHtmlTableOnlyChangeLogFilename(htmlTableOnlyChangeLogFilename);
+		changeLog.setGenerateJSONChangeLog(generateJSONChangeLog);
+		changeLog.setJsonChangeLogFilename(jsonChangeLogFilename);
+		changeLog.setVerbose(verbose);
+		changeLog.setIssueManagementSystem(issueManagementSystem);
+		changeLog.setIssueManagementUrl(issueManagementUrl);
+		changeLog.setIssueTrackers(issueTrackers);
+		changeLog.setDateFormat(dateFormat);
+		changeLog.setTimeZone(timeZone);
+		changeLog.setFullGitMessage(fullGitMessage);
+		changeLog.setIncludeCommitsAfter(includeCommitsAfter);
+		changeLog.setTrustCommitTimes(trustCommitTimes);
+		changeLog.setUseCache(useCache);
+		changeLog.setCacheDirectory(cacheDirectory);
+		changeLog.setFollowRenames(followRenames);
+		changeLog.setRendererThreads(rendererThreads);
+		changeLog.setModuleThreads(moduleThreads);
+		changeLog.setBoundedMemory(boundedMemory);
+		changeLog.setUseCommitGraph(useCommitGraph);
+		changeLog.setUseChangedPathIndex(useChangedPathIndex);
+		changeLog.setRemoveDuplicatesAcrossHistory(removeDuplicatesAcrossHistory);
+		changeLog.setRemoveCherryPicks(removeCherryPicks);
+		changeLog.setStartRef(startRef);
+		changeLog.setEndRef(endRef);
+		changeLog.setSinceTagPattern(sinceTagPattern);
+		changeLog.setWriteMetrics(writeMetrics);
+		changeLog.setMetricsFilename(metricsFilename);
+		changeLog.setCompressedCopies(compressedCopies);
+		changeLog.setSkipWhenUnchanged(skipWhenUnchanged);
+		changeLog.setRepository(repository);
+		changeLog.setHistory(history);
+		if (history == null && singleReactorWalk && reactorProjects != null && reactorProjects.size() > 1) {
+			List<String> reactorPoms = new ArrayList<String>();
+			for (MavenProject reactorProject : reactorProjects) {
+				reactorPoms.add(reactorProject.getFile().getAbsolutePath());
 			}
-		} catch (Exception ex) {
-			getLog().warn(
-					"Could not load issue management system information; no HTML links will be generated.",
-					ex);
+			changeLog.setReactorPoms(reactorPoms);
 		}
-		if (converter == null) {
-			converter = new NullMessageConverter();
+		changeLog.generate();
+	}
+
+	/**
+	 * Returns a history cache to keep in memory between changelogs, which starts from the cache on disk if
+	 * the cache is used.
+	 */
+	ChangeLogCache newHistoryInMemory() {
+		if (boundedMemory) {
+			getLog().warn("The history is not kept between changelogs when boundedMemory is set.");
 		}
-		getLog().debug("Using tracker " + converter.getClass().getSimpleName());
-		return converter;
+		return ChangeLogCache.inMemory(useCache ? cacheDirectory : null, getLog());
 	}
 
 }
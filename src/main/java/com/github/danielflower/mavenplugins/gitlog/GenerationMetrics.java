@@ -0,0 +1,165 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Where the time of a changelog run went: the wall time of each phase, the time spent in each commit filter
+ * and renderer, the number of commits walked and rendered, and the size of each file written.
+ * <p>
+ * Walking the history is lazy, so the walk, filter and render phases are interleaved; the time of each is
+ * the sum of the time spent in it for every commit. The commit filters evaluated by the walk itself are part
+ * of the walk time. When the changelogs are written on several threads, the time of the renderers is the
+ * time taken to hand the commits over to them, and to wait for them at the end.
+ */
+class GenerationMetrics {
+
+	static final int OPEN = 0;
+	static final int WALK = 1;
+	static final int TAGS = 2;
+	static final int FILTER = 3;
+	static final int RENDER = 4;
+	static final int CACHE = 5;
+	private static final String[] PHASES = {"open", "walk", "tags", "filter", "render", "cache"};
+
+	// added to for every commit, so kept in an array rather than a map of boxed totals
+	private final long[] phaseNanos = new long[PHASES.length];
+	private final Map<String, Long> filterNanos = new LinkedHashMap<String, Long>();
+	private final Map<String, Long> rendererNanos = new LinkedHashMap<String, Long>();
+	private final Map<String, Long> outputBytes = new LinkedHashMap<String, Long>();
+	private long commitsWalked;
+	private long commitsRendered;
+
+	void addPhase(int phase, long nanos) {
+		phaseNanos[phase] += nanos;
+	}
+
+	void addFilter(String filter, long nanos) {
+		add(filterNanos, filter, nanos);
+	}
+
+	void addRenderer(String renderer, long nanos) {
+		add(rendererNanos, renderer, nanos);
+	}
+
+	void addOutput(File file) {
+		outputBytes.put(file.getName(), file.length());
+	}
+
+	void commitWalked() {
+		commitsWalked++;
+	}
+
+	void commitRendered() {
+		commitsRendered++;
+	}
+
+	private static void add(Map<String, Long> totals, String key, long nanos) {
+		Long total = totals.get(key);
+		totals.put(key, (total == null) ? nanos : total + nanos);
+	}
+
+	long getPhaseNanos(int phase) {
+		return phaseNanos[phase];
+	}
+
+	Map<String, Long> getFilterNanos() {
+		return filterNanos;
+	}
+
+	Map<String, Long> getRendererNanos() {
+		return rendererNanos;
+	}
+
+	Map<String, Long> getOutputBytes() {
+		return outputBytes;
+	}
+
+	long getCommitsWalked() {
+		return commitsWalked;
+	}
+
+	long getCommitsRendered() {
+		return commitsRendered;
+	}
+
+	long getTotalNanos() {
+		long total = 0;
+		for (long nanos : phaseNanos) {
+			total += nanos;
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the metrics on one line, for example
+	 * <code>Changelog generated in 812ms (open 12ms, walk 401ms, ...): 10000 commits walked, 9214 rendered, 1843210 bytes written to 4 files</code>
+	 */
+	String toSummary() {
+		StringBuilder summary = new StringBuilder("Changelog generated in ").append(millis(getTotalNanos())).append("ms (");
+		String separator = "";
+		for (int phase = 0; phase < PHASES.length; phase++) {
+			summary.append(separator).append(PHASES[phase]).append(' ').append(millis(phaseNanos[phase])).append("ms");
+			separator = ", ";
+		}
+		long bytes = 0;
+		for (long fileBytes : outputBytes.values()) {
+			bytes += fileBytes;
+		}
+		return summary.append("): ").append(commitsWalked).append(" commits walked, ").append(commitsRendered)
+				.append(" rendered, ").append(bytes).append(" bytes written to ").append(outputBytes.size())
+				.append(outputBytes.size() == 1 ? " file" : " files").toString();
+	}
+
+	/**
+	 * Writes the metrics as a JSON object, with times in milliseconds.
+	 */
+	void writeJson(File file) throws IOException {
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			writer.write("{\n");
+			writer.write("  \"totalMillis\": " + millis(getTotalNanos()) + ",\n");
+			writer.write("  \"commitsWalked\": " + commitsWalked + ",\n");
+			writer.write("  \"commitsRendered\": " + commitsRendered + ",\n");
+			Map<String, Long> phases = new LinkedHashMap<String, Long>();
+			for (int phase = 0; phase < PHASES.length; phase++) {
+				phases.put(PHASES[phase], phaseNanos[phase]);
+			}
+			writeObject(writer, "phaseMillis", phases, true);
+			writer.write(",\n");
+			writeObject(writer, "filterMillis", filterNanos, true);
+			writer.write(",\n");
+			writeObject(writer, "rendererMillis", rendererNanos, true);
+			writer.write(",\n");
+			writeObject(writer, "outputBytes", outputBytes, false);
+			writer.write("\n}\n");
+		} finally {
+			writer.close();
+		}
+	}
+
+	private static void writeObject(Writer writer, String name, Map<String, Long> values, boolean nanos)
+			throws IOException {
+		writer.write("  " + quote(name) + ": {");
+		String separator = "\n";
+		for (Map.Entry<String, Long> value : values.entrySet()) {
+			writer.write(separator + "    " + quote(value.getKey()) + ": "
+					+ (nanos ? millis(value.getValue()) : value.getValue()));
+			separator = ",\n";
+		}
+		writer.write(values.isEmpty() ? "}" : "\n  }");
+	}
+
+	private static String quote(String value) {
+		return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+	}
+
+	private static long millis(long nanos) {
+		return nanos / 1000000;
+	}
+}
@@ -1,154 +1,715 @@
-
 package com.github.danielflower.mavenplugins.gitlog;
 
+import com.github.danielflower.mavenplugins.gitlog.filters.ChangedPathIndex;
 import com.github.danielflower.mavenplugins.gitlog.filters.CommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.MergeCommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.ModuleCommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.RevCommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.WalkCommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.renderers.ChangeLogEntry;
+import com.github.danielflower.mavenplugins.gitlog.renderers.ChangeLogEntryFactory;
+import com.github.danielflower.mavenplugins.gitlog.renderers.ChangeLogEntryRenderer;
 import com.github.danielflower.mavenplugins.gitlog.renderers.ChangeLogRenderer;
+import com.github.danielflower.mavenplugins.gitlog.renderers.ChangeLogRendererAdapter;
+import com.github.danielflower.mavenplugins.gitlog.renderers.DateFormatter;
+import com.github.danielflower.mavenplugins.gitlog.renderers.FileRenderer;
+import com.github.danielflower.mavenplugins.gitlog.renderers.Formatter;
+import com.github.danielflower.mavenplugins.gitlog.renderers.ParallelRenderer;
 
 import org.apache.maven.plugin.logging.Log;
-import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.errors.GitAPIException;
-import org.eclipse.jgit.api.errors.NoHeadException;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.RepositoryBuilder;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
 import org.eclipse.jgit.revwalk.RevTag;
 import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.AndRevFilter;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 class Generator {
 
-	private final List<ChangeLogRenderer> renderers;
+	private final List<ChangeLogEntryRenderer> renderers = new ArrayList<ChangeLogEntryRenderer>();
+	private final List<String> rendererNames = new ArrayList<String>();
+	private final GenerationMetrics metrics = new GenerationMetrics();
 	private RevWalk walk;
+	private Iterable<RevCommit> commits;
 	private Repository repository;
-	private Map<String, List<RevTag>> commitIDToTagsMap;
-	private final List<CommitFilter> commitFilters;
+	private TagIndex tagIndex;
+	private List<CommitFilter> commitFilters;
 	private final Log log;
+	private ChangeLogCache cache;
+	private boolean followRenames;
+	private boolean trustCommitTimes;
+	private int rendererThreads = 1;
+	private boolean fullGitMessage = true;
+	private DateFormatter dateFormatter;
+	private String startRevision;
+	private String endRevision;
+	private Pattern sinceTagPattern;
+	private boolean cacheOutOfDate;
+	private String cacheKey;
+	private ObjectId cachedTip;
+	private List<RevCommit> cachedHistory;
+	private long[] filterNanos;
+	private RevFlag filteredOut;
+	private boolean boundedMemory;
+	private boolean useCommitGraph = true;
+	private CommitGraphWalk graphWalk;
+	private ChangedPathIndex changedPaths;
 
 	public Generator(List<ChangeLogRenderer> renderers, List<CommitFilter> commitFilters, Log log) {
-		this.renderers = renderers;
+		for (ChangeLogRenderer renderer : renderers) {
+			this.renderers.add(ChangeLogRendererAdapter.adapt(renderer));
+			this.rendererNames.add(nameOf(renderer));
+		}
 		this.commitFilters = (commitFilters == null) ? new ArrayList<CommitFilter>() : commitFilters;
 		this.log = log;
 	}
 
+	/**
+	 * Keeps a copy of the walked history in the given directory so that subsequent runs only need to walk
+	 * the commits made since the previous run. Must be called before the repository is opened.
+	 */
+	public void setCacheDirectory(File cacheDirectory) {
+		this.cache = (cacheDirectory == null) ? null : new ChangeLogCache(cacheDirectory, log);
+	}
+
+	/**
+	 * Uses the given history cache, which can be one kept in memory from one run to the next. Must be called
+	 * before the repository is opened.
+	 */
+	void setCache(ChangeLogCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Sets the number of threads the renderers run on. With more than one thread, each renderer is given
+	 * the changelog through a queue and renders it on a worker thread while the history is being walked.
+	 */
+	public void setRendererThreads(int rendererThreads) {
+		this.rendererThreads = rendererThreads;
+	}
+
+	/**
+	 * Sets whether any of the renderers shows the full message of the commits. When none does, only the
+	 * short messages are read from the commits for the changelog.
+	 */
+	public void setFullGitMessage(boolean fullGitMessage) {
+		this.fullGitMessage = fullGitMessage;
+	}
+
+	/**
+	 * Sets how the dates of the commits are shown in the changelogs. Without one, the format set on
+	 * {@link Formatter} is used.
+	 */
+	public void setDateFormatter(DateFormatter dateFormatter) {
+		this.dateFormatter = dateFormatter;
+	}
+
+	/**
+	 * Limits the changelog to the commits reachable from the end revision that are not reachable from the
+	 * start revision. Either can be null: without a start revision the whole history is shown, and without
+	 * an end revision it ends at HEAD. Must be called before the repository is opened.
+	 */
+	public void setRange(String startRevision, String endRevision) {
+		this.startRevision = isEmpty(startRevision) ? null : startRevision;
+		this.endRevision = isEmpty(endRevision) ? null : endRevision;
+	}
+
+	/**
+	 * Starts the changelog after the latest tag, other than one on the end revision itself, whose name
+	 * matches the given pattern. Ignored if a start revision is set. Must be called before the repository
+	 * is opened.
+	 */
+	public void setSinceTagPattern(Pattern sinceTagPattern) {
+		this.sinceTagPattern = sinceTagPattern;
+	}
+
+	/**
+	 * If true, the walk does not keep the message and identities of the commits it has read, so that the
+	 * memory used only grows by the 100 to 130 bytes per commit the walk needs to find the parents of the
+	 * commits, however long their messages are. Each commit is read again when it reaches the renderers, and
+	 * released once they have rendered it, so commit filters must not keep the commits they are given. The
+	 * history cache is not used in this mode. Must be called before the repository is opened.
+	 */
+	public void setBoundedMemory(boolean boundedMemory) {
+		this.boundedMemory = boundedMemory;
+	}
+
+	/**
+	 * If true, the history is walked using the commit-graph file git keeps in the repository, when there
+	 * is one, so that only the commits that are rendered are read. It is not used for the history of a
+	 * module, nor for a range. Must be called before the repository is opened.
+	 */
+	public void setUseCommitGraph(boolean useCommitGraph) {
+		this.useCommitGraph = useCommitGraph;
+	}
+
+	/**
+	 * Finds the commits that did not change the module with the given index rather than by diffing them.
+	 * The history of the module is then read with a walk of the whole history, as for a reactor, since a
+	 * RevWalk diffs every commit itself. The index is not used with the history cache, with boundedMemory,
+	 * with a range, or when following renames. Must be called before the repository is opened.
+	 */
+	public void setChangedPathIndex(ChangedPathIndex changedPaths) {
+		this.changedPaths = changedPaths;
+	}
+
+	boolean hasRange() {
+		return startRevision != null || endRevision != null || sinceTagPattern != null;
+	}
+
+	private static boolean isEmpty(String value) {
+		return value == null || value.length() == 0;
+	}
+
+	/**
+	 * If true, the history of a module that was moved to its current directory includes the commits made
+	 * in its previous directory. Must be called before the repository is opened.
+	 */
+	public void setFollowRenames(boolean followRenames) {
+		this.followRenames = followRenames;
+	}
+
+	/**
+	 * If true, the walk stops once it reaches the commits made before the date given to
+	 * {@link #generate(String, Date)}, rather than reading the rest of the history. Commits made after that
+	 * date but found behind older ones, because of a wrong clock, are then left out.
+	 */
+	public void setTrustCommitTimes(boolean trustCommitTimes) {
+		this.trustCommitTimes = trustCommitTimes;
+	}
+
+	/**
+	 * Returns what the time of this run was spent on, complete once {@link #generate(String, Date)} returns.
+	 */
+	GenerationMetrics getMetrics() {
+		return metrics;
+	}
+
+	private static String nameOf(CommitFilter filter) {
+		String name = filter.getClass().getSimpleName();
+		// anonymous filters have no simple name
+		return (name.length() == 0) ? filter.getClass().getName() : name;
+	}
+
+	private static String nameOf(ChangeLogRenderer renderer) {
+		String name = renderer.getClass().getSimpleName();
+		if (renderer instanceof FileRenderer) {
+			// there can be more than one renderer of a kind, writing different files
+			name += " " + ((FileRenderer) renderer).getFile().getName();
+		}
+		return name;
+	}
+
 	public void openRepository(String pomPath) throws IOException, NoGitRepositoryException {
 		log.debug("About to open git repository.");
+		long started = System.nanoTime();
+		Repository repository = findRepository();
+		log.debug("Opened " + repository + ". About to load the commits.");
+		String module = null;
+		if (pomPath != null && !pomPath.isEmpty()) {
+			//get the path of the current module to get only its history instead of having the whole history log
+			module = modulePath(repository, pomPath);
+			log.info("module -> " + module);
+		}
+		metrics.addPhase(GenerationMetrics.OPEN, System.nanoTime() - started);
+		openRepository(repository, module);
+	}
+
+	static Repository findRepository() throws IOException, NoGitRepositoryException {
 		try {
-			repository = new RepositoryBuilder().findGitDir().build();
+			return new RepositoryBuilder().findGitDir().build();
 		} catch (IllegalArgumentException iae) {
 			throw new NoGitRepositoryException();
 		}
-		log.debug("Opened " + repository + ". About to load the commits.");
-		if(!pomPath.isEmpty()){
-			Git repo = new Git(repository);
-			try {
-				//get the path of the current module to get only its history instead of having the whole history log
-				String workTreePath = repository.getWorkTree().getAbsolutePath();
-				String module = pomPath.substring(workTreePath.length(),pomPath.indexOf("pom.xml"));			
-				module = module.substring(1, module.length()-1).replaceAll("\\\\", "/");
-				log.info("module -> " + module);
-				walk = (RevWalk) repo.log().addPath(module).call();
-			} catch (NoHeadException e) {
-				log.error("No HEAD are found " + e.getMessage());
-			} catch (GitAPIException e) {
-				log.error("Error occured with Git API " + e.getMessage());
-			}
-		} else{
-			walk = createWalk(repository);
+	}
+
+	/**
+	 * Opens the repository the given directory is in.
+	 */
+	static Repository findRepository(File directory) throws IOException, NoGitRepositoryException {
+		try {
+			return new RepositoryBuilder().findGitDir(directory).build();
+		} catch (IllegalArgumentException iae) {
+			throw new NoGitRepositoryException();
+		}
+	}
+
+	/**
+	 * Returns the path of the module containing the given pom relative to the root of the work tree, using
+	 * forward slashes. The pom at the root of the work tree gives an empty path.
+	 */
+	static String modulePath(Repository repository, String pomPath) {
+		String workTreePath = repository.getWorkTree().getAbsolutePath();
+		String module = pomPath.substring(workTreePath.length(), pomPath.indexOf("pom.xml"));
+		module = module.replaceAll("\\\\", "/");
+		if (module.startsWith("/")) {
+			module = module.substring(1);
+		}
+		if (module.endsWith("/")) {
+			module = module.substring(0, module.length() - 1);
+		}
+		return module;
+	}
+
+	/**
+	 * Uses the history of a module taken from a walk shared by the whole reactor instead of walking the
+	 * repository again.
+	 */
+	void useReactorHistory(ReactorHistory history, String module) throws IOException {
+		ReactorHistory.ModuleHistory moduleHistory = history.take(module);
+		this.repository = history.getRepository();
+		commits = moduleHistory.commits;
+		commitFilters = moduleHistory.adapt(commitFilters);
+		tagIndex = history.getTagIndex();
+	}
+
+	void openRepository(Repository repository, String module) throws IOException {
+		long started = System.nanoTime();
+		if (changedPaths != null && module != null && module.length() > 0 && cache == null && !boundedMemory
+				&& !followRenames && !hasRange()) {
+			log.debug("Reading the history of " + module + " with the changed path index");
+			useReactorHistory(new ReactorHistory(repository, Collections.singletonList(module), changedPaths, log), module);
+			metrics.addPhase(GenerationMetrics.WALK, System.nanoTime() - started);
+			return;
+		}
+		this.repository = repository;
+		walk = new RevWalk(repository);
+		walk.setRetainBody(!boundedMemory);
+		StringBuilder cacheKey = new StringBuilder("module:").append(module == null ? "" : module);
+		if (module != null && module.length() > 0) {
+			ModuleCommitFilter.forModulePath(module, log, followRenames).applyTo(walk, repository);
+			cacheKey.append(followRenames ? ";followRenames" : "");
+		}
+		List<CommitFilter> remainingFilters = new ArrayList<CommitFilter>();
+		for (CommitFilter commitFilter : commitFilters) {
+			// only one filter can own the tree and revision filters of the walk; the others run afterwards
+			if (commitFilter instanceof WalkCommitFilter
+					&& walk.getTreeFilter() == TreeFilter.ALL && walk.getRevFilter() == RevFilter.ALL) {
+				((WalkCommitFilter) commitFilter).applyTo(walk, repository);
+				cacheKey.append(';').append(commitFilter);
+				log.debug("Applied " + commitFilter + " to the walk");
+			} else {
+				remainingFilters.add(commitFilter);
+			}
+		}
+		commitFilters = remainingFilters;
+		ObjectId head = resolve(repository, endRevision == null ? Constants.HEAD : endRevision, endRevision != null);
+		ObjectId start = null;
+		if (head != null) {
+			if (startRevision != null) {
+				start = resolve(repository, startRevision, true);
+			} else if (sinceTagPattern != null) {
+				start = findLatestTag(repository, head);
+			}
+		}
+		List<RevCommit> history = null;
+		if (head == null) {
+			// if head is null, it means there are no commits in the repository.  The walk will be empty.
+			commits = Collections.emptyList();
+		} else if (cache == null || start != null || boundedMemory) {
+			// the older history is never read, so a range has nothing to gain from the cache, and the cache
+			// keeps the whole history in memory
+			CommitGraph graph = (useCommitGraph && start == null && walk.getTreeFilter() == TreeFilter.ALL
+					&& walk.getRevFilter() == RevFilter.ALL) ? CommitGraph.open(repository, log) : null;
+			if (graph != null) {
+				log.debug("Walking the history with the commit-graph of " + graph.size() + " commits");
+				graphWalk = new CommitGraphWalk(graph, walk, head);
+				commits = graphWalk;
+			} else {
+				walk.markStart(walk.parseCommit(head));
+				if (start != null) {
+					walk.markUninteresting(walk.parseCommit(start));
+				}
+				commits = walk;
+			}
+		} else {
+			history = walkSinceCachedTip(head, cacheKey.toString());
+			commits = history;
 		}
 		log.debug("Loaded commits. about to load the tags.");
-		commitIDToTagsMap = createCommitIDToTagsMap(repository, walk);
-		log.debug("Loaded tag map: " + commitIDToTagsMap);
+		long tagsStarted = System.nanoTime();
+		metrics.addPhase(GenerationMetrics.WALK, tagsStarted - started);
+		tagIndex = new TagIndex(repository, history == null ? null : cache, log);
+		metrics.addPhase(GenerationMetrics.TAGS, System.nanoTime() - tagsStarted);
+		log.debug("Loaded tag map: " + tagIndex);
+		if (commits == walk) {
+			evaluateFiltersInWalk();
+		} else if (commits == graphWalk) {
+			evaluateFiltersInGraph();
+		}
+		if (history != null) {
+			// the cache is written once the tags that are rendered have been read
+			this.cacheKey = cacheKey.toString();
+			this.cachedTip = head;
+			this.cachedHistory = history;
+		}
+	}
+
+	/**
+	 * Moves the leading commit filters that can be expressed as a {@link RevFilter} into the walk, combined
+	 * into a single filter, so that the commits they reject are never handed to the render loop. The filters
+	 * after the first one that cannot be moved still run afterwards, in order, and see the same commits as
+	 * before.
+	 */
+	private void evaluateFiltersInWalk() {
+		List<RevFilter> revFilters = leadingRevFilters();
+		if (revFilters.isEmpty()) {
+			return;
+		}
+		RevFilter combined = combine(revFilters);
+		filteredOut = walk.newFlag("FILTERED_OUT");
+		RevFilter keepTagged = new KeepTaggedRevFilter(combined, tagIndex, filteredOut);
+		RevFilter revFilter = walk.getRevFilter();
+		walk.setRevFilter(revFilter == RevFilter.ALL ? keepTagged : AndRevFilter.create(revFilter, keepTagged));
+		commitFilters = new ArrayList<CommitFilter>(commitFilters.subList(revFilters.size(), commitFilters.size()));
+		log.debug("Evaluating " + combined + " in the walk");
+	}
+
+	/**
+	 * As {@link #evaluateFiltersInWalk()}, for the commit-graph walk. The graph knows how many parents each
+	 * commit has, so a {@link MergeCommitFilter} among the leading filters leaves the merges out before they
+	 * are read. Those filters do not depend on the commits they have seen, so their order does not matter.
+	 */
+	private void evaluateFiltersInGraph() {
+		List<RevFilter> revFilters = leadingRevFilters();
+		if (revFilters.isEmpty()) {
+			return;
+		}
+		filteredOut = walk.newFlag("FILTERED_OUT");
+		List<RevFilter> afterRead = new ArrayList<RevFilter>();
+		for (int f = 0; f < revFilters.size(); f++) {
+			if (commitFilters.get(f) instanceof MergeCommitFilter) {
+				graphWalk.skipMerges(tagIndex, filteredOut);
+				log.debug("Leaving the merges out of the commit-graph walk");
+			} else {
+				afterRead.add(revFilters.get(f));
+			}
+		}
+		if (!afterRead.isEmpty()) {
+			RevFilter combined = combine(afterRead);
+			graphWalk.setRevFilter(new KeepTaggedRevFilter(combined, tagIndex, filteredOut));
+			log.debug("Evaluating " + combined + " in the commit-graph walk");
+		}
+		commitFilters = new ArrayList<CommitFilter>(commitFilters.subList(revFilters.size(), commitFilters.size()));
+	}
+
+	/**
+	 * Returns the filters of the leading commit filters that can be expressed as a {@link RevFilter}.
+	 */
+	private List<RevFilter> leadingRevFilters() {
+		List<RevFilter> revFilters = new ArrayList<RevFilter>();
+		for (CommitFilter commitFilter : commitFilters) {
+			RevFilter revFilter = (commitFilter instanceof RevCommitFilter)
+					? ((RevCommitFilter) commitFilter).toRevFilter(walk) : null;
+			if (revFilter == null) {
+				break;
+			}
+			revFilters.add(revFilter);
+		}
+		return revFilters;
+	}
+
+	private static RevFilter combine(List<RevFilter> revFilters) {
+		return (revFilters.size() == 1) ? revFilters.get(0)
+				: AndRevFilter.create(revFilters.toArray(new RevFilter[revFilters.size()]));
+	}
+
+	private static ObjectId resolve(Repository repository, String revision, boolean required) throws IOException {
+		ObjectId id = repository.resolve(revision);
+		if (id == null && required) {
+			throw new IOException("Could not find the revision '" + revision + "' in the git repository");
+		}
+		return id;
+	}
+
+	/**
+	 * Walks back from the given commit to the first commit with a tag matching the since-tag pattern,
+	 * returning null if there is none.
+	 */
+	private ObjectId findLatestTag(Repository repository, ObjectId head) throws IOException {
+		Map<ObjectId, String> taggedCommits = new HashMap<ObjectId, String>();
+		for (Map.Entry<String, Ref> tag : repository.getTags().entrySet()) {
+			if (sinceTagPattern.matcher(tag.getKey()).matches()) {
+				Ref peeled = repository.peel(tag.getValue());
+				ObjectId target = peeled.getPeeledObjectId() != null ? peeled.getPeeledObjectId() : peeled.getObjectId();
+				taggedCommits.put(target, tag.getKey());
+			}
+		}
+		if (taggedCommits.isEmpty()) {
+			log.info("No tag matches " + sinceTagPattern + ". The changelog contains the whole history.");
+			return null;
+		}
+		RevWalk tagWalk = new RevWalk(repository);
+		try {
+			tagWalk.setRetainBody(false);
+			tagWalk.markStart(tagWalk.parseCommit(head));
+			for (RevCommit commit : tagWalk) {
+				String tagName = taggedCommits.get(commit);
+				if (tagName != null && !commit.equals(head)) {
+					log.info("Generating the changelog since the tag " + tagName);
+					return commit.copy();
+				}
+			}
+		} finally {
+			tagWalk.release();
+		}
+		log.info("No tag matching " + sinceTagPattern + " was found in the history. The changelog contains the whole history.");
+		return null;
 	}
 
 	public void generate(String reportTitle) throws IOException {
 		generate(reportTitle, new Date(0l));
 	}
-	
+
 	public void generate(String reportTitle, Date includeCommitsAfter) throws IOException {
-		for (ChangeLogRenderer renderer : renderers) {
-			renderer.renderHeader(reportTitle);
+		List<ChangeLogEntryRenderer> renderers = this.renderers;
+		List<String> rendererNames = this.rendererNames;
+		if (rendererThreads > 1 && renderers.size() > 1) {
+			renderers = Collections.<ChangeLogEntryRenderer>singletonList(
+					new ParallelRenderer(new ArrayList<ChangeLogRenderer>(renderers), rendererThreads, log));
+			rendererNames = Collections.singletonList(ParallelRenderer.class.getSimpleName());
 		}
-
+		ChangeLogEntryFactory entryFactory = (dateFormatter == null) ? new ChangeLogEntryFactory()
+				: new ChangeLogEntryFactory(dateFormatter);
+		entryFactory.setFullMessages(fullGitMessage);
+		entryFactory.setKeepCommits(hasAdaptedRenderer());
 		long dateInSecondsSinceEpoch = includeCommitsAfter.getTime() / 1000;
-		for (RevCommit commit : walk) {
-			int commitTimeInSecondsSinceEpoch = commit.getCommitTime();
-			if (dateInSecondsSinceEpoch < commitTimeInSecondsSinceEpoch) {
-				List<RevTag> revTags = commitIDToTagsMap.get(commit.name());
-				for (ChangeLogRenderer renderer : renderers) {
+		if (commits == walk && dateInSecondsSinceEpoch > 0) {
+			// the walk has not started yet, so it can stop by itself instead of reading the older history
+			RevFilter cutoff = new CommitTimeCutoffFilter(dateInSecondsSinceEpoch, trustCommitTimes);
+			RevFilter revFilter = walk.getRevFilter();
+			walk.setRevFilter(revFilter == RevFilter.ALL ? cutoff : AndRevFilter.create(cutoff, revFilter));
+		} else if (commits == graphWalk && dateInSecondsSinceEpoch > 0) {
+			graphWalk.setCutoff(dateInSecondsSinceEpoch, trustCommitTimes);
+		}
+		// renderers adapted from ChangeLogRenderer read the commit itself, which they may do on another thread
+		boolean releaseBodies = boundedMemory && (commits == walk || commits == graphWalk)
+				&& (renderers == this.renderers || !hasAdaptedRenderer());
+		if (boundedMemory && !CommitBodies.canRelease()) {
+			log.warn("The commits cannot be released once rendered with this version of JGit. "
+					+ "The memory used will grow with the size of the history.");
+		}
+		long[] rendererNanos = new long[renderers.size()];
+		filterNanos = new long[commitFilters.size()];
+		long started;
+		boolean rendered = false;
+		try {
+			started = System.nanoTime();
+			for (int r = 0; r < renderers.size(); r++) {
+				long rendererStarted = System.nanoTime();
+				renderers.get(r).renderHeader(reportTitle);
+				rendererNanos[r] += System.nanoTime() - rendererStarted;
+			}
+			metrics.addPhase(GenerationMetrics.RENDER, System.nanoTime() - started);
+
+			started = System.nanoTime();
+			Iterator<RevCommit> iterator = commits.iterator();
+			while (iterator.hasNext()) {
+				RevCommit commit = iterator.next();
+				long walked = System.nanoTime();
+				metrics.addPhase(GenerationMetrics.WALK, walked - started);
+				metrics.commitWalked();
+				int commitTimeInSecondsSinceEpoch = commit.getCommitTime();
+				if (dateInSecondsSinceEpoch < commitTimeInSecondsSinceEpoch) {
+					if (walk != null && commit.getRawBuffer() == null) {
+						// the walk did not keep the body, so the commit is read again now that it is rendered
+						walk.parseBody(commit);
+					}
+					List<RevTag> revTags = tagIndex.getTags(commit);
+					long tagged = System.nanoTime();
+					metrics.addPhase(GenerationMetrics.TAGS, tagged - walked);
 					if (revTags != null) {
-						for (RevTag revTag : revTags) {
-							renderer.renderTag(revTag);
+						for (int r = 0; r < renderers.size(); r++) {
+							long rendererStarted = System.nanoTime();
+							for (RevTag revTag : revTags) {
+								renderers.get(r).renderTag(revTag);
+							}
+							rendererNanos[r] += System.nanoTime() - rendererStarted;
 						}
 					}
-				}
-				if (show(commit)) {
-					for (ChangeLogRenderer renderer : renderers) {
-						renderer.renderCommit(commit);
+					// a commit rejected by the walk's filter is only produced for its tags
+					boolean show = (filteredOut == null || !commit.has(filteredOut)) && show(commit);
+					long filtered = System.nanoTime();
+					metrics.addPhase(GenerationMetrics.FILTER, filtered - tagged);
+					if (show) {
+						// read the commit once for all of the renderers
+						ChangeLogEntry entry = entryFactory.create(commit, revTags);
+						for (int r = 0; r < renderers.size(); r++) {
+							long rendererStarted = System.nanoTime();
+							renderers.get(r).renderEntry(entry);
+							rendererNanos[r] += System.nanoTime() - rendererStarted;
+						}
+						metrics.commitRendered();
+					}
+					if (releaseBodies) {
+						CommitBodies.release(commit);
 					}
+					started = System.nanoTime();
+					metrics.addPhase(GenerationMetrics.RENDER, started - filtered);
+				} else {
+					started = walked;
+				}
+			}
+			metrics.addPhase(GenerationMetrics.WALK, System.nanoTime() - started);
+
+			started = System.nanoTime();
+			for (int r = 0; r < renderers.size(); r++) {
+				long rendererStarted = System.nanoTime();
+				renderers.get(r).renderFooter();
+				rendererNanos[r] += System.nanoTime() - rendererStarted;
+			}
+			rendered = true;
+			metrics.addPhase(GenerationMetrics.RENDER, System.nanoTime() - started);
+			if (cachedHistory != null && (cacheOutOfDate || tagIndex.isCacheOutOfDate())) {
+				started = System.nanoTime();
+				cache.save(cacheKey, cachedTip, cachedHistory, tagIndex.getTagBuffers());
+				metrics.addPhase(GenerationMetrics.CACHE, System.nanoTime() - started);
+			}
+		} finally {
+			started = System.nanoTime();
+			for (int r = 0; r < renderers.size(); r++) {
+				long rendererStarted = System.nanoTime();
+				if (!rendered) {
+					// a changelog cut short by a failure is not worth replacing the last complete one with
+					abort(renderers.get(r));
+				}
+				renderers.get(r).close();
+				rendererNanos[r] += System.nanoTime() - rendererStarted;
+				metrics.addRenderer(rendererNames.get(r), rendererNanos[r]);
+			}
+			metrics.addPhase(GenerationMetrics.RENDER, System.nanoTime() - started);
+			if (walk != null) {
+				walk.dispose();
+			}
+		}
+		for (int f = 0; f < commitFilters.size(); f++) {
+			metrics.addFilter(nameOf(commitFilters.get(f)), filterNanos[f]);
+		}
+		for (ChangeLogEntryRenderer renderer : this.renderers) {
+			if (renderer instanceof FileRenderer) {
+				metrics.addOutput(((FileRenderer) renderer).getFile());
+				if (((FileRenderer) renderer).getCompressedFile() != null) {
+					metrics.addOutput(((FileRenderer) renderer).getCompressedFile());
 				}
 			}
 		}
-		walk.dispose();
+		log.info(metrics.toSummary());
+	}
 
+	private static void abort(ChangeLogEntryRenderer renderer) {
+		if (renderer instanceof FileRenderer) {
+			((FileRenderer) renderer).abort();
+		} else if (renderer instanceof ParallelRenderer) {
+			((ParallelRenderer) renderer).abort();
+		}
+	}
 
-		for (ChangeLogRenderer renderer : renderers) {
-			renderer.renderFooter();
-			renderer.close();
+	private boolean hasAdaptedRenderer() {
+		for (ChangeLogEntryRenderer renderer : renderers) {
+			if (renderer instanceof ChangeLogRendererAdapter) {
+				return true;
+			}
 		}
+		return false;
 	}
 
 	private boolean show(RevCommit commit) {
-		for (CommitFilter commitFilter : commitFilters) {
-			if (!commitFilter.renderCommit(commit, repository)) {
-				log.debug("Commit filtered out by " + commitFilter.getClass().getSimpleName());
+		for (int f = 0; f < commitFilters.size(); f++) {
+			CommitFilter commitFilter = commitFilters.get(f);
+			long started = System.nanoTime();
+			boolean render = commitFilter.renderCommit(commit, repository);
+			filterNanos[f] += System.nanoTime() - started;
+			if (!render) {
+				log.debug("Commit filtered out by " + nameOf(commitFilter));
 				return false;
 			}
 		}
 		return true;
 	}
 
-	private static RevWalk createWalk(Repository repository) throws IOException {
-		RevWalk walk = new RevWalk(repository);
-		ObjectId head = repository.resolve("HEAD");
-		if (head != null) {
-			// if head is null, it means there are no commits in the repository.  The walk will be empty.
-			RevCommit mostRecentCommit = walk.parseCommit(head);
-			walk.markStart(mostRecentCommit);
+	/**
+	 * Walks only the commits made since the tip of the cached history, and puts them, in the order they were
+	 * walked, before the cached commits. Every new commit being newer than the cached tip, the walk of the
+	 * whole history would produce them before any cached commit. If one of them is not newer, as happens when
+	 * a clock was wrong, or if the cached tip is no longer part of the history (for example after a
+	 * force-push), then the whole history is walked. The merge filter is given the parents the cached commits
+	 * had when they were walked.
+	 */
+	private List<RevCommit> walkSinceCachedTip(ObjectId head, String cacheKey) throws IOException {
+		RevCommit headCommit = walk.parseCommit(head);
+		RevCommit tip = null;
+		if (cache.load(cacheKey)) {
+			if (isAncestor(cache.getTip(), head)) {
+				tip = walk.parseCommit(cache.getTip());
+				walk.markUninteresting(tip);
+			} else {
+				log.info("The history has been rewritten since the changelog cache was written. Rebuilding the cache.");
+			}
 		}
-		return walk;
-	}
-
-
-	private Map<String, List<RevTag>> createCommitIDToTagsMap(Repository repository, RevWalk revWalk) throws IOException {
-		Map<String, Ref> allTags = repository.getTags();
-
-		Map<String, List<RevTag>> revTags = new HashMap<String, List<RevTag>>();
-
-		for (Ref ref : allTags.values()) {
-			try {
-				RevTag revTag = revWalk.parseTag(ref.getObjectId());
-				String commitID = revTag.getObject().getId().getName();
-				if (!revTags.containsKey(commitID)) {
-					revTags.put(commitID, new ArrayList<RevTag>());
-				}
-				revTags.get(commitID).add(revTag);
-			} catch (IncorrectObjectTypeException e) {
-				log.debug("Light-weight tags not supported. Skipping " + ref.getName());
+		walk.markStart(headCommit);
+		List<RevCommit> newCommits = new ArrayList<RevCommit>();
+		boolean backdated = false;
+		for (RevCommit commit : walk) {
+			newCommits.add(commit);
+			if (tip != null && commit.getCommitTime() <= tip.getCommitTime()) {
+				log.info("A commit made since the changelog cache was written is dated before it. Rebuilding the cache.");
+				backdated = true;
+				tip = null;
+				break;
+			}
+		}
+		if (backdated) {
+			newCommits.clear();
+			walk.reset();
+			walk.markStart(headCommit);
+			for (RevCommit commit : walk) {
+				newCommits.add(commit);
 			}
 		}
+		cacheOutOfDate = tip == null || !newCommits.isEmpty();
+		if (tip == null) {
+			return newCommits;
+		}
+		List<RevCommit> cachedCommits = cache.getCommits(walk);
+		log.info("Read " + cachedCommits.size() + " commits from the changelog cache and "
+				+ newCommits.size() + " new commits from the repository");
 
-		return revTags;
+		List<RevCommit> history = new ArrayList<RevCommit>(newCommits.size() + cachedCommits.size());
+		history.addAll(newCommits);
+		history.addAll(cachedCommits);
+		commitFilters = new ReactorHistory.ModuleHistory(history, cache.getSimplifiedMerges()).adapt(commitFilters);
+		return history;
 	}
 
-
+	private boolean isAncestor(ObjectId ancestor, ObjectId descendant) throws IOException {
+		RevWalk ancestryWalk = new RevWalk(repository);
+		try {
+			return ancestryWalk.isMergedInto(ancestryWalk.parseCommit(ancestor), ancestryWalk.parseCommit(descendant));
+		} catch (MissingObjectException e) {
+			return false;
+		} catch (IncorrectObjectTypeException e) {
+			return false;
+		} finally {
+			ancestryWalk.release();
+		}
+	}
 }
-
@@ -0,0 +1,188 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * A digest of everything a changelog is generated from: the commit HEAD is at, the tags and what they point
+ * to, the configuration that changes what is written, and the version of the plugin and of the commit filters
+ * it loaded. It is kept next to the changelogs, so that a build that runs the plugin again on the same commit
+ * with the same configuration can leave the changelogs as they are without reading the history.
+ * <p>
+ * Only the refs are read, which takes a few milliseconds however long the history is.
+ */
+class InputFingerprint {
+
+	static final String FILENAME = "gitlog.fingerprint";
+
+	private static final String POM_PROPERTIES = "/META-INF/maven/com.github.danielflower.mavenplugins/maven-gitlog-plugin/pom.properties";
+
+	private final StringBuilder inputs = new StringBuilder();
+
+	/**
+	 * Adds the refs of the repository that the changelog depends on, and the commits the given revisions
+	 * resolve to, if any.
+	 */
+	InputFingerprint(Repository repository, String... revisions) throws IOException {
+		add("plugin", pluginVersion());
+		add("code", codeVersion(InputFingerprint.class));
+		add("HEAD", name(repository.resolve(Constants.HEAD)));
+		for (String revision : revisions) {
+			if (revision != null && revision.length() > 0) {
+				add("revision " + revision, name(repository.resolve(revision)));
+			}
+		}
+		// sorted, as the order of the map is not defined
+		Map<String, Ref> tags = new TreeMap<String, Ref>(repository.getTags());
+		for (Map.Entry<String, Ref> tag : tags.entrySet()) {
+			add(tag.getKey(), name(tag.getValue().getObjectId()));
+		}
+	}
+
+	/**
+	 * Adds a setting the changelog depends on.
+	 */
+	InputFingerprint add(String name, Object value) {
+		inputs.append(name).append('=').append(value).append('\n');
+		return this;
+	}
+
+	/**
+	 * Adds a class the changelog depends on, such as a commit filter, by where it was loaded from.
+	 */
+	InputFingerprint addCode(Class<?> type) {
+		return add(type.getName(), codeVersion(type));
+	}
+
+	/**
+	 * The digest of everything added, as hex.
+	 */
+	String getDigest() {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			byte[] hash = digest.digest(inputs.toString().getBytes("UTF-8"));
+			StringBuilder hex = new StringBuilder(hash.length * 2);
+			for (byte b : hash) {
+				hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-1 is always available", e);
+		} catch (IOException e) {
+			throw new IllegalStateException("UTF-8 is always available", e);
+		}
+	}
+
+	/**
+	 * Returns true if the fingerprint stored in the directory is this one and all of the given files exist.
+	 */
+	boolean matches(File directory, Iterable<File> outputs) {
+		for (File output : outputs) {
+			if (!output.isFile()) {
+				return false;
+			}
+		}
+		File file = new File(directory, FILENAME);
+		if (!file.isFile()) {
+			return false;
+		}
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+			try {
+				return getDigest().equals(reader.readLine());
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Stores the fingerprint in the directory, for the next build to compare with.
+	 */
+	void save(File directory, Log log) {
+		File file = new File(directory, FILENAME);
+		try {
+			OutputStream out = new FileOutputStream(file);
+			try {
+				out.write((getDigest() + "\n").getBytes("UTF-8"));
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			log.warn("Could not write " + file + "; the changelog will be generated again next time", e);
+		}
+	}
+
+	/**
+	 * Removes the fingerprint, so that changelogs that are being replaced are never taken to be up to date.
+	 */
+	static void delete(File directory) {
+		new File(directory, FILENAME).delete();
+	}
+
+	private static String name(ObjectId id) {
+		return (id == null) ? "none" : id.name();
+	}
+
+	private static String pluginVersion() {
+		InputStream in = InputFingerprint.class.getResourceAsStream(POM_PROPERTIES);
+		if (in == null) {
+			return "unknown";
+		}
+		try {
+			Properties properties = new Properties();
+			properties.load(in);
+			return properties.getProperty("version", "unknown");
+		} catch (IOException e) {
+			return "unknown";
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+
+	/**
+	 * The jar or directory the class was loaded from, with its size and time, which also tells snapshot
+	 * builds with the same version apart.
+	 */
+	private static String codeVersion(Class<?> type) {
+		CodeSource source = type.getProtectionDomain().getCodeSource();
+		URL location = (source == null) ? null : source.getLocation();
+		if (location == null) {
+			return "unknown";
+		}
+		try {
+			File file = new File(location.toURI());
+			return file + " " + file.length() + " " + file.lastModified();
+		} catch (URISyntaxException e) {
+			return location.toString();
+		} catch (IllegalArgumentException e) {
+			return location.toString();
+		}
+	}
+}
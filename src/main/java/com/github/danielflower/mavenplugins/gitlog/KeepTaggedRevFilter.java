@@ -0,0 +1,57 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+
+import java.io.IOException;
+
+/**
+ * Evaluates the commit filters that were turned into a {@link RevFilter} inside the walk. The tags of a
+ * commit are rendered even when the commit itself is filtered out, such as the tag on a release plugin
+ * commit, so tagged commits are never dropped by the walk: they are marked with a flag instead, and only
+ * their tags are rendered.
+ */
+class KeepTaggedRevFilter extends RevFilter {
+
+	private final RevFilter filter;
+	private final TagIndex tagIndex;
+	private final RevFlag filteredOut;
+
+	KeepTaggedRevFilter(RevFilter filter, TagIndex tagIndex, RevFlag filteredOut) {
+		this.filter = filter;
+		this.tagIndex = tagIndex;
+		this.filteredOut = filteredOut;
+	}
+
+	@Override
+	public boolean include(RevWalk walker, RevCommit commit)
+			throws MissingObjectException, IncorrectObjectTypeException, IOException {
+		if (filter.include(walker, commit)) {
+			return true;
+		}
+		if (tagIndex.hasTags(commit)) {
+			commit.add(filteredOut);
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public boolean requiresCommitBody() {
+		return filter.requiresCommitBody();
+	}
+
+	@Override
+	public RevFilter clone() {
+		return new KeepTaggedRevFilter(filter.clone(), tagIndex, filteredOut);
+	}
+
+	@Override
+	public String toString() {
+		return "KEEP_TAGGED(" + filter + ")";
+	}
+}
@@ -0,0 +1,606 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import com.github.danielflower.mavenplugins.gitlog.filters.ChangedPathIndex;
+import com.github.danielflower.mavenplugins.gitlog.filters.CommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.MergeCommitFilter;
+
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The history of several modules of one repository, read with a single walk.
+ * <p>
+ * A path limited walk, as used when generating the changelog of a single module, does more than hide the
+ * commits that did not touch the module: merges that did not change the module relative to one of their
+ * parents are replaced by that parent, which prunes whole branches from the walk, and the parents of the
+ * commits it returns are rewritten to skip the hidden commits. This class walks the full history once,
+ * diffs each commit against its parents only for the paths of the modules, and then replays that
+ * simplification separately for each module so that every module sees exactly the commits, in exactly the
+ * order, that its own path limited walk would have produced.
+ * <p>
+ * The commits can be diffed on several threads, which share the repository, and so the pack files and
+ * objects it has read, while each thread reads them with its own object reader.
+ */
+class ReactorHistory {
+
+	// softly held, so that a build that stops before every module has taken its history does not keep it for
+	// as long as the JVM lives
+	private static SoftReference<ReactorHistory> shared;
+
+	private final Repository repository;
+	private final RevWalk walk;
+	private final ObjectId head;
+	private final Map<String, ObjectId> tags;
+	private final List<String> requestedModules;
+	private final List<String> modules = new ArrayList<String>();
+	private final Map<String, Integer> moduleIndexes = new HashMap<String, Integer>();
+	private final Set<String> modulePrefixes = new HashSet<String>();
+	private final TagIndex tagIndex;
+	private final Set<String> remainingModules;
+	private final ChangedPathIndex changedPaths;
+	private boolean holdsRepository;
+
+	private final List<RevCommit> commits = new ArrayList<RevCommit>();
+	private final Map<ObjectId, Integer> positions = new HashMap<ObjectId, Integer>();
+	private int[][] parents;
+	// lazily computed for each commit and each of its parents: the modules that differ, and of those the
+	// modules where every difference is an addition. Roots record the modules they contain.
+	private int[][][] changed;
+	private int[][][] addedOnly;
+	private int[][] present;
+
+	ReactorHistory(Repository repository, List<String> modules, Log log) throws IOException {
+		this(repository, modules, null, 1, log);
+	}
+
+	ReactorHistory(Repository repository, List<String> modules, ChangedPathIndex changedPaths, Log log) throws IOException {
+		this(repository, modules, changedPaths, 1, log);
+	}
+
+	/**
+	 * @param changedPaths if not null, the modules a commit with one parent did not change are found with
+	 *            the index, and only the others are diffed.
+	 * @param threads with more than one, every commit is diffed up front on this many threads, rather than
+	 *            one at a time as the modules are replayed.
+	 */
+	ReactorHistory(Repository repository, List<String> modules, ChangedPathIndex changedPaths, int threads, Log log)
+			throws IOException {
+		this.repository = repository;
+		this.changedPaths = changedPaths;
+		this.requestedModules = new ArrayList<String>(modules);
+		this.remainingModules = new HashSet<String>(modules);
+		for (String module : modules) {
+			// the module at the root of the work tree sees the whole history and needs no diffs
+			if (module.length() == 0 || moduleIndexes.containsKey(module)) {
+				continue;
+			}
+			moduleIndexes.put(module, this.modules.size());
+			this.modules.add(module);
+			for (int slash = module.indexOf('/'); slash > 0; slash = module.indexOf('/', slash + 1)) {
+				modulePrefixes.add(module.substring(0, slash));
+			}
+		}
+		walk = new RevWalk(repository);
+		head = repository.resolve(Constants.HEAD);
+		tags = tagsOf(repository);
+		if (head != null) {
+			walk.markStart(walk.parseCommit(head));
+			for (RevCommit commit : walk) {
+				positions.put(commit, commits.size());
+				commits.add(commit);
+			}
+		}
+		parents = new int[commits.size()][];
+		for (int i = 0; i < commits.size(); i++) {
+			RevCommit[] commitParents = commits.get(i).getParents();
+			parents[i] = new int[commitParents.length];
+			for (int p = 0; p < commitParents.length; p++) {
+				parents[i][p] = positions.get(commitParents[p]);
+			}
+		}
+		changed = new int[commits.size()][][];
+		addedOnly = new int[commits.size()][][];
+		present = new int[commits.size()][];
+		if (threads > 1 && !this.modules.isEmpty()) {
+			computeChanges(threads);
+		}
+		tagIndex = new TagIndex(repository, null, log);
+		log.info("Read " + commits.size() + " commits once for " + modules.size() + " modules");
+	}
+
+	/**
+	 * Returns the history of the reactor the given modules belong to, walking it if it has not been walked
+	 * yet for the current HEAD and tags. Each module can be taken once; the history is released after the last
+	 * one. A history left behind by an earlier build in the same JVM is only used if neither HEAD nor the tags
+	 * have moved since.
+	 * <p>
+	 * The history keeps reading from the repository it was walked in, which it holds open for the modules
+	 * after the first. The caller is given a hold on it too, and closes {@link #getRepository()} once it is
+	 * done with the history of its module.
+	 */
+	static synchronized ReactorHistory forModules(Repository repository, List<String> modules,
+			ChangedPathIndex changedPaths, Log log) throws IOException {
+		return forModules(repository, modules, changedPaths, 1, log);
+	}
+
+	/**
+	 * Returns the history of the reactor as {@link #forModules(Repository, List, ChangedPathIndex, Log)} does,
+	 * diffing the commits on the given number of threads if it has to be walked.
+	 */
+	static synchronized ReactorHistory forModules(Repository repository, List<String> modules,
+			ChangedPathIndex changedPaths, int threads, Log log) throws IOException {
+		ObjectId head = repository.resolve(Constants.HEAD);
+		ReactorHistory history = (shared == null) ? null : shared.get();
+		if (history == null || !history.repository.getDirectory().equals(repository.getDirectory())
+				|| !history.requestedModules.equals(modules) || !equal(history.head, head)
+				|| !history.tags.equals(tagsOf(repository))) {
+			if (history != null) {
+				history.release();
+			}
+			history = new ReactorHistory(repository, modules, changedPaths, threads, log);
+			repository.incrementOpen();
+			history.holdsRepository = true;
+			shared = new SoftReference<ReactorHistory>(history);
+		}
+		history.repository.incrementOpen();
+		return history;
+	}
+
+	/**
+	 * Stops sharing this history and lets go of the repository it holds open, which is closed once the modules
+	 * still reading their history close it too. Done once every module has taken its history, and by a module
+	 * that could not.
+	 */
+	void release() {
+		synchronized (ReactorHistory.class) {
+			if (shared != null && shared.get() == this) {
+				shared = null;
+			}
+			if (holdsRepository) {
+				holdsRepository = false;
+				repository.close();
+			}
+		}
+	}
+
+	private static Map<String, ObjectId> tagsOf(Repository repository) {
+		Map<String, ObjectId> tags = new HashMap<String, ObjectId>();
+		for (Map.Entry<String, Ref> tag : repository.getTags().entrySet()) {
+			tags.put(tag.getKey(), tag.getValue().getObjectId());
+		}
+		return tags;
+	}
+
+	private static boolean equal(ObjectId a, ObjectId b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	Repository getRepository() {
+		return repository;
+	}
+
+	TagIndex getTagIndex() {
+		return tagIndex;
+	}
+
+	/**
+	 * Returns the commits of the given module in the order its own path limited walk would return them.
+	 */
+	synchronized ModuleHistory take(String module) throws IOException {
+		ModuleHistory history = replay(module);
+		remainingModules.remove(module);
+		if (remainingModules.isEmpty()) {
+			if (changedPaths != null) {
+				// the modules taken after the one that created the history added to its index
+				changedPaths.save();
+			}
+			release();
+		}
+		return history;
+	}
+
+	static class ModuleHistory {
+		final List<RevCommit> commits;
+		// merges whose parents collapsed into a single one once the history was simplified for the module
+		final Set<RevCommit> simplifiedMerges;
+
+		ModuleHistory(List<RevCommit> commits, Set<RevCommit> simplifiedMerges) {
+			this.commits = commits;
+			this.simplifiedMerges = simplifiedMerges;
+		}
+
+		/**
+		 * Returns the filters to use for this module. A path limited walk rewrites the parents of the
+		 * commits it returns, so a merge can end up with a single parent. The merge filter is given the
+		 * same view of the parents here.
+		 */
+		List<CommitFilter> adapt(List<CommitFilter> commitFilters) {
+			List<CommitFilter> adapted = new ArrayList<CommitFilter>(commitFilters.size());
+			for (CommitFilter filter : commitFilters) {
+				if (filter instanceof MergeCommitFilter && !simplifiedMerges.isEmpty()) {
+					filter = new ModuleMergeFilter(filter, simplifiedMerges);
+				}
+				adapted.add(filter);
+			}
+			return adapted;
+		}
+	}
+
+	/**
+	 * The merge filter of a module, which lets through the merges that no longer are merges once the history
+	 * is simplified for the module.
+	 */
+	static class ModuleMergeFilter implements CommitFilter {
+		private final CommitFilter mergeFilter;
+		private final Set<RevCommit> simplifiedMerges;
+
+		ModuleMergeFilter(CommitFilter mergeFilter, Set<RevCommit> simplifiedMerges) {
+			this.mergeFilter = mergeFilter;
+			this.simplifiedMerges = simplifiedMerges;
+		}
+
+		public boolean renderCommit(RevCommit commit, Repository repository) {
+			return simplifiedMerges.contains(commit) || mergeFilter.renderCommit(commit, repository);
+		}
+	}
+
+	private ModuleHistory replay(String module) throws IOException {
+		if (module == null || module.length() == 0) {
+			Set<RevCommit> none = Collections.emptySet();
+			return new ModuleHistory(commits, none);
+		}
+		int m = moduleIndexes.get(module);
+		int n = commits.size();
+		int[][] moduleParents = new int[n][];
+		boolean[] seen = new boolean[n];
+		boolean[] rewrite = new boolean[n];
+		List<Integer> produced = new ArrayList<Integer>();
+
+		DateQueue queue = new DateQueue();
+		if (n > 0) {
+			seen[0] = true;
+			queue.add(0, commits.get(0).getCommitTime());
+		}
+		while (!queue.isEmpty()) {
+			int c = queue.poll();
+			int[] cParents = moduleParents[c] != null ? moduleParents[c] : parents[c];
+			boolean produce = include(c, cParents, m, moduleParents, rewrite);
+			cParents = moduleParents[c] != null ? moduleParents[c] : parents[c];
+			for (int p : cParents) {
+				if (seen[p]) {
+					continue;
+				}
+				seen[p] = true;
+				queue.add(p, commits.get(p).getCommitTime());
+			}
+			if (produce) {
+				produced.add(c);
+			}
+		}
+
+		// rewrite the parents of the returned commits past the hidden ones, as the walk does
+		List<RevCommit> result = new ArrayList<RevCommit>(produced.size());
+		Set<RevCommit> simplifiedMerges = new HashSet<RevCommit>();
+		for (int c : produced) {
+			RevCommit commit = commits.get(c);
+			result.add(commit);
+			if (commit.getParentCount() < 2) {
+				continue;
+			}
+			int[] cParents = moduleParents[c] != null ? moduleParents[c] : parents[c];
+			Set<Integer> rewritten = new HashSet<Integer>();
+			for (int p : cParents) {
+				int target = p;
+				for (;;) {
+					int[] targetParents = moduleParents[target] != null ? moduleParents[target] : parents[target];
+					if (targetParents.length > 1 || !rewrite[target]) {
+						break;
+					}
+					if (targetParents.length == 0) {
+						target = -1;
+						break;
+					}
+					target = targetParents[0];
+				}
+				if (target >= 0) {
+					rewritten.add(target);
+				}
+			}
+			if (rewritten.size() < 2) {
+				simplifiedMerges.add(commit);
+			}
+		}
+		return new ModuleHistory(result, simplifiedMerges);
+	}
+
+	/**
+	 * Decides whether the commit is returned by a walk limited to the module, following the rules of
+	 * JGit's tree filter.
+	 */
+	private boolean include(int c, int[] cParents, int m, int[][] moduleParents, boolean[] rewrite) throws IOException {
+		if (cParents.length == 0) {
+			if (contains(presentModules(c), m)) {
+				return true;
+			}
+			rewrite[c] = true;
+			return false;
+		}
+		computeChanges(c, walk.getObjectReader());
+		if (cParents.length == 1) {
+			if (contains(changed[c][0], m)) {
+				return true;
+			}
+			rewrite[c] = true;
+			return false;
+		}
+		for (int i = 0; i < cParents.length; i++) {
+			if (!contains(changed[c][i], m)) {
+				// nothing changed relative to this parent, so the merge is replaced by it
+				rewrite[c] = true;
+				moduleParents[c] = new int[]{cParents[i]};
+				return false;
+			}
+			if (allAdditions(c, i, m)) {
+				// the module was introduced by this merge, so the history of this parent is irrelevant
+				moduleParents[cParents[i]] = new int[0];
+			}
+		}
+		return true;
+	}
+
+	private int[] presentModules(int c) throws IOException {
+		if (present[c] == null) {
+			TreeWalk tw = new TreeWalk(walk.getObjectReader());
+			try {
+				tw.addTree(commits.get(c).getTree());
+				tw.setFilter(PathFilterGroup.createFromStrings(modules));
+				present[c] = modulesIn(tw, null);
+			} finally {
+				tw.release();
+			}
+		}
+		return present[c];
+	}
+
+	/**
+	 * Diffs every commit that has parents, sharing the commits out between the threads. Each thread reads
+	 * the objects with a reader of its own, as readers cannot be shared between threads.
+	 */
+	private void computeChanges(int threads) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private int count;
+
+			public synchronized Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "gitlog-diff-" + (++count));
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			List<Future<Void>> shares = new ArrayList<Future<Void>>();
+			for (int t = 0; t < threads; t++) {
+				final int first = t;
+				final int step = threads;
+				shares.add(executor.submit(new Callable<Void>() {
+					public Void call() throws IOException {
+						ObjectReader reader = repository.newObjectReader();
+						try {
+							// every few commits rather than a block of them, so that a run of large commits is
+							// shared out too
+							for (int c = first; c < commits.size(); c += step) {
+								if (parents[c].length > 0) {
+									computeChanges(c, reader);
+								}
+							}
+						} finally {
+							reader.release();
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> share : shares) {
+				share.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while diffing the commits of the modules");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException("Could not diff the commits of the modules", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void computeChanges(int c, ObjectReader reader) throws IOException {
+		if (changed[c] != null) {
+			return;
+		}
+		RevCommit commit = commits.get(c);
+		int[][] commitChanged = new int[parents[c].length][];
+		int[][] commitAddedOnly = new int[parents[c].length][];
+		List<String> diffed = modules;
+		if (changedPaths != null && parents[c].length == 1) {
+			// the index only knows about the first parent, and a merge needs every one of them
+			diffed = new ArrayList<String>();
+			for (String module : modules) {
+				if (changedPaths.mightHaveChanged(commit, module, repository)) {
+					diffed.add(module);
+				}
+			}
+			if (diffed.isEmpty()) {
+				changed[c] = new int[][] {new int[0]};
+				addedOnly[c] = changed[c];
+				return;
+			}
+		}
+		TreeWalk tw = new TreeWalk(reader);
+		try {
+			tw.setFilter(AndTreeFilter.create(PathFilterGroup.createFromStrings(diffed), TreeFilter.ANY_DIFF));
+			for (int i = 0; i < parents[c].length; i++) {
+				tw.reset(commits.get(parents[c][i]).getTree(), commit.getTree());
+				List<Integer> added = new ArrayList<Integer>();
+				commitChanged[i] = modulesIn(tw, added);
+				commitAddedOnly[i] = toArray(added);
+			}
+		} finally {
+			tw.release();
+		}
+		changed[c] = commitChanged;
+		addedOnly[c] = commitAddedOnly;
+	}
+
+	/**
+	 * Returns the modules found by the tree walk, entering only the directories that lead to a module.
+	 * Modules that are absent from the first of two trees are added to the given list.
+	 */
+	private int[] modulesIn(TreeWalk tw, List<Integer> added) throws IOException {
+		List<Integer> found = new ArrayList<Integer>();
+		while (tw.next()) {
+			String path = tw.getPathString();
+			Integer module = moduleIndexes.get(path);
+			if (module != null) {
+				found.add(module);
+				if (added != null && tw.getRawMode(0) == 0) {
+					added.add(module);
+				}
+			}
+			if (tw.isSubtree() && modulePrefixes.contains(path)) {
+				tw.enterSubtree();
+			}
+		}
+		return toArray(found);
+	}
+
+	/**
+	 * Whether every difference under the module between the merge and the given parent is an addition.
+	 * Modules nested in a directory are compared file by file, as a walk limited to them does.
+	 */
+	private boolean allAdditions(int c, int parent, int m) throws IOException {
+		if (contains(addedOnly[c][parent], m)) {
+			return true;
+		}
+		String module = modules.get(m);
+		if (module.indexOf('/') < 0) {
+			return false;
+		}
+		TreeWalk tw = new TreeWalk(walk.getObjectReader());
+		try {
+			tw.setFilter(AndTreeFilter.create(PathFilter.create(module), TreeFilter.ANY_DIFF));
+			tw.setRecursive(true);
+			tw.reset(commits.get(parents[c][parent]).getTree(), commits.get(c).getTree());
+			while (tw.next()) {
+				if (tw.getRawMode(0) != 0) {
+					return false;
+				}
+			}
+			return true;
+		} finally {
+			tw.release();
+		}
+	}
+
+	/**
+	 * The commits waiting to be walked, in the order of the date queue of a RevWalk: newest first, and a
+	 * commit is queued in front of those made at the same time, except for the head of the queue, which
+	 * stays where it is.
+	 */
+	private static class DateQueue {
+
+		private static class Entry {
+			final int commit;
+			final int time;
+			final long order;
+
+			Entry(int commit, int time, long order) {
+				this.commit = commit;
+				this.time = time;
+				this.order = order;
+			}
+		}
+
+		private final PriorityQueue<Entry> entries = new PriorityQueue<Entry>(16, new Comparator<Entry>() {
+			public int compare(Entry a, Entry b) {
+				if (a.time != b.time) {
+					return a.time > b.time ? -1 : 1;
+				}
+				return a.order < b.order ? -1 : (a.order == b.order ? 0 : 1);
+			}
+		});
+		// decreases with each commit queued, so that the last one queued comes first among equal times
+		private long order;
+
+		void add(int commit, int time) {
+			Entry head = entries.peek();
+			if (head != null && head.time == time) {
+				// queued again after the new commit, to stay in front of it
+				entries.poll();
+				entries.add(new Entry(commit, time, --order));
+				entries.add(new Entry(head.commit, head.time, --order));
+			} else {
+				entries.add(new Entry(commit, time, --order));
+			}
+		}
+
+		int poll() {
+			return entries.poll().commit;
+		}
+
+		boolean isEmpty() {
+			return entries.isEmpty();
+		}
+	}
+
+	private static boolean contains(int[] values, int value) {
+		for (int v : values) {
+			if (v == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int[] toArray(List<Integer> values) {
+		int[] array = new int[values.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = values.get(i);
+		}
+		return array;
+	}
+}
@@ -20,7 +20,7 @@ public class ShowMojo extends AbstractMojo {
 	public void execute() throws MojoExecutionException, MojoFailureException {
 
 		List<ChangeLogRenderer> renderers = Arrays.<ChangeLogRenderer>asList(new MavenLoggerRenderer(getLog()));
-		Generator generator = new Generator(renderers, Defaults.COMMIT_FILTERS, getLog());
+		Generator generator = new Generator(renderers, Defaults.commitFilters(), getLog());
 
 		try {
 			generator.openRepository(null);
@@ -0,0 +1,167 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdOwnerMap;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TagBuilder;
+import org.eclipse.jgit.revwalk.RevTag;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The tags of a repository, by the commit they point at.
+ * <p>
+ * The index is built from the tag refs alone. Refs in packed-refs already carry the commit an annotated tag
+ * points at, so the tag objects themselves are only read for the commits whose tags are rendered. Lightweight
+ * tags are given to the renderers as tags with no tagger and no message.
+ * <p>
+ * The tagged commits are kept in an {@link ObjectIdOwnerMap}, which is probed with the commit itself, so
+ * looking up the many commits that have no tag costs neither a hex string nor an allocation.
+ */
+class TagIndex {
+
+	private static class TagRef {
+		final String name;
+		final ObjectId tagId;
+
+		TagRef(String name, ObjectId tagId) {
+			this.name = name;
+			this.tagId = tagId;
+		}
+	}
+
+	private static class TaggedCommit extends ObjectIdOwnerMap.Entry {
+		// ObjectId is serializable, but the index is never serialized
+		private static final long serialVersionUID = 1L;
+
+		final List<TagRef> refs = new ArrayList<TagRef>(1);
+		List<RevTag> tags;
+
+		TaggedCommit(AnyObjectId id) {
+			super(id);
+		}
+	}
+
+	private final Repository repository;
+	private final ChangeLogCache cache;
+	private final ObjectIdOwnerMap<TaggedCommit> taggedCommits = new ObjectIdOwnerMap<TaggedCommit>();
+	private final Map<ObjectId, byte[]> tagBuffers = new HashMap<ObjectId, byte[]>();
+	private boolean readTagsFromRepository;
+
+	/**
+	 * @param cache if not null, annotated tags are read from the cache where possible, and the tags read
+	 *            from the repository are kept so that they can be written to the cache.
+	 */
+	TagIndex(Repository repository, ChangeLogCache cache, Log log) throws IOException {
+		this.repository = repository;
+		this.cache = cache;
+		for (Ref ref : repository.getTags().values()) {
+			if (!ref.isPeeled()) {
+				// a loose ref: the object has to be read to find out what it points at
+				ref = repository.peel(ref);
+			}
+			ObjectId peeled = ref.getPeeledObjectId();
+			ObjectId target = (peeled == null) ? ref.getObjectId() : peeled;
+			if (target == null) {
+				continue;
+			}
+			String name = Repository.shortenRefName(ref.getName());
+			TaggedCommit taggedCommit = taggedCommits.addIfAbsent(new TaggedCommit(target));
+			taggedCommit.refs.add(new TagRef(name, peeled == null ? null : ref.getObjectId()));
+		}
+		log.debug("Indexed the tags of " + taggedCommits.size() + " commits");
+	}
+
+	/**
+	 * True if any tag points at the given commit. The tags themselves are not read.
+	 */
+	boolean hasTags(AnyObjectId commit) {
+		return taggedCommits.get(commit) != null;
+	}
+
+	/**
+	 * Returns the tags pointing at the given commit, in name order, or null if there are none.
+	 */
+	List<RevTag> getTags(AnyObjectId commit) throws IOException {
+		// the map is not changed after the constructor, so it can be read without locking
+		TaggedCommit taggedCommit = taggedCommits.get(commit);
+		if (taggedCommit == null) {
+			return null;
+		}
+		synchronized (this) {
+			if (taggedCommit.tags == null) {
+				List<RevTag> tags = new ArrayList<RevTag>(taggedCommit.refs.size());
+				for (TagRef ref : taggedCommit.refs) {
+					tags.add(ref.tagId == null ? lightweightTag(ref.name, taggedCommit) : parseTag(ref.tagId));
+				}
+				taggedCommit.tags = Collections.unmodifiableList(tags);
+			}
+			return taggedCommit.tags;
+		}
+	}
+
+	private RevTag parseTag(ObjectId tagId) throws IOException {
+		byte[] raw = (cache == null) ? null : cache.getTag(tagId);
+		if (raw == null) {
+			raw = repository.open(tagId, Constants.OBJ_TAG).getCachedBytes();
+			readTagsFromRepository = true;
+		}
+		if (cache != null) {
+			tagBuffers.put(tagId, raw);
+		}
+		return RevTag.parse(raw);
+	}
+
+	private static RevTag lightweightTag(String name, AnyObjectId commit) throws IOException {
+		TagBuilder builder = new TagBuilder();
+		builder.setTag(name);
+		builder.setObjectId(commit, Constants.OBJ_COMMIT);
+		builder.setMessage("");
+		return RevTag.parse(builder.build());
+	}
+
+	/**
+	 * True if the cache is missing tags that were read from the repository, or holds tags that no longer
+	 * exist.
+	 */
+	synchronized boolean isCacheOutOfDate() {
+		return readTagsFromRepository || (cache != null && cache.getTagCount() != getTagBuffers().size());
+	}
+
+	/**
+	 * Returns the buffers of every annotated tag known to the cache or read during this run, to be written
+	 * to the cache.
+	 */
+	synchronized Map<ObjectId, byte[]> getTagBuffers() {
+		Map<ObjectId, byte[]> buffers = new HashMap<ObjectId, byte[]>();
+		for (TaggedCommit taggedCommit : taggedCommits) {
+			for (TagRef ref : taggedCommit.refs) {
+				if (ref.tagId == null) {
+					continue;
+				}
+				byte[] raw = tagBuffers.get(ref.tagId);
+				if (raw == null && cache != null) {
+					raw = cache.getTag(ref.tagId);
+				}
+				if (raw != null) {
+					buffers.put(ref.tagId, raw);
+				}
+			}
+		}
+		return buffers;
+	}
+
+	@Override
+	public String toString() {
+		return "TagIndex[" + taggedCommits.size() + " tagged commits]";
+	}
+}
@@ -0,0 +1,71 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.eclipse.jgit.events.RefsChangedEvent;
+import org.eclipse.jgit.events.RefsChangedListener;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.IOException;
+
+/**
+ * Goal which keeps the changelog of the current project up to date until the build is stopped, for example
+ * for a server previewing the documentation. The repository stays open, and each time HEAD, a branch or a
+ * tag changes the changelog is generated again from the history read the time before and the commits made
+ * since, which takes milliseconds rather than a whole build.
+ * <p>
+ * The changes are found by having JGit check the refs for changes, which only looks at the modification
+ * times of HEAD, the loose refs and packed-refs.
+ *
+ * @goal watch
+ * @requiresProject true
+ */
+public class WatchMojo extends GenerateMojo {
+
+	/**
+	 * How often to check the repository for new commits and tags, in
+	 * milliseconds.
+	 *
+	 * @parameter default-value="500" expression="${gitlog.watchInterval}"
+	 */
+	private long watchInterval;
+
+	@Override
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		Repository repository;
+		try {
+			repository = Generator.findRepository();
+		} catch (IOException e) {
+			throw new MojoExecutionException("Could not open the git repository", e);
+		} catch (NoGitRepositoryException e) {
+			throw new MojoFailureException("This maven project does not appear to be in a git repository");
+		}
+		ChangeLogCache history = newHistoryInMemory();
+		final boolean[] refsChanged = {true};
+		repository.getListenerList().addRefsChangedListener(new RefsChangedListener() {
+			public void onRefsChanged(RefsChangedEvent event) {
+				refsChanged[0] = true;
+			}
+		});
+		getLog().info("Watching " + repository.getDirectory() + " for new commits and tags. Stop the build to stop watching.");
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				// tells the listener, on this thread, if any ref changed since the last scan
+				repository.scanForRepoChanges();
+				if (refsChanged[0]) {
+					refsChanged[0] = false;
+					long started = System.currentTimeMillis();
+					generate(repository, history);
+					getLog().info("Changelog updated in " + (System.currentTimeMillis() - started) + "ms");
+				}
+				Thread.sleep(watchInterval);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			throw new MojoExecutionException("Could not check the git repository for changes", e);
+		} finally {
+			repository.close();
+		}
+	}
+}
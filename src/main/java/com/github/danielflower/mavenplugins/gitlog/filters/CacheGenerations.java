@@ -0,0 +1,124 @@
+package com.github.danielflower.mavenplugins.gitlog.filters;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The files of a cache that is memory-mapped while it is read. On some platforms a file cannot be deleted or
+ * replaced while it is mapped, and it stays mapped until the buffer is garbage collected, so each save writes
+ * a file of its own, numbered one higher than the last, and the older files are deleted when they can be.
+ * Each save reserves its number by creating the file empty, so builds sharing the directory never write the
+ * same file, and an empty file is one still being written.
+ */
+class CacheGenerations {
+
+	private final File directory;
+	private final String prefix;
+	private final String extension;
+
+	/**
+	 * The files are named <code>name-N.extension</code> in the directory.
+	 */
+	CacheGenerations(File directory, String name, String extension) {
+		this.directory = directory;
+		this.prefix = name + "-";
+		this.extension = "." + extension;
+	}
+
+	File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * The file written by the latest save, or null if there is none.
+	 */
+	File latest() {
+		long latest = -1;
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (file.length() > 0) {
+					latest = Math.max(latest, generationOf(file.getName()));
+				}
+			}
+		}
+		return latest < 0 ? null : fileOf(latest);
+	}
+
+	/**
+	 * Reserves the file the next save writes to, which is created empty. The save replaces it with the
+	 * file it has written, or deletes it if it could not write one. The directory must exist.
+	 */
+	File next() throws IOException {
+		for (long generation = latestGeneration() + 1;; generation++) {
+			File file = fileOf(generation);
+			if (file.createNewFile()) {
+				return file;
+			}
+		}
+	}
+
+	/**
+	 * Replaces the reserved file with the one written under a temporary name.
+	 */
+	void replace(File reserved, File written) throws IOException {
+		// renaming over an existing file fails on some platforms
+		if (!written.renameTo(reserved) && !(reserved.delete() && written.renameTo(reserved))) {
+			throw new IOException("Could not rename " + written + " to " + reserved);
+		}
+	}
+
+	/**
+	 * Deletes the files older than the given one. A file that is still mapped, by this process or by another
+	 * build, is left for a later save to delete.
+	 */
+	void deleteOlderThan(File file) {
+		long kept = generationOf(file.getName());
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File old : files) {
+			long generation = generationOf(old.getName());
+			if (generation >= 0 && generation < kept) {
+				old.delete();
+			}
+		}
+	}
+
+	private long latestGeneration() {
+		long latest = -1;
+		String[] names = directory.list();
+		if (names != null) {
+			for (String name : names) {
+				latest = Math.max(latest, generationOf(name));
+			}
+		}
+		return latest;
+	}
+
+	private File fileOf(long generation) {
+		return new File(directory, prefix + generation + extension);
+	}
+
+	/**
+	 * Returns the number in the name of one of the files, or -1 if the name is not that of one.
+	 */
+	private long generationOf(String name) {
+		if (!name.startsWith(prefix) || !name.endsWith(extension)
+				|| name.length() == prefix.length() + extension.length()) {
+			return -1;
+		}
+		String number = name.substring(prefix.length(), name.length() - extension.length());
+		for (int i = 0; i < number.length(); i++) {
+			if (!Character.isDigit(number.charAt(i))) {
+				return -1;
+			}
+		}
+		try {
+			return Long.parseLong(number);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,350 @@
+package com.github.danielflower.mavenplugins.gitlog.filters;
+
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.eclipse.jgit.util.NB;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * For each commit, a Bloom filter of the paths it changes relative to its first parent, and of the
+ * directories those paths are in, as git keeps in its commit-graph with <code>--changed-paths</code>. A
+ * commit whose filter does not contain the directory of a module did not change the module, which is known
+ * without diffing the commit; only when the filter says the directory might have changed does it need a diff.
+ * <p>
+ * The filters are computed the first time a commit is asked about, which takes a full diff of the commit, and
+ * are kept on disk between runs so that each run only diffs the commits made since the one before. As with
+ * {@link PatchIdCache}, the commits are identified by the first 64 bits of their ID and the file is mapped
+ * rather than read, and each save writes a new file. Instances are thread safe.
+ */
+public class ChangedPathIndex {
+
+	private static final long HEADER = 0x4743504900000001L; // "GCPI", version 1
+
+	// as in git: 10 bits for each path and 7 hash functions, which gives about 1% false positives
+	private static final int BITS_PER_PATH = 10;
+	private static final int HASHES = 7;
+	// commits changing more paths than this, such as large imports, get a filter that contains every path
+	private static final int MAX_PATHS = 512;
+
+	private static final long[] EVERYTHING = new long[0];
+	private static final long[] NOTHING = new long[0];
+	private static final long EVERYTHING_ON_DISK = -1;
+
+	private final CacheGenerations files;
+	private final Log log;
+
+	private LongBuffer entries;
+	private LongBuffer words;
+	private final Map<Long, long[]> added = new HashMap<Long, long[]>();
+	private boolean warned;
+
+	public ChangedPathIndex(File directory, Log log) {
+		this.files = new CacheGenerations(directory, "gitlog-changed-paths", "index");
+		this.log = log;
+	}
+
+	/**
+	 * Returns false if the commit certainly changed nothing at or under the given path relative to its first
+	 * parent, and true if it might have. Commits without a parent, and commits that could not be diffed,
+	 * might have changed anything.
+	 */
+	public synchronized boolean mightHaveChanged(RevCommit commit, String path, Repository repository) {
+		if (commit.getParentCount() == 0) {
+			return true;
+		}
+		if (entries == null) {
+			load();
+		}
+		long key = prefix(commit);
+		long hash = hash(path);
+		int index = find(entries, key);
+		if (index >= 0) {
+			long value = entries.get(index + 1);
+			if (value == EVERYTHING_ON_DISK) {
+				return true;
+			}
+			return contains(words, (int) (value >>> 24), (int) (value & 0xffffff), hash);
+		}
+		long[] filter = added.get(key);
+		if (filter == null) {
+			filter = compute(commit, repository);
+			added.put(key, filter);
+		}
+		if (filter == EVERYTHING) {
+			return true;
+		}
+		return contains(LongBuffer.wrap(filter), 0, filter.length, hash);
+	}
+
+	private long[] compute(RevCommit commit, Repository repository) {
+		ObjectReader reader = repository.newObjectReader();
+		TreeWalk tw = new TreeWalk(reader);
+		try {
+			tw.setFilter(TreeFilter.ANY_DIFF);
+			tw.reset(treeOf(reader, commit.getParent(0)), treeOf(reader, commit));
+			// only the directories that differ are entered, and each one is a path of its own
+			Set<String> paths = new HashSet<String>();
+			while (tw.next()) {
+				paths.add(tw.getPathString());
+				if (paths.size() > MAX_PATHS) {
+					return EVERYTHING;
+				}
+				if (tw.isSubtree()) {
+					tw.enterSubtree();
+				}
+			}
+			if (paths.isEmpty()) {
+				return NOTHING;
+			}
+			long[] filter = new long[(paths.size() * BITS_PER_PATH + 63) / 64];
+			for (String path : paths) {
+				add(filter, hash(path));
+			}
+			return filter;
+		} catch (IOException e) {
+			if (!warned) {
+				warned = true;
+				log.warn("Could not diff " + commit.name() + "; commits that cannot be diffed are always diffed again", e);
+			}
+			return EVERYTHING;
+		} finally {
+			tw.release();
+			reader.release();
+		}
+	}
+
+	/**
+	 * Reads the tree of a commit without parsing it into a walk, which would keep it in memory.
+	 */
+	private static ObjectId treeOf(ObjectReader reader, AnyObjectId commit) throws IOException {
+		byte[] raw = reader.open(commit, Constants.OBJ_COMMIT).getCachedBytes();
+		// every commit starts with "tree " and the hex ID of its tree
+		return ObjectId.fromString(raw, 5);
+	}
+
+	private static void add(long[] filter, long hash) {
+		long bits = filter.length * 64L;
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 0; i < HASHES; i++) {
+			long bit = ((h1 + i * (long) h2) & 0xffffffffL) % bits;
+			filter[(int) (bit >>> 6)] |= 1L << bit;
+		}
+	}
+
+	private static boolean contains(LongBuffer buffer, int offset, int length, long hash) {
+		if (length == 0) {
+			return false;
+		}
+		long bits = length * 64L;
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 0; i < HASHES; i++) {
+			long bit = ((h1 + i * (long) h2) & 0xffffffffL) % bits;
+			if ((buffer.get(offset + (int) (bit >>> 6)) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 64 bit FNV-1a of the path, mixed as in MurmurHash3 so that both halves can be used as hashes.
+	 */
+	static long hash(String path) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < path.length(); i++) {
+			hash ^= path.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb3f99fa0b653L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	private static long prefix(AnyObjectId id) {
+		byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+		id.copyRawTo(raw, 0);
+		return NB.decodeInt64(raw, 0);
+	}
+
+	/**
+	 * Returns the position of the entry for the given commit, or -1 if it is not in the buffer.
+	 */
+	private static int find(LongBuffer pairs, long key) {
+		int low = 0;
+		int high = pairs.limit() / 2 - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			long value = pairs.get(middle * 2);
+			if (value < key) {
+				low = middle + 1;
+			} else if (value > key) {
+				high = middle - 1;
+			} else {
+				return middle * 2;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * The file holds the header, the number of commits, a pair of longs for each commit sorted by commit,
+	 * and then the filters. The second long of a pair is the offset of the filter in longs, shifted left by
+	 * 24 bits, and its length in longs, or -1 if the commit changed too many paths to have a filter.
+	 */
+	private void load() {
+		entries = LongBuffer.allocate(0);
+		words = LongBuffer.allocate(0);
+		File file = files.latest();
+		if (file == null) {
+			log.debug("No changed path index found in " + files.getDirectory());
+			return;
+		}
+		FileInputStream in = null;
+		try {
+			in = new FileInputStream(file);
+			FileChannel channel = in.getChannel();
+			// the mapping stays valid once the channel is closed
+			LongBuffer longs = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asLongBuffer();
+			if (longs.limit() < 2 || longs.get(0) != HEADER || longs.get(1) < 0
+					|| 2 + longs.get(1) * 2 > longs.limit()) {
+				log.info("Ignoring the changed path index at " + file + " as it was written by a different version");
+				return;
+			}
+			int count = (int) longs.get(1);
+			longs.position(2);
+			longs.limit(2 + count * 2);
+			entries = longs.slice();
+			longs.limit(longs.capacity());
+			longs.position(2 + count * 2);
+			words = longs.slice();
+		} catch (IOException e) {
+			log.warn("Could not read the changed path index at " + file + "; it will be rebuilt", e);
+		} finally {
+			close(in);
+		}
+	}
+
+	/**
+	 * Adds the filters computed since the index was loaded to the file on disk. The new file is written under a
+	 * temporary name and then renamed, so that an interrupted build never leaves a half-written index behind.
+	 */
+	public synchronized void save() {
+		if (added.isEmpty()) {
+			return;
+		}
+		File directory = files.getDirectory();
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			log.warn("Could not create the changed path index directory " + directory);
+			return;
+		}
+		long[] addedKeys = new long[added.size()];
+		int a = 0;
+		for (Long key : added.keySet()) {
+			addedKeys[a++] = key;
+		}
+		Arrays.sort(addedKeys);
+		int oldCount = entries.limit() / 2;
+		File file = null;
+		File temp = null;
+		DataOutputStream out = null;
+		try {
+			file = files.next();
+			temp = new File(directory, file.getName() + ".tmp");
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 65536));
+			out.writeLong(HEADER);
+			out.writeLong(oldCount + addedKeys.length);
+			// both are sorted by commit, so they are merged as they are written, first the entries and then
+			// the filters in the same order
+			for (int pass = 0; pass < 2; pass++) {
+				long offset = 0;
+				int old = 0;
+				int next = 0;
+				while (old < oldCount || next < addedKeys.length) {
+					long key;
+					long value;
+					LongBuffer buffer;
+					int start;
+					if (next == addedKeys.length || (old < oldCount && entries.get(old * 2) < addedKeys[next])) {
+						key = entries.get(old * 2);
+						value = entries.get(old * 2 + 1);
+						buffer = words;
+						start = (value == EVERYTHING_ON_DISK) ? 0 : (int) (value >>> 24);
+						old++;
+					} else {
+						key = addedKeys[next];
+						long[] filter = added.get(key);
+						value = (filter == EVERYTHING) ? EVERYTHING_ON_DISK : filter.length;
+						buffer = LongBuffer.wrap(filter);
+						start = 0;
+						next++;
+					}
+					int length = (value == EVERYTHING_ON_DISK) ? 0 : (int) (value & 0xffffff);
+					if (pass == 0) {
+						out.writeLong(key);
+						out.writeLong(value == EVERYTHING_ON_DISK ? value : (offset << 24) | length);
+					} else {
+						for (int w = 0; w < length; w++) {
+							out.writeLong(buffer.get(start + w));
+						}
+					}
+					offset += length;
+				}
+			}
+			out.close();
+			out = null;
+			// the old file stays mapped until the buffers are collected, so it is only deleted if it can be
+			entries = null;
+			words = null;
+			files.replace(file, temp);
+			files.deleteOlderThan(file);
+			log.debug("Added " + added.size() + " commits to the changed path index at " + file);
+			added.clear();
+		} catch (IOException e) {
+			log.warn("Could not write the changed path index in " + directory, e);
+			if (file != null) {
+				close(out);
+				out = null;
+				temp.delete();
+				file.delete();
+			}
+		} finally {
+			close(out);
+		}
+	}
+
+	private static void close(Closeable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+}
@@ -3,22 +3,83 @@ package com.github.danielflower.mavenplugins.gitlog.filters;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 
+/**
+ * Removes commits whose message is the same as that of the commit before, ignoring case and surrounding
+ * whitespace. Across the whole history, it can also remove every commit whose message was seen anywhere
+ * before, and cherry-picked commits whose changes were seen before, as found by their git patch-id.
+ * <p>
+ * The messages are compared by a 64 bit hash, so only the hashes are kept in memory rather than the messages.
+ */
 public class DuplicateCommitMessageFilter implements CommitFilter {
 
-	private RevCommit previous;
+	private final LongHashSet seenMessages;
+	private final LongHashSet seenPatches;
+	private final PatchIdCache patchIds;
+	private boolean hasPrevious;
+	private long previous;
+
+	/**
+	 * Removes commits with the same message as the commit before.
+	 */
+	public DuplicateCommitMessageFilter() {
+		this(false, null);
+	}
+
+	/**
+	 * @param historyWide if true, commits whose message was seen anywhere before are removed, rather than only
+	 *            those with the same message as the commit before.
+	 * @param patchIds if not null, commits whose changes were seen before are also removed, even if their
+	 *            message differs. Implies historyWide.
+	 */
+	public DuplicateCommitMessageFilter(boolean historyWide, PatchIdCache patchIds) {
+		this.patchIds = patchIds;
+		this.seenMessages = (historyWide || patchIds != null) ? new LongHashSet() : null;
+		this.seenPatches = (patchIds != null) ? new LongHashSet() : null;
+	}
 
 	@Override
 	public boolean renderCommit(RevCommit commit, Repository repository) {
-		boolean isDuplicate = previous != null
-				&& messagesEquivalent(commit.getShortMessage(), previous.getShortMessage());
-		previous = commit;
-		return !isDuplicate;
+		long message = hash(commit.getShortMessage());
+		if (seenMessages == null) {
+			boolean isDuplicate = hasPrevious && message == previous;
+			hasPrevious = true;
+			previous = message;
+			return !isDuplicate;
+		}
+		if (!seenMessages.add(message)) {
+			return false;
+		}
+		return patchIds == null || isNewPatch(commit, repository);
 	}
 
-	private boolean messagesEquivalent(String message1, String message2) {
-		message1 = "" + message1.trim().toLowerCase();
-		message2 = "" + message2.trim().toLowerCase();
-		return message1.equals(message2);
+	private boolean isNewPatch(RevCommit commit, Repository repository) {
+		long patchId = patchIds.getPatchId(commit, repository);
+		return patchId == PatchIdCache.NONE || seenPatches.add(patchId);
 	}
-}
 
+	/**
+	 * Hashes the message as if it had been trimmed and lower cased, without creating either string.
+	 */
+	static long hash(String message) {
+		int start = 0;
+		int end = message.length();
+		while (start < end && message.charAt(start) <= ' ') {
+			start++;
+		}
+		while (end > start && message.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		// 64 bit FNV-1a, then mixed as in MurmurHash3 so that every bit of the hash depends on every character
+		long hash = 0xcbf29ce484222325L;
+		for (int i = start; i < end; i++) {
+			hash ^= Character.toLowerCase(message.charAt(i));
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb3f99fa0b653L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
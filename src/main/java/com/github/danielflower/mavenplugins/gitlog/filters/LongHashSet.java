@@ -0,0 +1,101 @@
+package com.github.danielflower.mavenplugins.gitlog.filters;
+
+/**
+ * A set of longs kept in a single array with open addressing and linear probing. Each value costs between 11
+ * and 21 bytes depending on how recently the table grew, against around 60 for a boxed Long in a HashSet.
+ */
+class LongHashSet {
+
+	private static final int MIN_CAPACITY = 16;
+
+	// zero marks an empty slot, so whether zero itself is in the set is kept apart
+	private long[] table;
+	private boolean containsZero;
+	private int size;
+
+	LongHashSet() {
+		this(MIN_CAPACITY);
+	}
+
+	LongHashSet(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity * 3 < expectedSize * 4) {
+			capacity <<= 1;
+		}
+		table = new long[capacity];
+	}
+
+	/**
+	 * Adds the value, returning false if it was already in the set.
+	 */
+	boolean add(long value) {
+		if (value == 0) {
+			if (containsZero) {
+				return false;
+			}
+			containsZero = true;
+			size++;
+			return true;
+		}
+		if ((size + 1) * 4 > table.length * 3) {
+			grow();
+		}
+		if (!insert(table, value)) {
+			return false;
+		}
+		size++;
+		return true;
+	}
+
+	boolean contains(long value) {
+		if (value == 0) {
+			return containsZero;
+		}
+		int mask = table.length - 1;
+		for (int i = slot(value, mask); table[i] != 0; i = (i + 1) & mask) {
+			if (table[i] == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * The number of bytes taken by the table of values.
+	 */
+	long tableBytes() {
+		return 8L * table.length;
+	}
+
+	private void grow() {
+		long[] grown = new long[table.length * 2];
+		for (long value : table) {
+			if (value != 0) {
+				insert(grown, value);
+			}
+		}
+		table = grown;
+	}
+
+	private static boolean insert(long[] table, long value) {
+		int mask = table.length - 1;
+		int i = slot(value, mask);
+		while (table[i] != 0) {
+			if (table[i] == value) {
+				return false;
+			}
+			i = (i + 1) & mask;
+		}
+		table[i] = value;
+		return true;
+	}
+
+	private static int slot(long value, int mask) {
+		// mixed so that values which only differ in a few bits, such as consecutive numbers, do not cluster
+		return (int) ((value * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+	}
+}
@@ -1,18 +1,77 @@
 
 package com.github.danielflower.mavenplugins.gitlog.filters;
 
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.util.RawParseUtils;
+
+import java.io.IOException;
 
 /**
  * Removes messages added by the Maven release plugin as those just tend to add noise.
  * Note that the tag name generated is still displayed.
  */
-public class MavenReleasePluginMessageFilter implements CommitFilter {
+public class MavenReleasePluginMessageFilter implements RevCommitFilter {
+
+	private static final String PREFIX = "[maven-release-plugin]";
+
+	/**
+	 * Matches the prefix against the raw message, so that the messages of the other commits are not decoded.
+	 */
+	private static class ReleaseMessageRevFilter extends RevFilter {
+		private static final byte[] RAW_PREFIX = Constants.encodeASCII(PREFIX);
+
+		@Override
+		public boolean include(RevWalk walker, RevCommit commit) throws IOException {
+			byte[] raw = commit.getRawBuffer();
+			if (raw != null) {
+				return !isRelease(raw);
+			}
+			// the walk does not keep bodies, so read this one without keeping it
+			return !isRelease(walker.getObjectReader().open(commit, Constants.OBJ_COMMIT).getCachedBytes());
+		}
+
+		private static boolean isRelease(byte[] raw) {
+			int message = RawParseUtils.commitMessage(raw, 0);
+			if (message < 0 || raw.length - message < RAW_PREFIX.length) {
+				return false;
+			}
+			for (int i = 0; i < RAW_PREFIX.length; i++) {
+				if (raw[message + i] != RAW_PREFIX[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public boolean requiresCommitBody() {
+			// asking the walk for the body would make it keep the body of every commit it produces
+			return false;
+		}
+
+		@Override
+		public RevFilter clone() {
+			return this;
+		}
+
+		@Override
+		public String toString() {
+			return "NOT_MAVEN_RELEASE";
+		}
+	}
+
 	@Override
 	public boolean renderCommit(RevCommit commit, Repository repository) {
-		boolean isMavenRelease = commit.getShortMessage().startsWith("[maven-release-plugin]");
+		boolean isMavenRelease = commit.getShortMessage().startsWith(PREFIX);
 		return !isMavenRelease;
 	}
+
+	public RevFilter toRevFilter(RevWalk walk) {
+		return new ReleaseMessageRevFilter();
+	}
 }
 
@@ -2,16 +2,25 @@ package com.github.danielflower.mavenplugins.gitlog.filters;
 
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 
 /**
  * Filters out commits that are simply the result of merging two branches.
  */
-public class MergeCommitFilter implements CommitFilter {
+public class MergeCommitFilter implements RevCommitFilter {
 	@Override
 	public boolean renderCommit(RevCommit commit,Repository repository) {
 		// A merge has two parents. Non-merge commits have a single parent,
 		// or no parents for the first commit in the repository.
 		return commit.getParentCount() < 2;
 	}
+
+	public RevFilter toRevFilter(RevWalk walk) {
+		// with a tree filter, a merge whose parents are simplified into one is no longer a merge, but the
+		// parents are only rewritten after the walk's filter has seen the commit
+		return walk.getTreeFilter() == TreeFilter.ALL ? RevFilter.NO_MERGES : null;
+	}
 }
 
@@ -15,23 +15,103 @@ import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.eclipse.jgit.util.io.DisabledOutputStream;
 
 /**
  * Filter that checks whether files are in a given directory, before accepting
- * them
+ * them.
+ * <p>
+ * When applied to the walk the directory is matched by JGit as it reads the
+ * history, so commits outside of the module are skipped without diffing them.
  * 
  * @author mvaawl@gmail.com
  *
  */
-public class ModuleCommitFilter implements CommitFilter {
+public class ModuleCommitFilter implements WalkCommitFilter {
 
 	private String projectBaseDir;
 	private Log log;
+	private boolean followRenames;
+	private String modulePath;
+	private ChangedPathIndex changedPaths;
 
 	public ModuleCommitFilter(String projectBaseDir, Log log) {
+		this(projectBaseDir, log, false);
+	}
+
+	/**
+	 * @param followRenames if true, commits made before the module was moved to
+	 *            its current directory are matched against its previous
+	 *            directory when the filter is applied to the walk.
+	 */
+	public ModuleCommitFilter(String projectBaseDir, Log log, boolean followRenames) {
 		this.projectBaseDir = projectBaseDir;
 		this.log = log;
+		this.followRenames = followRenames;
+	}
+
+	/**
+	 * Creates a filter for the module in the given directory, relative to the
+	 * work tree of the repository.
+	 */
+	public static ModuleCommitFilter forModulePath(String modulePath, Log log, boolean followRenames) {
+		ModuleCommitFilter filter = new ModuleCommitFilter(null, log, followRenames);
+		filter.modulePath = modulePath;
+		return filter;
+	}
+
+	/**
+	 * Rejects the commits that the index knows did not change the module without diffing them, when the
+	 * filter is not applied to the walk.
+	 */
+	public void setChangedPathIndex(ChangedPathIndex changedPaths) {
+		this.changedPaths = changedPaths;
+	}
+
+	public void applyTo(RevWalk walk, Repository repository) throws IOException {
+		String modulePath = getModulePath(repository);
+		if (log.isDebugEnabled()) {
+			log.debug("[ModuleCommitFilter] Limiting the walk to : " + modulePath);
+		}
+		if (modulePath.length() == 0) {
+			return;
+		}
+		if (followRenames) {
+			walk.setRevFilter(new ModuleRenameFollowFilter(repository, modulePath));
+		} else {
+			walk.setTreeFilter(AndTreeFilter.create(PathFilter.create(modulePath), TreeFilter.ANY_DIFF));
+		}
+	}
+
+	/**
+	 * Returns the directory of the module relative to the work tree, using
+	 * forward slashes.
+	 */
+	String getModulePath(Repository repository) {
+		if (modulePath != null) {
+			return modulePath;
+		}
+		String repositoryBaseDir = repository.getWorkTree().getAbsolutePath();
+		String modulePath = new File(projectBaseDir).getAbsolutePath();
+		if (!modulePath.startsWith(repositoryBaseDir)) {
+			throw new IllegalArgumentException(projectBaseDir + " is not in the work tree of " + repository);
+		}
+		modulePath = modulePath.substring(repositoryBaseDir.length()).replace(File.separatorChar, '/');
+		while (modulePath.startsWith("/")) {
+			modulePath = modulePath.substring(1);
+		}
+		while (modulePath.endsWith("/")) {
+			modulePath = modulePath.substring(0, modulePath.length() - 1);
+		}
+		return modulePath;
+	}
+
+	@Override
+	public String toString() {
+		return "ModuleCommitFilter[" + (modulePath != null ? modulePath : projectBaseDir) + (followRenames ? ", following renames]" : "]");
 	}
 
 	public boolean renderCommit(RevCommit commit, Repository repository) {
@@ -48,6 +128,8 @@ public class ModuleCommitFilter implements CommitFilter {
 		}
 
 		String repositoryBaseDir = repositoryFile.getParentFile().getPath();
+		String projectBaseDir = (this.projectBaseDir != null) ? this.projectBaseDir
+				: repositoryBaseDir + File.separator + modulePath;
 
 		if (commit.getParentCount() == 0) {
 			if (log.isDebugEnabled()) {
@@ -63,10 +145,10 @@ public class ModuleCommitFilter implements CommitFilter {
 					if (log.isDebugEnabled()) {
 						log.debug("[ModuleCommitFilter] File identified in this commit : " + diffFullPath);
 					}
-					if (diffFullPath.startsWith(this.projectBaseDir + "/")) {
+					if (diffFullPath.startsWith(projectBaseDir + "/")) {
 						if (log.isDebugEnabled()) {
 							log.debug("[ModuleCommitFilter] Diff Full Path : " + diffFullPath);
-							log.debug("[ModuleCommitFilter] Project Base Dir : " + this.projectBaseDir);
+							log.debug("[ModuleCommitFilter] Project Base Dir : " + projectBaseDir);
 							log.debug("[ModuleCommitFilter] Accepted commit within this service : " + commit.getName());
 						}
 						tw.release();
@@ -93,6 +175,14 @@ public class ModuleCommitFilter implements CommitFilter {
 				if (log.isDebugEnabled()) {
 					log.debug("[ModuleCommitFilter] This is commit has parents: " + commit.getName());
 				}
+				String modulePath = getModulePath(repository);
+				if (changedPaths != null && modulePath.length() > 0
+						&& !changedPaths.mightHaveChanged(commit, modulePath, repository)) {
+					if (log.isDebugEnabled()) {
+						log.debug("[ModuleCommitFilter] Commit did not change this service : " + commit.getName());
+					}
+					return false;
+				}
 				RevWalk rw = new RevWalk(repository);
 				RevCommit parent = rw.parseCommit(commit.getParent(0).getId());
 				rw.release();
@@ -106,10 +196,10 @@ public class ModuleCommitFilter implements CommitFilter {
 					if (log.isDebugEnabled()) {
 						log.debug("[ModuleCommitFilter] File identified in this commit : " + diffFullPath);
 					}
-					if (diffFullPath.startsWith(this.projectBaseDir + "/")) {
+					if (diffFullPath.startsWith(projectBaseDir + "/")) {
 						if (log.isDebugEnabled()) {
 							log.debug("[ModuleCommitFilter] Diff Full Path : " + diffFullPath);
-							log.debug("[ModuleCommitFilter] Project Base Dir : " + this.projectBaseDir);
+							log.debug("[ModuleCommitFilter] Project Base Dir : " + projectBaseDir);
 							log.debug("[ModuleCommitFilter] Accepted commit within this service : " + commit.getName());
 						}
 						return true;
@@ -0,0 +1,134 @@
+package com.github.danielflower.mavenplugins.gitlog.filters;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.diff.DiffConfig;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.RenameDetector;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.errors.StopWalkException;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * Accepts the commits that changed a module directory compared to each of their parents, as a walk limited
+ * to the module's path does, following the module to its previous location when a commit moved it there.
+ * <p>
+ * JGit's own FollowFilter only follows single files, so the module's path is tracked here instead: when a
+ * commit adds every file under the module compared to one of its parents, rename detection is run against
+ * that parent and, if the files were moved from another directory, that parent and the commits before it are
+ * matched against that directory. The path is passed from each commit to its parents, so the branches of a
+ * merge each keep the path the module had on them.
+ * <p>
+ * Unlike a path limited walk, which leaves out the other branches of a merge that kept the module as it was
+ * on one of its parents, every branch is walked, so the commits that changed the module on a branch whose
+ * changes were not kept in the merge are accepted too.
+ */
+class ModuleRenameFollowFilter extends RevFilter {
+
+	private final Repository repository;
+	private final String initialPath;
+	// the path of the module in the commits the walk has not reached yet, as seen from their children
+	private final Map<RevCommit, String> paths = new HashMap<RevCommit, String>();
+	private TreeWalk treeWalk;
+
+	ModuleRenameFollowFilter(Repository repository, String path) {
+		this.repository = repository;
+		this.initialPath = path;
+	}
+
+	@Override
+	public boolean include(RevWalk walker, RevCommit commit) throws StopWalkException, MissingObjectException,
+			IncorrectObjectTypeException, IOException {
+		if (treeWalk == null) {
+			treeWalk = new TreeWalk(walker.getObjectReader());
+			treeWalk.setRecursive(true);
+		}
+		// a commit is only reached before its children when the clocks were wrong, and then keeps the module's path
+		String path = paths.remove(commit);
+		if (path == null) {
+			path = initialPath;
+		}
+		treeWalk.setFilter(AndTreeFilter.create(PathFilter.create(path), TreeFilter.ANY_DIFF));
+		if (commit.getParentCount() == 0) {
+			treeWalk.reset(commit.getTree());
+			return treeWalk.next();
+		}
+		boolean changed = true;
+		for (int p = 0; p < commit.getParentCount(); p++) {
+			RevCommit parent = commit.getParent(p);
+			walker.parseHeaders(parent);
+			treeWalk.reset(parent.getTree(), commit.getTree());
+			boolean differs = false;
+			boolean allAdded = true;
+			while (treeWalk.next()) {
+				differs = true;
+				if (treeWalk.getRawMode(0) != 0) {
+					allAdded = false;
+					break;
+				}
+			}
+			changed &= differs;
+			if (!paths.containsKey(parent)) {
+				paths.put(parent, (differs && allAdded) ? followRename(walker, parent, commit, path) : path);
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Returns the path the module had in the parent, given that every file under its path in the commit was
+	 * added compared to that parent.
+	 */
+	private String followRename(RevWalk walker, RevCommit parent, RevCommit commit, String path) throws IOException {
+		TreeWalk diffWalk = new TreeWalk(walker.getObjectReader());
+		try {
+			diffWalk.setRecursive(true);
+			diffWalk.setFilter(TreeFilter.ANY_DIFF);
+			diffWalk.reset(parent.getTree(), commit.getTree());
+			RenameDetector renameDetector = new RenameDetector(walker.getObjectReader(),
+					repository.getConfig().get(DiffConfig.KEY));
+			renameDetector.addAll(DiffEntry.scan(diffWalk));
+			List<DiffEntry> entries = renameDetector.compute();
+			String prefix = path + "/";
+			for (DiffEntry entry : entries) {
+				if (entry.getChangeType() != DiffEntry.ChangeType.RENAME || !entry.getNewPath().startsWith(prefix)) {
+					continue;
+				}
+				String relativePath = entry.getNewPath().substring(path.length());
+				String oldPath = entry.getOldPath();
+				if (oldPath.endsWith(relativePath) && oldPath.length() > relativePath.length()) {
+					return oldPath.substring(0, oldPath.length() - relativePath.length());
+				}
+			}
+			return path;
+		} finally {
+			diffWalk.release();
+		}
+	}
+
+	@Override
+	public RevFilter clone() {
+		return new ModuleRenameFollowFilter(repository, initialPath);
+	}
+
+	@Override
+	public boolean requiresCommitBody() {
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return "MODULE_FOLLOW(" + initialPath + ")";
+	}
+}
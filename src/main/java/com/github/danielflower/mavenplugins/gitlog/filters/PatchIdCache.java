@@ -0,0 +1,282 @@
+package com.github.danielflower.mavenplugins.gitlog.filters;
+
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.PatchIdDiffFormatter;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.util.NB;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The git patch-ids of commits, as computed by <code>git patch-id</code>: a hash of the changes a commit makes
+ * to its first parent, ignoring line numbers, so that a cherry-picked commit has the same
+ * patch-id as the original.
+ * <p>
+ * Diffing every commit takes far longer than walking the history, so the patch-ids are kept on disk between
+ * runs. Only the first 64 bits of the commit ID and of the patch-id are kept, as pairs sorted by commit, and the
+ * file is mapped rather than read so that looking a commit up does not need memory for every commit in it.
+ * Since a mapped file cannot always be replaced, each save writes a new file, see {@link CacheGenerations}.
+ */
+public class PatchIdCache {
+
+	/**
+	 * Returned for commits without a patch-id: the first commit, merges, commits that change nothing, and
+	 * commits that could not be diffed.
+	 */
+	public static final long NONE = 0;
+
+	private static final long HEADER = 0x4750494400000001L; // "GPID", version 1
+	private final CacheGenerations files;
+	private final Log log;
+
+	private LongBuffer stored;
+	private long[] addedCommits = new long[64];
+	private long[] addedPatchIds = new long[64];
+	private int added;
+	private boolean warned;
+
+	public PatchIdCache(File directory, Log log) {
+		this.files = new CacheGenerations(directory, "gitlog-patch-ids", "cache");
+		this.log = log;
+	}
+
+	/**
+	 * Returns the first 64 bits of the patch-id of the commit, computing it if it is not cached, or
+	 * {@link #NONE} if the commit has no patch-id.
+	 */
+	public long getPatchId(RevCommit commit, Repository repository) {
+		if (commit.getParentCount() != 1) {
+			return NONE;
+		}
+		if (stored == null) {
+			stored = load();
+		}
+		long key = prefix(commit);
+		int index = find(stored, key);
+		if (index >= 0) {
+			return stored.get(index + 1);
+		}
+		long patchId;
+		try {
+			patchId = compute(commit, repository);
+		} catch (IOException e) {
+			if (!warned) {
+				warned = true;
+				log.warn("Could not compute the patch-id of " + commit.name()
+						+ "; commits that cannot be diffed are not checked for cherry-picks", e);
+			}
+			return NONE;
+		}
+		if (added == addedCommits.length) {
+			addedCommits = Arrays.copyOf(addedCommits, added * 2);
+			addedPatchIds = Arrays.copyOf(addedPatchIds, added * 2);
+		}
+		addedCommits[added] = key;
+		addedPatchIds[added] = patchId;
+		added++;
+		return patchId;
+	}
+
+	private static long compute(RevCommit commit, Repository repository) throws IOException {
+		ObjectReader reader = repository.newObjectReader();
+		PatchIdDiffFormatter formatter = new PatchIdDiffFormatter();
+		try {
+			formatter.setRepository(repository);
+			List<DiffEntry> changes = formatter.scan(treeOf(reader, commit.getParent(0)), treeOf(reader, commit));
+			if (changes.isEmpty()) {
+				return NONE;
+			}
+			formatter.format(changes);
+			long patchId = prefix(formatter.getCalulatedPatchId());
+			// NONE is reserved, and a patch-id starting with 64 zero bits is as good as unique anyway
+			return (patchId == NONE) ? 1 : patchId;
+		} finally {
+			formatter.release();
+			reader.release();
+		}
+	}
+
+	/**
+	 * Reads the tree of a commit without parsing it into a walk, which would keep it in memory.
+	 */
+	private static ObjectId treeOf(ObjectReader reader, AnyObjectId commit) throws IOException {
+		byte[] raw = reader.open(commit, Constants.OBJ_COMMIT).getCachedBytes();
+		// every commit starts with "tree " and the hex ID of its tree
+		return ObjectId.fromString(raw, 5);
+	}
+
+	private static long prefix(AnyObjectId id) {
+		byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+		id.copyRawTo(raw, 0);
+		return NB.decodeInt64(raw, 0);
+	}
+
+	/**
+	 * Returns the position of the pair for the given commit, or -1 if it is not in the buffer.
+	 */
+	private static int find(LongBuffer pairs, long key) {
+		int low = 0;
+		int high = pairs.limit() / 2 - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			long value = pairs.get(middle * 2);
+			if (value < key) {
+				low = middle + 1;
+			} else if (value > key) {
+				high = middle - 1;
+			} else {
+				return middle * 2;
+			}
+		}
+		return -1;
+	}
+
+	private LongBuffer load() {
+		File file = files.latest();
+		if (file == null) {
+			log.debug("No patch-id cache found in " + files.getDirectory());
+			return LongBuffer.allocate(0);
+		}
+		FileInputStream in = null;
+		try {
+			in = new FileInputStream(file);
+			FileChannel channel = in.getChannel();
+			// the mapping stays valid once the channel is closed
+			LongBuffer longs = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asLongBuffer();
+			if (longs.limit() % 2 != 1 || longs.get(0) != HEADER) {
+				log.info("Ignoring the patch-id cache at " + file + " as it was written by a different version");
+				return LongBuffer.allocate(0);
+			}
+			longs.position(1);
+			return longs.slice();
+		} catch (IOException e) {
+			log.warn("Could not read the patch-id cache at " + file + "; it will be rebuilt", e);
+			return LongBuffer.allocate(0);
+		} finally {
+			close(in);
+		}
+	}
+
+	/**
+	 * Adds the patch-ids computed since the cache was loaded to the file on disk. The new file is written under
+	 * a temporary name and then renamed, so that an interrupted build never leaves a half-written cache behind.
+	 */
+	public void save() {
+		if (added == 0) {
+			return;
+		}
+		File directory = files.getDirectory();
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			log.warn("Could not create the patch-id cache directory " + directory);
+			return;
+		}
+		sort(addedCommits, addedPatchIds, 0, added - 1);
+		File file = null;
+		File temp = null;
+		DataOutputStream out = null;
+		try {
+			file = files.next();
+			temp = new File(directory, file.getName() + ".tmp");
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 65536));
+			out.writeLong(HEADER);
+			// both are sorted by commit, so they are merged as they are written
+			int old = 0;
+			int oldCount = stored.limit() / 2;
+			int next = 0;
+			while (old < oldCount || next < added) {
+				if (next == added || (old < oldCount && stored.get(old * 2) < addedCommits[next])) {
+					out.writeLong(stored.get(old * 2));
+					out.writeLong(stored.get(old * 2 + 1));
+					old++;
+				} else {
+					out.writeLong(addedCommits[next]);
+					out.writeLong(addedPatchIds[next]);
+					next++;
+				}
+			}
+			out.close();
+			out = null;
+			// the old file stays mapped until the buffer is collected, so it is only deleted if it can be
+			stored = null;
+			files.replace(file, temp);
+			files.deleteOlderThan(file);
+			log.debug("Added " + added + " patch-ids to the patch-id cache at " + file);
+			added = 0;
+		} catch (IOException e) {
+			log.warn("Could not write the patch-id cache in " + directory, e);
+			if (file != null) {
+				close(out);
+				out = null;
+				temp.delete();
+				file.delete();
+			}
+		} finally {
+			close(out);
+		}
+	}
+
+	/**
+	 * Sorts the pairs by commit, moving the patch-ids along with them.
+	 */
+	private static void sort(long[] commits, long[] patchIds, int low, int high) {
+		while (low < high) {
+			long pivot = commits[(low + high) >>> 1];
+			int i = low;
+			int j = high;
+			while (i <= j) {
+				while (commits[i] < pivot) {
+					i++;
+				}
+				while (commits[j] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					swap(commits, i, j);
+					swap(patchIds, i, j);
+					i++;
+					j--;
+				}
+			}
+			// recurse into the smaller half so that the stack stays shallow
+			if (j - low < high - i) {
+				sort(commits, patchIds, low, j);
+				low = i;
+			} else {
+				sort(commits, patchIds, i, high);
+				high = j;
+			}
+		}
+	}
+
+	private static void swap(long[] values, int i, int j) {
+		long value = values[i];
+		values[i] = values[j];
+		values[j] = value;
+	}
+
+	private static void close(Closeable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+}
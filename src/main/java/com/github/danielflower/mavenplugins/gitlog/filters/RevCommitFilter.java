@@ -0,0 +1,21 @@
+package com.github.danielflower.mavenplugins.gitlog.filters;
+
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+
+/**
+ * A commit filter that can also be evaluated by the RevWalk, as each commit is read, so that the commits it
+ * rejects are dropped before they reach the renderers. Unlike a {@link WalkCommitFilter}, any number of these
+ * can be combined on the same walk. When the walk evaluates the filter, {@link #renderCommit} is not called.
+ */
+public interface RevCommitFilter extends CommitFilter {
+
+	/**
+	 * Returns a filter including exactly the commits {@link #renderCommit} accepts when given the commits
+	 * produced by the walk, or null if that cannot be decided while the walk reads the commits, for example
+	 * because the walk rewrites the parents of the commits afterwards. The walk has its tree filter set, but
+	 * has not started yet.
+	 */
+	public RevFilter toRevFilter(RevWalk walk);
+
+}
@@ -0,0 +1,19 @@
+package com.github.danielflower.mavenplugins.gitlog.filters;
+
+import java.io.IOException;
+
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+/**
+ * A commit filter that can be applied by the RevWalk while the history is read, so that the commits it
+ * rejects never reach the renderers. When the walk applies the filter, {@link #renderCommit} is not called.
+ */
+public interface WalkCommitFilter extends CommitFilter {
+
+	/**
+	 * Sets up the walk, before it is started, so that it only returns the commits this filter accepts.
+	 */
+	public void applyTo(RevWalk walk, Repository repository) throws IOException;
+
+}
@@ -0,0 +1,133 @@
+package com.github.danielflower.mavenplugins.gitlog.renderers;
+
+import java.util.List;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/**
+ * The details of a commit that the changelogs show, read from the commit once so that every renderer can
+ * use them without parsing the commit again. Instances are created by {@link ChangeLogEntryFactory}.
+ */
+public final class ChangeLogEntry {
+
+	private final RevCommit commit;
+	private final String id;
+	private final int commitTime;
+	private final String date;
+	private final String message;
+	private final boolean fullMessage;
+	private final String authorName;
+	private final String authorEmail;
+	private final String committerName;
+	private final String committerEmail;
+	private final List<String> tags;
+
+	ChangeLogEntry(RevCommit commit, boolean keepCommit, boolean fullMessage, String date, String authorName,
+			String authorEmail, String committerName, String committerEmail, List<String> tags) {
+		this.commit = keepCommit ? commit : null;
+		this.id = commit.getName();
+		this.commitTime = commit.getCommitTime();
+		this.date = date;
+		this.message = fullMessage ? commit.getFullMessage() : commit.getShortMessage();
+		this.fullMessage = fullMessage;
+		this.authorName = authorName;
+		this.authorEmail = authorEmail;
+		this.committerName = committerName;
+		this.committerEmail = committerEmail;
+		this.tags = tags;
+	}
+
+	/**
+	 * The commit this entry was read from, for renderers that still work with JGit commits, or null unless
+	 * the factory was asked to keep the commits.
+	 */
+	public RevCommit getCommit() {
+		return commit;
+	}
+
+	/**
+	 * The full hex SHA-1 of the commit.
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * The commit time in seconds since the epoch.
+	 */
+	public int getCommitTime() {
+		return commitTime;
+	}
+
+	/**
+	 * The commit time, formatted for display.
+	 */
+	public String getDate() {
+		return date;
+	}
+
+	/**
+	 * The first paragraph of the message, on one line. It is worked out from the full message when that is
+	 * the one the entry holds.
+	 */
+	public String getShortMessage() {
+		return fullMessage ? shortMessageOf(message) : message;
+	}
+
+	/**
+	 * The full message, which is only held when the factory was asked for full messages.
+	 *
+	 * @throws IllegalStateException if the entry only holds the short message
+	 */
+	public String getFullMessage() {
+		if (!fullMessage) {
+			throw new IllegalStateException("The entry of " + id + " only holds the short message of the commit");
+		}
+		return message;
+	}
+
+	public String getMessage(boolean fullGitMessage) {
+		return fullGitMessage ? getFullMessage() : getShortMessage();
+	}
+
+	public String getAuthorName() {
+		return authorName;
+	}
+
+	public String getAuthorEmail() {
+		return authorEmail;
+	}
+
+	public String getCommitterName() {
+		return committerName;
+	}
+
+	public String getCommitterEmail() {
+		return committerEmail;
+	}
+
+	/**
+	 * The names of the tags that point at this commit. The list cannot be modified.
+	 */
+	public List<String> getTags() {
+		return tags;
+	}
+
+	// the same as RevCommit.getShortMessage(): the lines up to the first blank one, joined with spaces
+	static String shortMessageOf(String fullMessage) {
+		int end = 0;
+		while (end < fullMessage.length() && fullMessage.charAt(end) != '\n') {
+			int lineFeed = fullMessage.indexOf('\n', end);
+			end = (lineFeed < 0) ? fullMessage.length() : lineFeed + 1;
+		}
+		while (end > 0 && fullMessage.charAt(end - 1) == '\n') {
+			end--;
+		}
+		return fullMessage.substring(0, end).replace('\n', ' ');
+	}
+
+	@Override
+	public String toString() {
+		return id + " " + getShortMessage();
+	}
+}
@@ -0,0 +1,83 @@
+package com.github.danielflower.mavenplugins.gitlog.renderers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTag;
+
+/**
+ * Creates the {@link ChangeLogEntry} of each commit. Names and email addresses are shared between the
+ * entries of one changelog, as the same few people usually make most of the commits. Entries hold the full
+ * message of their commit, from which the short one is worked out, unless only short messages are asked for.
+ */
+public class ChangeLogEntryFactory {
+
+	private final DateFormatter dateFormatter;
+	private final Map<String, String> strings = new HashMap<String, String>();
+	private boolean fullMessages = true;
+	private boolean keepCommits;
+
+	public ChangeLogEntryFactory(DateFormatter dateFormatter) {
+		this.dateFormatter = dateFormatter;
+	}
+
+	/**
+	 * Creates a factory that formats dates with the format set on {@link Formatter}.
+	 */
+	public ChangeLogEntryFactory() {
+		this(Formatter.getDateFormatter());
+	}
+
+	/**
+	 * Sets whether the entries hold the full message of their commit, or only the short one when none of
+	 * the renderers shows full messages.
+	 */
+	public void setFullMessages(boolean fullMessages) {
+		this.fullMessages = fullMessages;
+	}
+
+	/**
+	 * Sets whether the entries keep the commit they were read from, which is only needed by renderers that
+	 * still work with JGit commits.
+	 *
+	 * @see ChangeLogRendererAdapter
+	 */
+	public void setKeepCommits(boolean keepCommits) {
+		this.keepCommits = keepCommits;
+	}
+
+	public ChangeLogEntry create(RevCommit commit, List<RevTag> revTags) {
+		PersonIdent author = commit.getAuthorIdent();
+		PersonIdent committer = commit.getCommitterIdent();
+		List<String> tags;
+		if (revTags == null || revTags.isEmpty()) {
+			tags = Collections.emptyList();
+		} else {
+			tags = new ArrayList<String>(revTags.size());
+			for (RevTag revTag : revTags) {
+				tags.add(revTag.getTagName());
+			}
+			tags = Collections.unmodifiableList(tags);
+		}
+		return new ChangeLogEntry(commit, keepCommits, fullMessages, dateFormatter.format(commit.getCommitTime()),
+				intern(author.getName()), intern(author.getEmailAddress()),
+				intern(committer.getName()), intern(committer.getEmailAddress()), tags);
+	}
+
+	private String intern(String value) {
+		if (value == null) {
+			return null;
+		}
+		String shared = strings.get(value);
+		if (shared == null) {
+			strings.put(value, value);
+			shared = value;
+		}
+		return shared;
+	}
+}
@@ -0,0 +1,14 @@
+package com.github.danielflower.mavenplugins.gitlog.renderers;
+
+import java.io.IOException;
+
+/**
+ * A renderer that works from the {@link ChangeLogEntry} of each commit rather than from the commit itself,
+ * so that the commit is only parsed once however many renderers are used. {@link #renderCommit} is only
+ * called by code that does not create entries.
+ */
+public interface ChangeLogEntryRenderer extends ChangeLogRenderer {
+
+	public void renderEntry(ChangeLogEntry entry) throws IOException;
+
+}
@@ -0,0 +1,59 @@
+package com.github.danielflower.mavenplugins.gitlog.renderers;
+
+import java.io.IOException;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTag;
+
+/**
+ * Lets a renderer written against {@link ChangeLogRenderer} be given changelog entries, by handing it the
+ * commit each entry was read from. The entries have to be created by a factory that keeps the commits.
+ *
+ * @see ChangeLogEntryFactory#setKeepCommits(boolean)
+ */
+public class ChangeLogRendererAdapter implements ChangeLogEntryRenderer {
+
+	private final ChangeLogRenderer renderer;
+
+	public ChangeLogRendererAdapter(ChangeLogRenderer renderer) {
+		this.renderer = renderer;
+	}
+
+	/**
+	 * Returns the renderer itself if it already accepts entries, otherwise an adapter for it.
+	 */
+	public static ChangeLogEntryRenderer adapt(ChangeLogRenderer renderer) {
+		if (renderer instanceof ChangeLogEntryRenderer) {
+			return (ChangeLogEntryRenderer) renderer;
+		}
+		return new ChangeLogRendererAdapter(renderer);
+	}
+
+	public void renderHeader(String reportTitle) throws IOException {
+		renderer.renderHeader(reportTitle);
+	}
+
+	public void renderTag(RevTag tag) throws IOException {
+		renderer.renderTag(tag);
+	}
+
+	public void renderEntry(ChangeLogEntry entry) throws IOException {
+		if (entry.getCommit() == null) {
+			throw new IllegalStateException("The entry of " + entry.getId() + " was created without its commit, which "
+					+ renderer.getClass().getName() + " needs");
+		}
+		renderer.renderCommit(entry.getCommit());
+	}
+
+	public void renderCommit(RevCommit commit) throws IOException {
+		renderer.renderCommit(commit);
+	}
+
+	public void renderFooter() throws IOException {
+		renderer.renderFooter();
+	}
+
+	public void close() {
+		renderer.close();
+	}
+}
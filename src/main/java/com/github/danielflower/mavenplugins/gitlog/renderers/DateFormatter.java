@@ -0,0 +1,121 @@
+package com.github.danielflower.mavenplugins.gitlog.renderers;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Formats the dates of a changelog with one pattern and time zone. Instances never change and can be shared
+ * between threads: each thread formats with its own {@link SimpleDateFormat}, and the text of recently
+ * formatted commit times is kept, as many commits of a history are made in the same second.
+ */
+public final class DateFormatter {
+
+	public static final String DEFAULT_FORMAT = "yyyy-MM-dd HH:mm:ss Z";
+
+	private static final int CACHE_SIZE = 256;
+
+	private static class Formatted {
+		final long secondsSinceEpoch;
+		final String text;
+
+		Formatted(long secondsSinceEpoch, String text) {
+			this.secondsSinceEpoch = secondsSinceEpoch;
+			this.text = text;
+		}
+	}
+
+	private final String pattern;
+	private final TimeZone timeZone;
+	private final ThreadLocal<DateFormat> dateFormat;
+	// slots are replaced without locking; a reader sees either a complete entry or none
+	private final Formatted[] cache = new Formatted[CACHE_SIZE];
+
+	/**
+	 * @param pattern a {@link SimpleDateFormat} pattern
+	 * @param timeZone the time zone dates are shown in, or null for the default time zone
+	 * @throws IllegalArgumentException if the pattern is not valid
+	 */
+	public DateFormatter(String pattern, TimeZone timeZone) {
+		if (pattern == null) {
+			throw new IllegalArgumentException("Date format should not be null");
+		}
+		this.pattern = pattern;
+		this.timeZone = (TimeZone) (timeZone == null ? TimeZone.getDefault() : timeZone).clone();
+		// fails here rather than on the first date
+		newDateFormat();
+		this.dateFormat = new ThreadLocal<DateFormat>() {
+			@Override
+			protected DateFormat initialValue() {
+				return newDateFormat();
+			}
+		};
+	}
+
+	public DateFormatter() {
+		this(DEFAULT_FORMAT, null);
+	}
+
+	/**
+	 * Creates a formatter for the given pattern and time zone ID, warning and falling back to the defaults
+	 * when either is not valid.
+	 */
+	public static DateFormatter create(String pattern, String timeZoneId, Log log) {
+		TimeZone timeZone = null;
+		if (timeZoneId != null && !"".equals(timeZoneId)) {
+			timeZone = TimeZone.getTimeZone(timeZoneId);
+			// an ID that is not understood gives GMT, while offsets such as GMT+1 get an ID of their own
+			if ("GMT".equals(timeZone.getID()) && !"GMT".equals(timeZoneId)) {
+				log.warn(String.format("Unknown time zone '%s', using the default: '%s'", timeZoneId, TimeZone.getDefault().getID()));
+				timeZone = null;
+			}
+		}
+		if (pattern == null) {
+			log.warn(String.format("Date format should not be null, using default: '%s'", DEFAULT_FORMAT));
+			return new DateFormatter(DEFAULT_FORMAT, timeZone);
+		}
+		try {
+			return new DateFormatter(pattern, timeZone);
+		} catch (IllegalArgumentException iae) {
+			log.warn(String.format("Invalid date format '%s', using default: '%s'", pattern, DEFAULT_FORMAT));
+			return new DateFormatter(DEFAULT_FORMAT, timeZone);
+		}
+	}
+
+	public String getPattern() {
+		return pattern;
+	}
+
+	public TimeZone getTimeZone() {
+		return (TimeZone) timeZone.clone();
+	}
+
+	public String format(int secondsSinceEpoch) {
+		int slot = secondsSinceEpoch & (CACHE_SIZE - 1);
+		Formatted formatted = cache[slot];
+		if (formatted != null && formatted.secondsSinceEpoch == secondsSinceEpoch) {
+			return formatted.text;
+		}
+		String text = format(new Date(secondsSinceEpoch * 1000L));
+		cache[slot] = new Formatted(secondsSinceEpoch, text);
+		return text;
+	}
+
+	public String format(Date date) {
+		return dateFormat.get().format(date);
+	}
+
+	private DateFormat newDateFormat() {
+		SimpleDateFormat format = new SimpleDateFormat(pattern);
+		format.setTimeZone(timeZone);
+		return format;
+	}
+
+	@Override
+	public String toString() {
+		return pattern + " " + timeZone.getID();
+	}
+}
@@ -0,0 +1,303 @@
+package com.github.danielflower.mavenplugins.gitlog.renderers;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a changelog file as UTF-8, whatever the platform encoding is. The characters are collected in a
+ * buffer, encoded into a direct buffer and written to the file's channel once it is full, so the many small
+ * writes of the renderers cost no more than copying the characters.
+ * <p>
+ * The text goes to a temporary file of its own next to the changelog, which is renamed over the changelog
+ * when the output is closed, so that a build that dies part way through, or a write that fails, never leaves a
+ * half-written changelog behind: the one from the previous build stays as it was. An output that is aborted
+ * instead of closed leaves it as it was too. A gzipped copy of the same
+ * bytes can be written alongside, for web servers that serve precompressed files. Instances are not thread
+ * safe.
+ */
+public class FileOutput extends Writer {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final File file;
+	private File temp;
+	private FileOutputStream out;
+	private FileChannel channel;
+	private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE / 4);
+	private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private final CharsetEncoder encoder = UTF_8.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	private File compressedFile;
+	private File compressedTemp;
+	private GZIPOutputStream compressed;
+	private byte[] copy;
+	private boolean written;
+	private boolean failed;
+	private boolean closed;
+
+	/**
+	 * Nothing is created on disk until the first buffer is written out, so an output that is never written to
+	 * leaves no trace.
+	 */
+	public FileOutput(File file) {
+		this.file = file;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Also writes the file gzipped, to the same name with <code>.gz</code> added. This has to be asked for
+	 * before anything is written.
+	 */
+	public void setCompressedCopy(boolean compressedCopy) {
+		if (written) {
+			throw new IllegalStateException("The compressed copy of " + file + " has to be asked for before it is written");
+		}
+		compressedFile = compressedCopy ? new File(file.getParentFile(), file.getName() + ".gz") : null;
+	}
+
+	/**
+	 * The gzipped copy of the file, or null if none is written.
+	 */
+	public File getCompressedFile() {
+		return compressedFile;
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+		ensureOpen();
+		written = true;
+		chars.put((char) c);
+		if (!chars.hasRemaining()) {
+			encode(false);
+		}
+	}
+
+	@Override
+	public void write(String s) throws IOException {
+		write(s, 0, s.length());
+	}
+
+	@Override
+	public void write(String s, int offset, int length) throws IOException {
+		ensureOpen();
+		written = true;
+		int end = offset + length;
+		while (offset < end) {
+			int count = Math.min(end - offset, chars.remaining());
+			chars.put(s, offset, offset + count);
+			offset += count;
+			if (!chars.hasRemaining()) {
+				encode(false);
+			}
+		}
+	}
+
+	@Override
+	public void write(char[] buffer, int offset, int length) throws IOException {
+		ensureOpen();
+		written = true;
+		int end = offset + length;
+		while (offset < end) {
+			int count = Math.min(end - offset, chars.remaining());
+			chars.put(buffer, offset, count);
+			offset += count;
+			if (!chars.hasRemaining()) {
+				encode(false);
+			}
+		}
+	}
+
+	/**
+	 * Writes what has been buffered to the temporary file. The changelog itself is only replaced on close.
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		encode(false);
+		drain();
+	}
+
+	/**
+	 * Finishes the file and renames it over the changelog. If anything failed to be written, the temporary
+	 * files are deleted instead and the changelog is left as it was.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (!failed) {
+				encode(true);
+				while (encoder.flush(bytes).isOverflow()) {
+					drain();
+				}
+				drain();
+			}
+			if (out != null) {
+				out.close();
+			}
+			if (compressed != null) {
+				compressed.close();
+			}
+		} catch (IOException e) {
+			failed = true;
+			throw e;
+		} finally {
+			if (failed) {
+				close(out);
+				close(compressed);
+				deleteTemporaryFiles();
+			}
+		}
+		if (failed) {
+			throw new IOException("Not replacing " + file + " as it could not be written in full");
+		}
+		replace(temp, file);
+		if (compressed != null) {
+			replace(compressedTemp, compressedFile);
+		}
+	}
+
+	/**
+	 * Throws away what has been written and leaves the changelog as it was, for a changelog that could not be
+	 * generated in full. Closing the output afterwards does nothing.
+	 */
+	public void abort() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		close(out);
+		close(compressed);
+		deleteTemporaryFiles();
+	}
+
+	private void deleteTemporaryFiles() {
+		if (temp != null) {
+			temp.delete();
+		}
+		if (compressedTemp != null) {
+			compressedTemp.delete();
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException(file + " has already been closed");
+		}
+	}
+
+	/**
+	 * Encodes the buffered characters into the byte buffer, writing it out each time it fills up. A surrogate
+	 * pair split across two writes stays in the character buffer until the rest of it arrives.
+	 */
+	private void encode(boolean endOfInput) throws IOException {
+		chars.flip();
+		try {
+			while (true) {
+				CoderResult result = encoder.encode(chars, bytes, endOfInput);
+				if (!result.isOverflow()) {
+					break;
+				}
+				drain();
+			}
+		} finally {
+			chars.compact();
+		}
+	}
+
+	private void open() throws IOException {
+		try {
+			temp = temporaryFileFor(file);
+			out = new FileOutputStream(temp);
+			channel = out.getChannel();
+			if (compressedFile != null) {
+				compressedTemp = temporaryFileFor(compressedFile);
+				compressed = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(compressedTemp), BUFFER_SIZE), BUFFER_SIZE);
+				copy = new byte[BUFFER_SIZE];
+			}
+		} catch (IOException e) {
+			failed = true;
+			throw e;
+		}
+	}
+
+	private void drain() throws IOException {
+		if (out == null) {
+			open();
+		}
+		bytes.flip();
+		try {
+			if (compressed != null) {
+				int length = bytes.remaining();
+				bytes.get(copy, 0, length);
+				compressed.write(copy, 0, length);
+				bytes.position(0);
+			}
+			while (bytes.hasRemaining()) {
+				channel.write(bytes);
+			}
+		} catch (IOException e) {
+			failed = true;
+			throw e;
+		} finally {
+			bytes.clear();
+		}
+	}
+
+	/**
+	 * Creates a temporary file next to the given one, named after it, that no other build writing the same
+	 * changelog at the same time can be given.
+	 */
+	private static File temporaryFileFor(File target) throws IOException {
+		// the prefix has to be at least three characters long
+		return File.createTempFile("." + target.getName() + ".", ".tmp", target.getAbsoluteFile().getParentFile());
+	}
+
+	/**
+	 * Renames the finished file over the old one, which replaces it in one step where the file system allows.
+	 * Where it does not, as on Windows, the old file has to be deleted first.
+	 */
+	private static void replace(File source, File target) throws IOException {
+		if (source.renameTo(target)) {
+			return;
+		}
+		if (target.exists() && !target.delete()) {
+			source.delete();
+			throw new IOException("Could not replace " + target);
+		}
+		if (!source.renameTo(target)) {
+			source.delete();
+			throw new IOException("Could not rename " + source + " to " + target);
+		}
+	}
+
+	private static void close(Closeable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+}
@@ -1,37 +1,86 @@
 package com.github.danielflower.mavenplugins.gitlog.renderers;
 
 import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.revwalk.RevCommit;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Writer;
 import java.util.Scanner;
 
-public abstract class FileRenderer implements ChangeLogRenderer {
+public abstract class FileRenderer implements ChangeLogEntryRenderer {
 
 	protected Writer writer;
 	protected final Log log;
+	private final File file;
+	private final FileOutput output;
+	private ChangeLogEntryFactory entryFactory;
+	private boolean aborted;
 
 	public FileRenderer(Log log, File targetFolder, String filename) throws IOException {
 		this.log = log;
-		File file = new File(targetFolder, filename);
+		file = new File(targetFolder, filename);
 		log.debug("Creating git changelog at " + file.getAbsolutePath());
-		writer = new FileWriter(file);
+		output = new FileOutput(file);
+		writer = output;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Also writes the changelog gzipped, next to it with <code>.gz</code> added to its name, for web servers
+	 * that serve precompressed files. This has to be set before anything is rendered.
+	 */
+	public void setCompressedCopy(boolean compressedCopy) {
+		output.setCompressedCopy(compressedCopy);
+	}
+
+	/**
+	 * The gzipped copy of the changelog, or null if none is written.
+	 */
+	public File getCompressedFile() {
+		return output.getCompressedFile();
+	}
+
+	/**
+	 * Sets how the dates of commits passed to {@link #renderCommit(RevCommit)} are shown. Entries are
+	 * rendered with the date they were created with.
+	 */
+	public void setDateFormatter(DateFormatter dateFormatter) {
+		entryFactory = new ChangeLogEntryFactory(dateFormatter);
+	}
+
+	public void renderCommit(RevCommit commit) throws IOException {
+		if (entryFactory == null) {
+			entryFactory = new ChangeLogEntryFactory();
+		}
+		renderEntry(entryFactory.create(commit, null));
+	}
+
+	/**
+	 * Throws away what has been rendered, so that the changelog is left as it was. This is for a changelog
+	 * that could not be generated in full, and is followed by {@link #close()}, which then does nothing.
+	 */
+	public void abort() {
+		aborted = true;
+		output.abort();
 	}
 
 	public void close() {
-		if (writer != null) {
+		if (writer != null && !aborted) {
 			try {
 				writer.flush();
 			} catch (IOException e) {
 				log.error("Could not flush file to disk", e);
 			}
 			try {
+				// replaces the changelog with the one just written
 				writer.close();
 			} catch (IOException e) {
-				// ignore
+				log.error("Could not write " + file, e);
 			}
 		}
 	}
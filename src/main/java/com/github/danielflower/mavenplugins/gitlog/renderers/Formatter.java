@@ -1,41 +1,36 @@
 package com.github.danielflower.mavenplugins.gitlog.renderers;
 
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 
 import org.apache.maven.plugin.logging.Log;
 
+/**
+ * The date format shared by everything that does not have a {@link DateFormatter} of its own. New code should
+ * be given a {@link DateFormatter} instead, as the format set here applies to every build in the JVM.
+ */
 public class Formatter {
 
 	public static String NEW_LINE = String.format("%n");
-	
-	private static final String DEFAULT_FORMAT = "yyyy-MM-dd HH:mm:ss Z";
 
-	private static DateFormat dateFormat = new SimpleDateFormat(DEFAULT_FORMAT);
+	private static volatile DateFormatter dateFormatter = new DateFormatter();
 
 	public static String formatDateTime() {
 		return formatDateTime(new Date());
 	}
 
 	public static String formatDateTime(int secondsSinceEpoch) {
-		Date date = new Date(secondsSinceEpoch * 1000L);
-		return formatDateTime(date);
+		return dateFormatter.format(secondsSinceEpoch);
 	}
 
 	public static String formatDateTime(Date date) {
-		return dateFormat.format(date);
+		return dateFormatter.format(date);
+	}
+
+	public static DateFormatter getDateFormatter() {
+		return dateFormatter;
 	}
 
 	public static void setFormat(String format, Log log) {
-		try {
-			dateFormat = new SimpleDateFormat(format);
-		} catch (NullPointerException npe) {
-			log.warn(String.format("Date format should not be null, using default: '%s'", DEFAULT_FORMAT));
-			dateFormat = new SimpleDateFormat(DEFAULT_FORMAT);
-		} catch (IllegalArgumentException iae) {
-			log.warn(String.format("Invalid date format '%s', using default: '%s'", format, DEFAULT_FORMAT));
-			dateFormat = new SimpleDateFormat(DEFAULT_FORMAT);
-		}
+		dateFormatter = DateFormatter.create(format, null, log);
 	}
-}
\ No newline at end of file
+}
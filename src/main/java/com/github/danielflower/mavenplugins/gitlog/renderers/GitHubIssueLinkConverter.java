@@ -2,31 +2,56 @@ package com.github.danielflower.mavenplugins.gitlog.renderers;
 
 import org.apache.maven.plugin.logging.Log;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+/**
+ * Links GitHub issue references, which are <code>#</code> or <code>GH-</code> in any case followed by the
+ * issue number.
+ */
+public class GitHubIssueLinkConverter implements MessageConverter, IssueTracker {
 
-public class GitHubIssueLinkConverter implements MessageConverter {
-
-	private Pattern pattern;
 	private final Log log;
 	private final String urlPrefix;
+	private final MessageTokenizer tokenizer;
 
 	public GitHubIssueLinkConverter(Log log, String urlPrefix) {
 		this.log = log;
 		this.urlPrefix = urlPrefix.endsWith("/") ? urlPrefix : urlPrefix + "/";
-		this.pattern = Pattern.compile("(GH-|#)([0-9]+)", Pattern.CASE_INSENSITIVE);
+		this.tokenizer = new MessageTokenizer(this);
 	}
 
 	@Override
 	public String formatCommitMessage(String original) {
 		try {
-			Matcher matcher = pattern.matcher(original);
-			String result = matcher.replaceAll("<a href=\"" + urlPrefix + "$2\">$0</a>");
-			return result;
+			return tokenizer.formatCommitMessage(original);
 		} catch (Exception e) {
 			// log, but don't let this small setback fail the build
 			log.info("Unable to parse issue tracking URL in commit message: " + original, e);
 		}
 		return original;
 	}
+
+	public int matchIssue(String message, int start) {
+		int number;
+		char c = message.charAt(start);
+		if (c == '#') {
+			number = start + 1;
+		} else if ((c == 'G' || c == 'g') && message.regionMatches(true, start, "GH-", 0, 3)) {
+			number = start + 3;
+		} else {
+			return -1;
+		}
+		int end = number;
+		while (end < message.length() && isDigit(message.charAt(end))) {
+			end++;
+		}
+		return (end > number) ? end : -1;
+	}
+
+	public String getIssueUrl(String message, int start, int end) {
+		int number = (message.charAt(start) == '#') ? start + 1 : start + 3;
+		return urlPrefix + message.substring(number, end);
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
 }
@@ -0,0 +1,20 @@
+package com.github.danielflower.mavenplugins.gitlog.renderers;
+
+/**
+ * Recognises the references to the issues of one issue tracker, such as <code>#10</code> or
+ * <code>CONF-10</code>, as the {@link MessageTokenizer} scans a commit message.
+ */
+public interface IssueTracker {
+
+	/**
+	 * Returns the end of the issue reference that starts at the given index of the message, or -1 if none
+	 * starts there. This is called for every character of the message, so it should reject quickly.
+	 */
+	int matchIssue(String message, int start);
+
+	/**
+	 * Returns the link to the issue referred to by the given part of the message.
+	 */
+	String getIssueUrl(String message, int start, int end);
+
+}
@@ -2,14 +2,15 @@ package com.github.danielflower.mavenplugins.gitlog.renderers;
 
 import org.apache.maven.plugin.logging.Log;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+/**
+ * Links Jira issue keys, which are an upper case project code, a hyphen and the issue number, to the Jira
+ * instance the given project URL is on, whichever project the key is in.
+ */
+public class JiraIssueLinkConverter implements MessageConverter, IssueTracker {
 
-public class JiraIssueLinkConverter implements MessageConverter {
-
-	private Pattern pattern;
 	private final Log log;
 	private final String urlPrefix;
+	private final MessageTokenizer tokenizer;
 
 	public JiraIssueLinkConverter(Log log, String urlPrefix) {
 		this.log = log;
@@ -17,19 +18,49 @@ public class JiraIssueLinkConverter implements MessageConverter {
 		urlPrefix = urlPrefix.endsWith("/") ? urlPrefix.substring(0, urlPrefix.length() - 2) : urlPrefix;
 		// strip off jira project code
 		this.urlPrefix = urlPrefix.substring(0, urlPrefix.lastIndexOf("/") + 1);
-		this.pattern = Pattern.compile("[A-Z]+-[0-9]+");
+		this.tokenizer = new MessageTokenizer(this);
 	}
 
 	@Override
 	public String formatCommitMessage(String original) {
 		try {
-			Matcher matcher = pattern.matcher(original);
-				String result = matcher.replaceAll("<a href=\"" + urlPrefix + "$0\">$0</a>");
-				return result;
+			return tokenizer.formatCommitMessage(original);
 		} catch (Exception e) {
 			// log, but don't let this small setback fail the build
 			log.info("Unable to parse issue tracking URL in commit message: " + original, e);
 		}
 		return original;
 	}
+
+	public int matchIssue(String message, int start) {
+		// a key starts at the first letter of the code: had it started earlier, the code would have ended at
+		// the same hyphen, so a key cannot start part way through a code
+		if (!isUpperCase(message.charAt(start)) || (start > 0 && isUpperCase(message.charAt(start - 1)))) {
+			return -1;
+		}
+		int hyphen = start + 1;
+		while (hyphen < message.length() && isUpperCase(message.charAt(hyphen))) {
+			hyphen++;
+		}
+		if (hyphen == message.length() || message.charAt(hyphen) != '-') {
+			return -1;
+		}
+		int end = hyphen + 1;
+		while (end < message.length() && isDigit(message.charAt(end))) {
+			end++;
+		}
+		return (end > hyphen + 1) ? end : -1;
+	}
+
+	public String getIssueUrl(String message, int start, int end) {
+		return urlPrefix + message.substring(start, end);
+	}
+
+	private static boolean isUpperCase(char c) {
+		return c >= 'A' && c <= 'Z';
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
 }
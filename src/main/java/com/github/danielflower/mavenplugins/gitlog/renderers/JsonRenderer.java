@@ -2,17 +2,30 @@ package com.github.danielflower.mavenplugins.gitlog.renderers;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
 
 import org.apache.maven.plugin.logging.Log;
-import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevTag;
 
+/**
+ * Writes the changelog as a JSON array. Each commit is written to the file as soon as it is rendered, so
+ * the memory used does not grow with the size of the history.
+ */
 public class JsonRenderer extends FileRenderer {
 
-	private String template;
-	protected StringBuilder json = new StringBuilder();
+	private static final int ID = 0;
+	private static final int MESSAGE = 1;
+	private static final int AUTHOR_NAME = 2;
+	private static final int AUTHOR_EMAIL = 3;
+	private static final int COMMITTER_NAME = 4;
+	private static final int COMMITTER_EMAIL = 5;
+	private static final int TAG_ITEMS = 6;
+	private static final int DATE = 7;
+
+	private final Template template;
 	private final boolean fullGitMessage;
 	private boolean firstCommit = true;
 	private Collection<RevTag> tags = new ArrayList<RevTag>();
@@ -22,12 +35,13 @@ public class JsonRenderer extends FileRenderer {
 		super(log, targetFolder, filename);
 		this.fullGitMessage = fullGitMessage;
 
-		this.template = loadResourceToString("/json/JsonItemTemplate.html");
+		this.template = new Template(loadResourceToString("/json/JsonItemTemplate.html"),
+				"id", "message", "authorName", "authorEmail", "committerName", "committerEmail", "tagItems", "date");
 	}
 
 	@Override
 	public void renderHeader(String reportTitle) throws IOException {
-		json.append("[\n");
+		writer.write("[\n");
 	}
 
 	@Override
@@ -36,67 +50,113 @@ public class JsonRenderer extends FileRenderer {
 	}
 
 	@Override
-	public void renderCommit(RevCommit commit) throws IOException {
-		String date = Formatter.formatDateTime(commit.getCommitTime());
-		String message = null;
-		if (fullGitMessage) {
-			message = commit.getFullMessage();
+	public void renderEntry(ChangeLogEntry entry) throws IOException {
+		if(firstCommit) {
+			writer.write("    ");
+			firstCommit = false;
 		} else {
-			message = commit.getShortMessage();
+			writer.write("  , ");
 		}
-		StringBuffer tagsJson = new StringBuffer();
+		for (int i = 0; i < template.getPlaceholderCount(); i++) {
+			template.writeLiteral(writer, i);
+			switch (template.getPlaceholder(i)) {
+				case ID:
+					writeEncoded(writer, entry.getId());
+					break;
+				case MESSAGE:
+					writeEncoded(writer, entry.getMessage(fullGitMessage));
+					break;
+				case AUTHOR_NAME:
+					writeEncoded(writer, entry.getAuthorName());
+					break;
+				case AUTHOR_EMAIL:
+					writeEncoded(writer, entry.getAuthorEmail());
+					break;
+				case COMMITTER_NAME:
+					writeEncoded(writer, entry.getCommitterName());
+					break;
+				case COMMITTER_EMAIL:
+					writeEncoded(writer, entry.getCommitterEmail());
+					break;
+				case TAG_ITEMS:
+					writeTagItems();
+					break;
+				case DATE:
+					writeEncoded(writer, entry.getDate());
+					break;
+			}
+		}
+		template.writeLiteral(writer, template.getPlaceholderCount());
+		writer.write("\n");
+		this.tags.clear(); //reset for next commit's tags
+	}
+
+	private void writeTagItems() throws IOException {
 		boolean firstTag = true;
 		for (RevTag tag : this.tags) {
 			if(firstTag) {
 				firstTag = false;
-				tagsJson.append(" ");
+				writer.write(" ");
 			} else {
-				tagsJson.append(", ");
+				writer.write(", ");
 			}
-			tagsJson.append("{ \"name\":\"").append(encode(tag.getTagName())).append("\" }");
+			writer.write("{ \"name\":\"");
+			writeEncoded(writer, tag.getTagName());
+			writer.write("\" }");
 		}
 		if(!firstTag) {
-			tagsJson.append(" ");
+			writer.write(" ");
 		}
-		this.tags.clear(); //reset for next commit's tags
-
-		if(firstCommit) {
-			json.append("    ");
-			firstCommit = false;
-		} else {
-			json.append("  , ");
-		}
-		String jsonItem;
-		jsonItem = template
-				.replace("{id}", encode(commit.getName()))
-				.replace("{message}", encode(message))
-				.replace("{authorName}", encode(commit.getAuthorIdent().getName()))
-				.replace("{authorEmail}", encode(commit.getAuthorIdent().getEmailAddress()))
-				.replace("{committerName}", encode(commit.getCommitterIdent().getName()))
-				.replace("{committerEmail}", encode(commit.getCommitterIdent().getEmailAddress()))
-				.replace("{tagItems}", tagsJson.toString())
-				.replace("{date}", encode(date));
-		json.append(jsonItem);
-		json.append("\n");
 	}
 
 	@Override
 	public void renderFooter() throws IOException {
-		json.append("]\n");
-		writer.append(json);
+		writer.write("]\n");
 	}
 
 	protected static String encode(String input) {
 		if((input == null) || (input.length() == 0)) {
 			return input;
 		}
-		if(input.lastIndexOf("\n") == input.length()-1) {
-			input = input.substring(0, input.length()-1);
+		StringWriter encoded = new StringWriter(input.length() + 16);
+		try {
+			writeEncoded(encoded, input);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return encoded.toString();
+	}
+
+	/**
+	 * Writes the value as the contents of a JSON string, dropping a single trailing new line. Runs of
+	 * characters that need no escaping are written in one go.
+	 */
+	protected static void writeEncoded(Writer writer, String input) throws IOException {
+		if (input == null) {
+			return;
+		}
+		int length = input.length();
+		if (length > 0 && input.charAt(length - 1) == '\n') {
+			length--;
+		}
+		int start = 0;
+		for (int i = 0; i < length; i++) {
+			char c = input.charAt(i);
+			String escaped;
+			if (c == '\\') {
+				escaped = "\\\\";
+			} else if (c == '\n') {
+				escaped = "\\n";
+			} else if (c == '"') {
+				escaped = "\\\"";
+			} else {
+				continue;
+			}
+			writer.write(input, start, i - start);
+			writer.write(escaped);
+			start = i + 1;
 		}
-		input = input.replace("\\", "\\\\");
-		input = input.replace("\n", "\\n");
-		input = input.replace("\"", "\\\"");
-		return input;
+		writer.write(input, start, length - start);
 	}
 
 }
@@ -4,9 +4,10 @@ import static com.github.danielflower.mavenplugins.gitlog.renderers.Formatter.NE
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 
 import org.apache.maven.plugin.logging.Log;
-import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevTag;
 
 /**
@@ -31,12 +32,35 @@ public class MarkdownRenderer extends FileRenderer {
 	private boolean previousWasTag = false;
 	private final boolean fullGitMessage;
 	protected final MessageConverter messageConverter;
+	private final MessageTokenizer tokenizer;
 	private MarkdownLinkConverter markdownLinkConverter;
+
+	/**
+	 * Writes the tokens of a message as Markdown: issues as links, and the rest escaped.
+	 */
+	private final MessageTokenizer.TokenHandler markdown = new MessageTokenizer.TokenHandler() {
+		public void text(String message, int start, int end) throws IOException {
+			markdownEncode(writer, message, start, end);
+		}
+
+		public void issue(String message, int start, int end, String url) throws IOException {
+			writer.write('[');
+			markdownEncode(writer, message, start, end);
+			writer.write("](");
+			writer.write(url);
+			writer.write(')');
+		}
+
+		public void url(String message, int start, int end) throws IOException {
+			markdownEncode(writer, message, start, end);
+		}
+	};
 	
 	public MarkdownRenderer(Log log, File targetFolder, String filename, boolean fullGitMessage, MessageConverter messageConverter) throws IOException {
 		super(log, targetFolder, filename);
 		this.fullGitMessage = fullGitMessage;
 		this.messageConverter = messageConverter;
+		this.tokenizer = MessageTokenizer.forConverter(messageConverter);
 		markdownLinkConverter = new MarkdownLinkConverter(log);
 	}
 
@@ -61,18 +85,18 @@ public class MarkdownRenderer extends FileRenderer {
 		previousWasTag = true;
 	}
 
-	public void renderCommit(RevCommit commit) throws IOException {
-		String message = null;
-		// use the message formatter to get a HTML hyperlink
-		if (fullGitMessage){
-			message = messageConverter.formatCommitMessage(MarkdownRenderer.markdownEncode(commit.getFullMessage()));
+	public void renderEntry(ChangeLogEntry entry) throws IOException {
+		writer.write(entry.getDate());
+		writer.write("    ");
+		if (tokenizer != null) {
+			tokenizer.tokenize(entry.getMessage(fullGitMessage), markdown);
 		} else {
-			message = messageConverter.formatCommitMessage(MarkdownRenderer.markdownEncode(commit.getShortMessage()));	
+			// use the message formatter to get a HTML hyperlink
+			String message = messageConverter.formatCommitMessage(MarkdownRenderer.markdownEncode(entry.getMessage(fullGitMessage)));
+			// now convert the HTML hyperlink into a markdown link
+			writer.write(markdownLinkConverter.formatCommitMessage(message));
 		}
-		// now convert the HTML hyperlink into a markdown link
-		message = markdownLinkConverter.formatCommitMessage(message);	
-		writer.write(Formatter.formatDateTime(commit.getCommitTime()) + "    " + message);
-		writer.write(" (" + commit.getCommitterIdent().getName() + ")");
+		writer.write(" (" + entry.getCommitterName() + ")");
 		writer.write("  "); // MD line warp
 		writer.write(NEW_LINE);
 		previousWasTag = false;
@@ -96,10 +120,28 @@ public class MarkdownRenderer extends FileRenderer {
 	 * @return			escaped string
 	 */
 	static String markdownEncode(String input) {
-		// Add a backslash in front of [ and ]
-		input = input.replaceAll("\\[", "\\\\[");
-		input = input.replaceAll("\\]", "\\\\]");
-		return input; 
+		StringWriter output = new StringWriter(input.length() + 8);
+		try {
+			markdownEncode(output, input, 0, input.length());
+		} catch (IOException e) {
+			// a StringWriter does not throw
+			throw new IllegalStateException(e);
+		}
+		return output.toString();
+	}
+
+	private static void markdownEncode(Writer writer, String input, int start, int end) throws IOException {
+		int written = start;
+		for (int i = start; i < end; i++) {
+			char c = input.charAt(i);
+			if (c == '[' || c == ']') {
+				// Add a backslash in front of [ and ]
+				writer.write(input, written, i - written);
+				writer.write('\\');
+				written = i;
+			}
+		}
+		writer.write(input, written, end - written);
 	}
 	
 }
@@ -7,10 +7,11 @@ import org.eclipse.jgit.revwalk.RevTag;
 
 import java.io.IOException;
 
-public class MavenLoggerRenderer implements ChangeLogRenderer {
+public class MavenLoggerRenderer implements ChangeLogEntryRenderer {
 
 	private final Log log;
 	private boolean previousWasTag = false;
+	private ChangeLogEntryFactory entryFactory;
 
 	public MavenLoggerRenderer(Log log) {
 		if (log == null) {
@@ -33,9 +34,24 @@ public class MavenLoggerRenderer implements ChangeLogRenderer {
 		previousWasTag = true;
 	}
 
+	/**
+	 * Sets how the dates of commits passed to {@link #renderCommit(RevCommit)} are shown. Entries are
+	 * rendered with the date they were created with.
+	 */
+	public void setDateFormatter(DateFormatter dateFormatter) {
+		entryFactory = new ChangeLogEntryFactory(dateFormatter);
+	}
+
 	public void renderCommit(RevCommit commit) throws IOException {
-		log.info(Formatter.formatDateTime(commit.getCommitTime()) + " "
-				+ commit.getShortMessage() + " (" + commit.getCommitterIdent().getName() + ")");
+		if (entryFactory == null) {
+			entryFactory = new ChangeLogEntryFactory();
+		}
+		renderEntry(entryFactory.create(commit, null));
+	}
+
+	public void renderEntry(ChangeLogEntry entry) throws IOException {
+		log.info(entry.getDate() + " "
+				+ entry.getShortMessage() + " (" + entry.getCommitterName() + ")");
 		previousWasTag = false;
 	}
 
@@ -0,0 +1,174 @@
+package com.github.danielflower.mavenplugins.gitlog.renderers;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Splits a commit message into text, issue references and URLs in a single pass, for any number of issue
+ * trackers. The renderers write the tokens in their own format as they are found, rather than each tracker
+ * rewriting the whole message into HTML and the Markdown renderer turning the HTML back into Markdown.
+ * <p>
+ * Nothing inside a URL is taken for an issue reference, so a link to a comment or an issue is left as it is.
+ * Where more than one tracker recognises a reference, the first one given wins. Instances are thread safe.
+ */
+public class MessageTokenizer implements MessageConverter {
+
+	/**
+	 * Receives the tokens of a message in order. Each token is a part of the message, given by its start
+	 * and end, so that no substrings are made unless the format needs them.
+	 */
+	public interface TokenHandler {
+
+		void text(String message, int start, int end) throws IOException;
+
+		void issue(String message, int start, int end, String url) throws IOException;
+
+		void url(String message, int start, int end) throws IOException;
+
+	}
+
+	private final IssueTracker[] trackers;
+
+	public MessageTokenizer(IssueTracker... trackers) {
+		this.trackers = trackers.clone();
+	}
+
+	public MessageTokenizer(List<IssueTracker> trackers) {
+		this.trackers = trackers.toArray(new IssueTracker[trackers.size()]);
+	}
+
+	/**
+	 * Returns the tokenizer that recognises the same issues as the given converter, or null if the converter
+	 * is not one of those built on trackers and has to be given the whole message instead.
+	 */
+	public static MessageTokenizer forConverter(MessageConverter converter) {
+		if (converter instanceof MessageTokenizer) {
+			return (MessageTokenizer) converter;
+		}
+		if (converter instanceof IssueTracker) {
+			return new MessageTokenizer((IssueTracker) converter);
+		}
+		if (converter instanceof NullMessageConverter) {
+			return new MessageTokenizer();
+		}
+		return null;
+	}
+
+	public void tokenize(String message, TokenHandler handler) throws IOException {
+		int length = message.length();
+		int textStart = 0;
+		int i = 0;
+		while (i < length) {
+			int end = matchUrl(message, i);
+			if (end > 0) {
+				if (textStart < i) {
+					handler.text(message, textStart, i);
+				}
+				handler.url(message, i, end);
+				i = textStart = end;
+				continue;
+			}
+			IssueTracker tracker = null;
+			for (IssueTracker candidate : trackers) {
+				end = candidate.matchIssue(message, i);
+				if (end > i) {
+					tracker = candidate;
+					break;
+				}
+			}
+			if (tracker == null) {
+				i++;
+				continue;
+			}
+			if (textStart < i) {
+				handler.text(message, textStart, i);
+			}
+			handler.issue(message, i, end, tracker.getIssueUrl(message, i, end));
+			i = textStart = end;
+		}
+		if (textStart < length) {
+			handler.text(message, textStart, length);
+		}
+	}
+
+	/**
+	 * Returns the message with its issue references turned into HTML links and the rest left as it is,
+	 * which is what the single tracker converters have always returned.
+	 */
+	@Override
+	public String formatCommitMessage(String original) {
+		final StringBuilder result = new StringBuilder(original.length() + 32);
+		try {
+			tokenize(original, new TokenHandler() {
+				public void text(String message, int start, int end) {
+					result.append(message, start, end);
+				}
+
+				public void issue(String message, int start, int end, String url) {
+					result.append("<a href=\"").append(url).append("\">").append(message, start, end).append("</a>");
+				}
+
+				public void url(String message, int start, int end) {
+					result.append(message, start, end);
+				}
+			});
+		} catch (IOException e) {
+			// a StringBuilder does not throw
+			throw new IllegalStateException(e);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Returns the end of the http or https URL that starts at the given index, or -1 if there is none. A URL
+	 * runs to the next space or angle bracket, less any punctuation that ends the sentence it is in.
+	 */
+	static int matchUrl(String message, int start) {
+		char c = message.charAt(start);
+		if (c != 'h' && c != 'H') {
+			return -1;
+		}
+		if (start > 0 && Character.isLetterOrDigit(message.charAt(start - 1))) {
+			return -1;
+		}
+		int end;
+		if (message.regionMatches(true, start, "http://", 0, 7)) {
+			end = start + 7;
+		} else if (message.regionMatches(true, start, "https://", 0, 8)) {
+			end = start + 8;
+		} else {
+			return -1;
+		}
+		int hostStart = end;
+		boolean parenthesis = false;
+		while (end < message.length()) {
+			char next = message.charAt(end);
+			if (Character.isWhitespace(next) || next == '<' || next == '>' || next == '"') {
+				break;
+			}
+			parenthesis |= next == '(';
+			end++;
+		}
+		while (end > hostStart && isTrailingPunctuation(message.charAt(end - 1), parenthesis)) {
+			end--;
+		}
+		return (end > hostStart) ? end : -1;
+	}
+
+	private static boolean isTrailingPunctuation(char c, boolean parenthesis) {
+		switch (c) {
+		case '.':
+		case ',':
+		case ';':
+		case ':':
+		case '!':
+		case '?':
+		case '\'':
+			return true;
+		case ')':
+			return !parenthesis;
+		default:
+			return false;
+		}
+	}
+}
@@ -0,0 +1,252 @@
+package com.github.danielflower.mavenplugins.gitlog.renderers;
+
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTag;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Hands the changelog to several renderers that each run on a worker thread, so that the renderers work
+ * at the same time as each other and as the walk of the history.
+ * <p>
+ * Every worker has a bounded queue of events that it passes, in order, to the renderers it owns, so a
+ * slow renderer holds the walk back rather than letting the queue grow. The first exception thrown by any
+ * renderer is rethrown to the caller from the next call made on this renderer, at the latest from
+ * {@link #renderFooter()}. All renderers are closed by {@link #close()}, whether they failed or not.
+ */
+public class ParallelRenderer implements ChangeLogEntryRenderer {
+
+	private static final int QUEUE_CAPACITY = 256;
+
+	private enum Kind { HEADER, TAG, ENTRY, FOOTER, CLOSE }
+
+	private static class Event {
+		final Kind kind;
+		final Object value;
+
+		Event(Kind kind, Object value) {
+			this.kind = kind;
+			this.value = value;
+		}
+	}
+
+	private final Log log;
+	private ChangeLogEntryFactory entryFactory = new ChangeLogEntryFactory();
+	private boolean keepCommits;
+	private final List<Worker> workers = new ArrayList<Worker>();
+	private volatile Throwable failure;
+	private volatile boolean aborted;
+	private boolean closed;
+
+	/**
+	 * @param threads the number of worker threads; the renderers are shared out between them, so there are
+	 *            never more threads than renderers.
+	 */
+	public ParallelRenderer(List<ChangeLogRenderer> renderers, int threads, Log log) {
+		this.log = log;
+		int workerCount = Math.max(1, Math.min(threads, renderers.size()));
+		for (int i = 0; i < workerCount; i++) {
+			workers.add(new Worker("gitlog-renderer-" + (i + 1)));
+		}
+		for (int i = 0; i < renderers.size(); i++) {
+			ChangeLogEntryRenderer renderer = ChangeLogRendererAdapter.adapt(renderers.get(i));
+			keepCommits |= renderer instanceof ChangeLogRendererAdapter;
+			workers.get(i % workerCount).renderers.add(renderer);
+		}
+		entryFactory.setKeepCommits(keepCommits);
+		for (Worker worker : workers) {
+			worker.start();
+		}
+	}
+
+	/**
+	 * Sets how the dates of commits passed to {@link #renderCommit(RevCommit)} are shown.
+	 */
+	public void setDateFormatter(DateFormatter dateFormatter) {
+		entryFactory = new ChangeLogEntryFactory(dateFormatter);
+		entryFactory.setKeepCommits(keepCommits);
+	}
+
+	public void renderHeader(String reportTitle) throws IOException {
+		publish(new Event(Kind.HEADER, reportTitle));
+	}
+
+	public void renderTag(RevTag tag) throws IOException {
+		publish(new Event(Kind.TAG, tag));
+	}
+
+	public void renderCommit(RevCommit commit) throws IOException {
+		renderEntry(entryFactory.create(commit, null));
+	}
+
+	public void renderEntry(ChangeLogEntry entry) throws IOException {
+		publish(new Event(Kind.ENTRY, entry));
+	}
+
+	/**
+	 * Waits until every renderer has rendered its footer.
+	 */
+	public void renderFooter() throws IOException {
+		CountDownLatch done = new CountDownLatch(workers.size());
+		publish(new Event(Kind.FOOTER, done));
+		try {
+			done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the changelogs to be written");
+		}
+		rethrowFailure();
+	}
+
+	/**
+	 * Makes {@link #close()} abort the file renderers before closing them, so that the changelogs are left as
+	 * they were. This is for changelogs that could not be generated in full.
+	 */
+	public void abort() {
+		aborted = true;
+	}
+
+	/**
+	 * Closes every renderer and stops the worker threads.
+	 */
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		Event close = new Event(Kind.CLOSE, null);
+		boolean interrupted = false;
+		for (Worker worker : workers) {
+			while (true) {
+				try {
+					worker.queue.put(close);
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		for (Worker worker : workers) {
+			while (true) {
+				try {
+					worker.join();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void publish(Event event) throws IOException {
+		rethrowFailure();
+		try {
+			for (Worker worker : workers) {
+				worker.queue.put(event);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while passing the changelog to the renderers");
+		}
+	}
+
+	private void rethrowFailure() throws IOException {
+		Throwable t = failure;
+		if (t == null) {
+			return;
+		}
+		if (t instanceof IOException) {
+			throw (IOException) t;
+		}
+		if (t instanceof RuntimeException) {
+			throw (RuntimeException) t;
+		}
+		if (t instanceof Error) {
+			throw (Error) t;
+		}
+		throw new IOException(t);
+	}
+
+	private class Worker extends Thread {
+		final List<ChangeLogEntryRenderer> renderers = new ArrayList<ChangeLogEntryRenderer>();
+		final BlockingQueue<Event> queue = new ArrayBlockingQueue<Event>(QUEUE_CAPACITY);
+
+		Worker(String name) {
+			super(name);
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			boolean failed = false;
+			while (true) {
+				Event event;
+				try {
+					event = queue.take();
+				} catch (InterruptedException e) {
+					// only the close event ends the worker, so that the queue never fills up unread
+					continue;
+				}
+				if (event.kind == Kind.CLOSE) {
+					for (ChangeLogEntryRenderer renderer : renderers) {
+						try {
+							if (aborted && renderer instanceof FileRenderer) {
+								((FileRenderer) renderer).abort();
+							}
+							renderer.close();
+						} catch (RuntimeException e) {
+							log.warn("Error while closing " + renderer.getClass().getSimpleName(), e);
+						}
+					}
+					return;
+				}
+				if (!failed) {
+					try {
+						render(event);
+					} catch (Throwable t) {
+						failed = true;
+						synchronized (ParallelRenderer.this) {
+							if (failure == null) {
+								failure = t;
+							}
+						}
+					}
+				}
+				if (event.kind == Kind.FOOTER) {
+					((CountDownLatch) event.value).countDown();
+				}
+			}
+		}
+
+		private void render(Event event) throws IOException {
+			for (ChangeLogEntryRenderer renderer : renderers) {
+				switch (event.kind) {
+					case HEADER:
+						renderer.renderHeader((String) event.value);
+						break;
+					case TAG:
+						renderer.renderTag((RevTag) event.value);
+						break;
+					case ENTRY:
+						renderer.renderEntry((ChangeLogEntry) event.value);
+						break;
+					case FOOTER:
+						renderer.renderFooter();
+						break;
+					default:
+						break;
+				}
+			}
+		}
+	}
+}
@@ -1,7 +1,6 @@
 package com.github.danielflower.mavenplugins.gitlog.renderers;
 
 import org.apache.maven.plugin.logging.Log;
-import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevTag;
 
 import java.io.File;
@@ -36,15 +35,9 @@ public class PlainTextRenderer extends FileRenderer {
 		previousWasTag = true;
 	}
 
-	public void renderCommit(RevCommit commit) throws IOException {
-		String message = null;
-		if (fullGitMessage){
-			message = commit.getFullMessage();
-		} else {
-			message = commit.getShortMessage();
-		}
-		writer.write(Formatter.formatDateTime(commit.getCommitTime()) + "    " + message);
-		writer.write(" (" + commit.getCommitterIdent().getName() + ")");
+	public void renderEntry(ChangeLogEntry entry) throws IOException {
+		writer.write(entry.getDate() + "    " + entry.getMessage(fullGitMessage));
+		writer.write(" (" + entry.getCommitterName() + ")");
 		writer.write(NEW_LINE);
 		previousWasTag = false;
 	}
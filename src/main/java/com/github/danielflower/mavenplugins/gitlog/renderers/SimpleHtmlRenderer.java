@@ -2,45 +2,98 @@ package com.github.danielflower.mavenplugins.gitlog.renderers;
 
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.maven.plugin.logging.Log;
-import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevTag;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
 
 import static com.github.danielflower.mavenplugins.gitlog.renderers.Formatter.NEW_LINE;
 
+/**
+ * Writes the changelog as an HTML table, either on its own or inside a complete page. The rows are written
+ * to the file as they are rendered: the page is split around the table once, its head is written with the
+ * header and its tail with the footer.
+ */
 public class SimpleHtmlRenderer extends FileRenderer {
 
+	private static final int TITLE = 0;
+	private static final int TABLE = 1;
+
 	private String title;
-	private String template;
-	protected StringBuilder tableHtml = new StringBuilder();
+	private Template template;
+	private int templatePosition;
 	protected final MessageConverter messageConverter;
+	private final MessageTokenizer tokenizer;
 	private final boolean tableOnly;
 	private final boolean fullGitMessage;
 
+	/**
+	 * Writes the tokens of a message as HTML: issues as links, and the rest escaped with its line breaks kept.
+	 */
+	private final MessageTokenizer.TokenHandler html = new MessageTokenizer.TokenHandler() {
+		public void text(String message, int start, int end) throws IOException {
+			htmlEncode(writer, message, start, end);
+		}
+
+		public void issue(String message, int start, int end, String url) throws IOException {
+			writer.write("<a href=\"");
+			StringEscapeUtils.ESCAPE_HTML4.translate(url, writer);
+			writer.write("\">");
+			htmlEncode(writer, message, start, end);
+			writer.write("</a>");
+		}
+
+		public void url(String message, int start, int end) throws IOException {
+			htmlEncode(writer, message, start, end);
+		}
+	};
+
 	public SimpleHtmlRenderer(Log log, File targetFolder, String filename, boolean fullGitMessage, MessageConverter messageConverter, boolean tableOnly) throws IOException {
 		super(log, targetFolder, filename);
 		this.messageConverter = messageConverter;
+		this.tokenizer = MessageTokenizer.forConverter(messageConverter);
 		this.tableOnly = tableOnly;
 		this.fullGitMessage = fullGitMessage;
 
 		if (!tableOnly) {
-			this.template = loadResourceToString("/html/SimpleHtmlTemplate.html");
+			this.template = new Template(loadResourceToString("/html/SimpleHtmlTemplate.html"), "title", "table");
 		}
 
 	}
 
 	protected static String htmlEncode(String input) {
-		input = StringEscapeUtils.escapeHtml4(input);
-		return input.replaceAll("\n", "<br/>");
+		StringWriter output = new StringWriter(input.length() + 16);
+		try {
+			htmlEncode(output, input, 0, input.length());
+		} catch (IOException e) {
+			// a StringWriter does not throw
+			throw new IllegalStateException(e);
+		}
+		return output.toString();
+	}
+
+	private static void htmlEncode(Writer writer, String input, int start, int end) throws IOException {
+		int line = start;
+		for (int i = start; i < end; i++) {
+			if (input.charAt(i) == '\n') {
+				StringEscapeUtils.ESCAPE_HTML4.translate(input.subSequence(line, i), writer);
+				writer.write("<br/>");
+				line = i + 1;
+			}
+		}
+		StringEscapeUtils.ESCAPE_HTML4.translate(input.subSequence(line, end), writer);
 	}
 
 	@Override
 	public void renderHeader(String reportTitle) throws IOException {
 		this.title = reportTitle;
-		tableHtml.append("\t<table class=\"changelog\">")
+		if (!tableOnly) {
+			writePageUntilTable();
+		}
+		writer.append("\t<table class=\"changelog\">")
 				.append(NEW_LINE)
 				.append("\t\t<tbody>")
 				.append(NEW_LINE);
@@ -48,50 +101,64 @@ public class SimpleHtmlRenderer extends FileRenderer {
 
 	@Override
 	public void renderTag(RevTag tag) throws IOException {
-		tableHtml.append("\t\t<tr class=\"tag\"><td colspan=3>")
+		writer.append("\t\t<tr class=\"tag\"><td colspan=3>")
 				.append(SimpleHtmlRenderer.htmlEncode(tag.getTagName()))
 				.append("</td></tr>")
 				.append(NEW_LINE);
 	}
 
 	@Override
-	public void renderCommit(RevCommit commit) throws IOException {
-		String date = Formatter.formatDateTime(commit.getCommitTime());
-		String message = null;
-		if (fullGitMessage){
-			message = messageConverter.formatCommitMessage(SimpleHtmlRenderer.htmlEncode(commit.getFullMessage()));
-		} else {
-			message = messageConverter.formatCommitMessage(SimpleHtmlRenderer.htmlEncode(commit.getShortMessage()));	
-		}
+	public void renderEntry(ChangeLogEntry entry) throws IOException {
+		String date = entry.getDate();
 
-		String author = SimpleHtmlRenderer.htmlEncode(commit.getCommitterIdent().getName());
-		String committer = SimpleHtmlRenderer.htmlEncode(commit.getCommitterIdent().getName());
-		String authorHtml = "<span class=\"committer\">" + commit.getAuthorIdent().getName() + "</span>";
+		String author = SimpleHtmlRenderer.htmlEncode(entry.getCommitterName());
+		String committer = SimpleHtmlRenderer.htmlEncode(entry.getCommitterName());
+		String authorHtml = "<span class=\"committer\">" + entry.getAuthorName() + "</span>";
 		if (!areSame(author, committer)) {
 			authorHtml += "and <span class=\"author\">" + author + "</span>";
 		}
 
-		tableHtml.append("\t\t<tr>")
+		writer.append("\t\t<tr>")
 				.append("<td class=\"date\">").append(date).append("</td>")
-				.append("<td>").append(message).append("</td>")
+				.append("<td>");
+		if (tokenizer != null) {
+			tokenizer.tokenize(entry.getMessage(fullGitMessage), html);
+		} else {
+			writer.write(messageConverter.formatCommitMessage(SimpleHtmlRenderer.htmlEncode(entry.getMessage(fullGitMessage))));
+		}
+		writer.append("</td>")
 				.append("<td>").append(authorHtml).append("</td>")
 				.append("</tr>").append(NEW_LINE);
 	}
 
 	@Override
 	public void renderFooter() throws IOException {
-		tableHtml.append("\t\t</tbody>")
+		writer.append("\t\t</tbody>")
 				.append(NEW_LINE)
 				.append("\t</table>")
 				.append(NEW_LINE);
 
-		if (tableOnly) {
-			writer.append(tableHtml.toString());
-		} else {
-			String html = template
-					.replace("{title}", htmlEncode(title))
-					.replace("{table}", tableHtml.toString());
-			writer.append(html);
+		if (!tableOnly) {
+			writePageUntilTable();
+		}
+	}
+
+	/**
+	 * Writes the page template from where it was left off up to the next table placeholder, or to the end.
+	 */
+	private void writePageUntilTable() throws IOException {
+		while (templatePosition < template.getPlaceholderCount()) {
+			template.writeLiteral(writer, templatePosition);
+			int placeholder = template.getPlaceholder(templatePosition++);
+			if (placeholder == TABLE) {
+				return;
+			}
+			if (placeholder == TITLE && title != null) {
+				writer.write(htmlEncode(title));
+			}
+		}
+		if (templatePosition == template.getPlaceholderCount()) {
+			template.writeLiteral(writer, templatePosition++);
 		}
 	}
 
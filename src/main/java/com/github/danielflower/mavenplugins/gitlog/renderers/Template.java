@@ -0,0 +1,73 @@
+package com.github.danielflower.mavenplugins.gitlog.renderers;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A template split once into its literal text and the placeholders between them, so that it can be written
+ * out many times without searching and copying the template text again. Placeholders are written as
+ * <code>{name}</code>, and only the names given to the constructor are recognised.
+ */
+class Template {
+
+	private final String[] literals;
+	private final int[] placeholders;
+
+	/**
+	 * @param placeholderNames the names of the placeholders; {@link #getPlaceholder(int)} returns indexes into
+	 *            this array.
+	 */
+	Template(String text, String... placeholderNames) {
+		List<String> literalList = new ArrayList<String>();
+		List<Integer> placeholderList = new ArrayList<Integer>();
+		int start = 0;
+		int literalStart = 0;
+		while ((start = text.indexOf('{', start)) >= 0) {
+			int found = -1;
+			for (int i = 0; i < placeholderNames.length && found < 0; i++) {
+				String name = placeholderNames[i];
+				if (text.startsWith(name, start + 1) && text.startsWith("}", start + 1 + name.length())) {
+					found = i;
+				}
+			}
+			if (found < 0) {
+				start++;
+				continue;
+			}
+			literalList.add(text.substring(literalStart, start));
+			placeholderList.add(found);
+			start += placeholderNames[found].length() + 2;
+			literalStart = start;
+		}
+		literalList.add(text.substring(literalStart));
+		literals = literalList.toArray(new String[literalList.size()]);
+		placeholders = new int[placeholderList.size()];
+		for (int i = 0; i < placeholders.length; i++) {
+			placeholders[i] = placeholderList.get(i);
+		}
+	}
+
+	/**
+	 * The number of placeholders in the template. There is one more literal than there are placeholders.
+	 */
+	int getPlaceholderCount() {
+		return placeholders.length;
+	}
+
+	/**
+	 * Returns the index, in the names given to the constructor, of the placeholder at the given position.
+	 */
+	int getPlaceholder(int position) {
+		return placeholders[position];
+	}
+
+	/**
+	 * Writes the literal text that comes before the placeholder at the given position, or the text after
+	 * the last placeholder when the position equals the placeholder count.
+	 */
+	void writeLiteral(Writer writer, int position) throws IOException {
+		writer.write(literals[position]);
+	}
+}
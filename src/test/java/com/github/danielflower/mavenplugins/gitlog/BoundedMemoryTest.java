@@ -0,0 +1,170 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import com.github.danielflower.mavenplugins.gitlog.filters.CommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.DuplicateCommitMessageFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.MavenReleasePluginMessageFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.MergeCommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.renderers.ChangeLogRenderer;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BoundedMemoryTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private SyntheticRepository repo;
+	private final Map<String, String> files = new TreeMap<String, String>();
+	private int time = 1300000000;
+
+	@Before
+	public void createRepository() throws Exception {
+		repo = new SyntheticRepository(folder.newFolder("repo.git"));
+		ObjectId head = commit("core/A.java", "Initial commit");
+		for (int i = 1; i <= 3; i++) {
+			ObjectId branch = commit("core/B.java", "Work on a branch " + i, head);
+			head = commit("web/C.java", "Work on master " + i, head);
+			head = commit("core/A.java", "Same message", head);
+			head = commit("web/C.java", "Same message", head);
+			head = commit("core/B.java", "Merge branch " + i, head, branch);
+			head = commit("pom.xml", "[maven-release-plugin] prepare release v" + i, head);
+			repo.tag("v" + i, head, time);
+			head = commit("pom.xml", "[maven-release-plugin] prepare for next development iteration", head);
+		}
+		repo.setHead(head);
+	}
+
+	@After
+	public void closeRepository() {
+		repo.close();
+	}
+
+	@Test
+	public void theChangelogIsTheSameWithBoundedMemory() throws Exception {
+		for (String module : new String[] {null, "core", "web"}) {
+			List<String> expected = generate(false, module, 1, new RecordingRenderer()).rendered;
+			assertFalse(expected.isEmpty());
+			assertEquals(expected, generate(true, module, 1, new RecordingRenderer()).rendered);
+			RecordingRenderer parallel = new RecordingRenderer();
+			generate(true, module, 2, parallel, new RecordingRenderer());
+			assertEquals(expected, parallel.rendered);
+		}
+	}
+
+	@Test
+	public void theCommitsAreReleasedOnceRendered() throws Exception {
+		CommitKeeper keeper = new CommitKeeper();
+		generate(true, null, 1, keeper);
+		assertEquals(10, keeper.commits.size());
+		for (RevCommit commit : keeper.commits) {
+			assertNull(commit.name(), commit.getRawBuffer());
+		}
+	}
+
+	@Test
+	public void theHeapHeldPerCommitStaysSmallWhenTheMessagesAreLong() throws Exception {
+		SyntheticRepository large = new SyntheticRepository(folder.newFolder("large.git"));
+		try {
+			StringBuilder body = new StringBuilder();
+			for (int i = 0; i < 40; i++) {
+				body.append("A long line of the message body, which is not kept once rendered.\n");
+			}
+			Map<String, String> tree = new TreeMap<String, String>();
+			tree.put("A.java", "Unchanged");
+			ObjectId head = null;
+			for (int i = 0; i < 20000; i++) {
+				String message = "Commit " + i + "\n\n" + body;
+				head = (head == null) ? large.commit(message, time++, tree) : large.commit(message, time++, tree, head);
+			}
+			large.setHead(head);
+
+			HeapRenderer renderer = new HeapRenderer();
+			Generator generator = new Generator(Arrays.<ChangeLogRenderer>asList(renderer), new ArrayList<CommitFilter>(),
+					new SystemStreamLog());
+			generator.setBoundedMemory(true);
+			generator.openRepository(large.getRepository(), null);
+			generator.generate("Bounded memory test");
+
+			assertEquals(20000, renderer.commits);
+			// the walk still holds about 100 bytes per commit, against the 2.7k of each message
+			long retainedPerCommit = renderer.retained / renderer.commits;
+			assertTrue(retainedPerCommit + " bytes held per commit", retainedPerCommit < 512);
+		} finally {
+			large.close();
+		}
+	}
+
+	/**
+	 * Measures the heap that is still in use once every commit has been rendered.
+	 */
+	private static class HeapRenderer extends RecordingRenderer {
+		private final long before = usedHeap();
+		int commits;
+		long retained;
+
+		@Override
+		public void renderCommit(RevCommit commit) {
+			commits++;
+		}
+
+		@Override
+		public void renderFooter() {
+			// the walk is still open here, so everything it holds on to is still reachable
+			retained = usedHeap() - before;
+		}
+
+		private static long usedHeap() {
+			Runtime runtime = Runtime.getRuntime();
+			for (int i = 0; i < 3; i++) {
+				System.gc();
+			}
+			return runtime.totalMemory() - runtime.freeMemory();
+		}
+	}
+
+	private static class CommitKeeper extends RecordingRenderer {
+		final List<RevCommit> commits = new ArrayList<RevCommit>();
+
+		@Override
+		public void renderCommit(RevCommit commit) {
+			commits.add(commit);
+		}
+	}
+
+	private <T extends RecordingRenderer> T generate(boolean boundedMemory, String module, int threads,
+			T renderer, ChangeLogRenderer... others) throws Exception {
+		List<ChangeLogRenderer> renderers = new ArrayList<ChangeLogRenderer>();
+		renderers.add(renderer);
+		renderers.addAll(Arrays.asList(others));
+		List<CommitFilter> filters = Arrays.<CommitFilter>asList(new MavenReleasePluginMessageFilter(),
+				new MergeCommitFilter(), new DuplicateCommitMessageFilter());
+		Generator generator = new Generator(renderers, filters, new SystemStreamLog());
+		generator.setBoundedMemory(boundedMemory);
+		generator.setRendererThreads(threads);
+		generator.openRepository(repo.getRepository(), module);
+		generator.generate("Bounded memory test");
+		return renderer;
+	}
+
+	private ObjectId commit(String path, String message, ObjectId... parents) throws Exception {
+		files.put(path, message + " " + time);
+		return repo.commit(message, time++, files, parents);
+	}
+}
@@ -0,0 +1,185 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import com.github.danielflower.mavenplugins.gitlog.filters.CommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.DuplicateCommitMessageFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.MavenReleasePluginMessageFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.MergeCommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.renderers.ChangeLogRenderer;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ChangeLogCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private SyntheticRepository repo;
+	private File cacheDirectory;
+	private final Map<String, String> files = new TreeMap<String, String>();
+	private int time = 1300000000;
+
+	@Before
+	public void createRepository() throws Exception {
+		repo = new SyntheticRepository(folder.newFolder("repo.git"));
+		cacheDirectory = folder.newFolder("cache");
+	}
+
+	@After
+	public void closeRepository() {
+		repo.close();
+	}
+
+	@Test
+	public void commitsAddedSinceTheCacheWasWrittenAreMergedIntoTheCachedHistory() throws Exception {
+		ObjectId root = commit("Initial commit", "core/A.java");
+		ObjectId second = commit("Second commit", "core/B.java", root);
+		repo.tag("v1.0", second, time);
+		repo.setHead(second);
+		assertEquals(generate(null, false), generate(null, true));
+
+		ObjectId branch = commit("Work on a branch", "core/C.java", second);
+		ObjectId mainline = commit("Work on the mainline", "docs/readme.txt", second);
+		ObjectId merge = commit("Merge branch", "core/C.java", mainline, branch);
+		repo.tag("v1.1", merge, time);
+		repo.setHead(commit("After the merge", "core/D.java", merge));
+
+		List<String> expected = generate(null, false);
+		assertEquals(expected, generate(null, true));
+		assertEquals(expected, generate(null, true));
+		assertEquals(generate("core", false), generate("core", true));
+		assertTrue(new File(cacheDirectory, "gitlog-history.cache").isFile());
+	}
+
+	@Test
+	public void rewrittenHistoryCausesTheCacheToBeRebuilt() throws Exception {
+		ObjectId root = commit("Initial commit", "A.java");
+		ObjectId published = commit("Published commit", "B.java", root);
+		repo.setHead(published);
+		generate(null, true);
+
+		ObjectId amended = commit("Amended commit", "C.java", root);
+		repo.setHead(commit("On top of the amended commit", "D.java", amended));
+		List<String> expected = generate(null, false);
+		assertEquals(expected, generate(null, true));
+		assertEquals(expected, generate(null, true));
+	}
+
+	@Test
+	public void aBackdatedCommitOnTopOfTheCachedHistoryIsInTheSameOrderAsWithoutTheCache() throws Exception {
+		ObjectId root = commit("Initial commit", "A.java");
+		ObjectId tip = commit("Cached tip", "B.java", root);
+		repo.setHead(tip);
+		generate(null, true);
+
+		// made on a machine whose clock was behind
+		time -= 100;
+		ObjectId backdated = commit("Backdated commit", "C.java", tip);
+		time += 200;
+		repo.setHead(commit("On top of the backdated commit", "D.java", backdated));
+		List<String> expected = generate(null, false);
+		assertEquals(expected, generate(null, true));
+		assertEquals(expected, generate(null, true));
+	}
+
+	@Test
+	public void aMergeSimplifiedForTheModuleIsStillRenderedOnceItIsCached() throws Exception {
+		ObjectId root = commit("Initial commit", "core/A.java");
+		ObjectId core = commit("Core change", "core/B.java", root);
+		ObjectId docs = commit("Docs change", "docs/readme.txt", core);
+		repo.setHead(commit("Merge with a change of its own", "core/C.java", core, docs));
+
+		List<String> expected = generateWithDefaultFilters("core", false);
+		assertTrue(expected.toString(), expected.toString().contains("Merge with a change of its own"));
+		assertEquals(expected, generateWithDefaultFilters("core", true));
+		assertEquals(expected, generateWithDefaultFilters("core", true));
+		assertEquals(expected, generateWithDefaultFilters("core", true));
+
+		ChangeLogCache history = ChangeLogCache.inMemory(cacheDirectory, new SystemStreamLog());
+		repo.setHead(commit("After the merge", "core/D.java", repo.getRepository().resolve("HEAD")));
+		expected = generateWithDefaultFilters("core", false);
+		assertEquals(expected, generate("core", history, defaultFilters()));
+		assertEquals(expected, generate("core", history, defaultFilters()));
+	}
+
+	@Test
+	public void aCacheKeptInMemoryGivesTheSameChangelogsAsReadingTheHistoryAgain() throws Exception {
+		ChangeLogCache history = ChangeLogCache.inMemory(cacheDirectory, new SystemStreamLog());
+		ObjectId root = commit("Initial commit", "core/A.java");
+		ObjectId second = commit("Second commit", "core/B.java", root);
+		repo.tag("v1.0", second, time);
+		repo.setHead(second);
+		assertEquals(generate(null, false), generate(null, history));
+
+		ObjectId branch = commit("Work on a branch", "core/C.java", second);
+		ObjectId merge = commit("Merge branch", "core/C.java", commit("Work on the mainline", "docs/readme.txt", second), branch);
+		repo.tag("v1.1", merge, time);
+		repo.setHead(merge);
+		assertEquals(generate(null, false), generate(null, history));
+		assertEquals(generate(null, false), generate(null, history));
+
+		ObjectId amended = commit("Amended commit", "core/D.java", root);
+		repo.setHead(amended);
+		assertEquals(generate(null, false), generate(null, history));
+		assertEquals(0, cacheDirectory.list().length);
+	}
+
+	private ObjectId commit(String message, String changedPath, ObjectId... parents) throws Exception {
+		files.put(changedPath, message);
+		return repo.commit(message, time++, files, parents);
+	}
+
+	private List<String> generate(String module, ChangeLogCache history) throws Exception {
+		return generate(module, history, null);
+	}
+
+	private List<String> generate(String module, ChangeLogCache history, List<CommitFilter> filters) throws Exception {
+		RecordingRenderer renderer = new RecordingRenderer();
+		Generator generator = new Generator(Arrays.<ChangeLogRenderer>asList(renderer), filters, new SystemStreamLog());
+		generator.setCache(history);
+		generator.openRepository(repo.getRepository(), module);
+		generator.generate("Cache test");
+		return renderer.rendered;
+	}
+
+	private List<String> generate(String module, boolean useCache) throws Exception {
+		return generate(module, useCache, null);
+	}
+
+	private List<String> generateWithDefaultFilters(String module, boolean useCache) throws Exception {
+		return generate(module, useCache, defaultFilters());
+	}
+
+	private List<String> generate(String module, boolean useCache, List<CommitFilter> filters) throws Exception {
+		RecordingRenderer renderer = new RecordingRenderer();
+		Generator generator = new Generator(Arrays.<ChangeLogRenderer>asList(renderer), filters, new SystemStreamLog());
+		if (useCache) {
+			generator.setCacheDirectory(cacheDirectory);
+		}
+		generator.openRepository(repo.getRepository(), module);
+		generator.generate("Cache test");
+		return renderer.rendered;
+	}
+
+	/**
+	 * New instances of the default filters, as some of them remember the commits they have seen.
+	 */
+	private static List<CommitFilter> defaultFilters() {
+		return new ArrayList<CommitFilter>(Arrays.asList(new MavenReleasePluginMessageFilter(), new MergeCommitFilter(),
+				new DuplicateCommitMessageFilter()));
+	}
+}
@@ -0,0 +1,138 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChangeLogCommandTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private SyntheticRepository repo;
+	private File workTree;
+	private final Map<String, String> files = new TreeMap<String, String>();
+	private int time = 1300000000;
+
+	@Before
+	public void createRepository() throws Exception {
+		workTree = folder.newFolder("project");
+		repo = new SyntheticRepository(new File(workTree, ".git"), false);
+		ObjectId root = commit("Initial commit", "core/A.java");
+		ObjectId second = commit("Fixes #12, see https://example.com/issues?id=12.", "core/B.java", root);
+		repo.tag("v1.0", second, time);
+		ObjectId docs = commit("Docs only <b>markup</b> & more", "docs/readme.txt", second);
+		repo.setHead(commit("CONF-7 Ünïcode in the core", "core/C.java", docs));
+	}
+
+	@After
+	public void closeRepository() {
+		repo.close();
+	}
+
+	@Test
+	public void theCommandLineWritesTheSameChangelogsAsTheApi() throws Exception {
+		File apiOutput = new File(folder.getRoot(), "api");
+		ChangeLogGenerator changeLog = new ChangeLogGenerator(new SystemStreamLog());
+		changeLog.setProjectDirectory(new File(workTree, "core"));
+		changeLog.setOutputDirectory(apiOutput);
+		changeLog.setReportTitle("Core v1.1 changelog");
+		changeLog.setGenerateMarkdownChangeLog(true);
+		changeLog.setGenerateHTMLTableOnlyChangeLog(true);
+		changeLog.setIssueManagementSystem("GitHub");
+		changeLog.setIssueManagementUrl("https://github.com/owner/project/issues");
+		changeLog.setIssueTrackers(Collections.singletonMap("JIRA", "https://jira.example.com/browse/CONF"));
+		changeLog.setTimeZone("UTC");
+		assertTrue(changeLog.generate());
+
+		File commandOutput = new File(folder.getRoot(), "command");
+		String[] args = {
+				"--projectDirectory=" + new File(workTree, "core"),
+				"--outputDirectory=" + commandOutput,
+				"--reportTitle=Core v1.1 changelog",
+				"--generateMarkdownChangeLog",
+				"--generateHTMLTableOnlyChangeLog=true",
+				"--issueManagementSystem=GitHub",
+				"--issueManagementUrl=https://github.com/owner/project/issues",
+				"--issueTrackers.JIRA=https://jira.example.com/browse/CONF",
+				"--timeZone=UTC"};
+		assertEquals(0, run(args));
+
+		String[] changelogs = {"changelog.txt", "changelog.md", "changelog.html", "changelogtable.html", "changelog.json"};
+		for (String changelog : changelogs) {
+			byte[] expected = read(new File(apiOutput, changelog));
+			assertTrue(changelog, new String(expected, "UTF-8").contains("CONF-7"));
+			assertFalse(changelog, new String(expected, "UTF-8").contains("Docs only"));
+			assertArrayEquals(changelog, expected, read(new File(commandOutput, changelog)));
+		}
+		// already up to date
+		assertEquals(0, run(args));
+	}
+
+	@Test
+	public void wrongOptionsAreRejectedBeforeAnythingIsWritten() throws Exception {
+		File output = new File(folder.getRoot(), "output");
+		assertEquals(2, run("--projectDirectory=" + workTree, "--outputDirectory=" + output, "--noSuchOption"));
+		assertEquals(2, run("--projectDirectory=" + workTree, "--outputDirectory=" + output, "--rendererThreads=many"));
+		assertEquals(2, run("--projectDirectory=" + workTree, "--outputDirectory=" + output, "--useCache=yes"));
+		assertEquals(2, run("--projectDirectory=" + workTree, "--outputDirectory=" + output, "--reportTitle"));
+		assertEquals(2, run("projectDirectory=" + workTree));
+		assertFalse(output.exists());
+
+		ByteArrayOutputStream usage = new ByteArrayOutputStream();
+		assertEquals(0, ChangeLogCommand.run(new String[] {"--help"}, new SystemStreamLog(), new PrintStream(usage, true, "UTF-8")));
+		for (String option : Arrays.asList("--outputDirectory=<file>", "--generateMarkdownChangeLog[=true|false]",
+				"--rendererThreads=<int>", "--reportTitle=<string>", "--issueTrackers.<system>=<url>")) {
+			assertTrue(option, usage.toString("UTF-8").contains(option));
+		}
+	}
+
+	@Test
+	public void aDirectoryOutsideOfAnyRepositoryFails() throws Exception {
+		File outside = folder.newFolder("outside");
+		assertEquals(1, run("--projectDirectory=" + outside, "--outputDirectory=" + new File(outside, "target")));
+	}
+
+	private int run(String... args) {
+		return ChangeLogCommand.run(args, new SystemStreamLog(), System.out);
+	}
+
+	private ObjectId commit(String message, String changedPath, ObjectId... parents) throws Exception {
+		files.put(changedPath, message);
+		return repo.commit(message, time++, files, parents);
+	}
+
+	private static byte[] read(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			for (int read = in.read(buffer); read > 0; read = in.read(buffer)) {
+				bytes.write(buffer, 0, read);
+			}
+			return bytes.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,221 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import com.github.danielflower.mavenplugins.gitlog.filters.CommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.DuplicateCommitMessageFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.MavenReleasePluginMessageFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.MergeCommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.renderers.ChangeLogRenderer;
+import com.github.danielflower.mavenplugins.gitlog.renderers.JsonRenderer;
+import com.github.danielflower.mavenplugins.gitlog.renderers.PlainTextRenderer;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.lib.MutableObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CommitGraphTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final Log log = new SystemStreamLog();
+	private SyntheticRepository repo;
+	private ObjectId head;
+	private int time = 1300000000;
+	private int run;
+
+	@Before
+	public void createRepository() throws Exception {
+		repo = new SyntheticRepository(folder.newFolder("repo.git"));
+		head = addHistory(null, 0);
+		repo.setHead(head);
+	}
+
+	@After
+	public void closeRepository() {
+		repo.close();
+	}
+
+	@Test
+	public void thereIsNoGraphUntilGitWritesOne() throws Exception {
+		assertNull(CommitGraph.open(repo.getRepository(), log));
+		writeCommitGraph();
+		assertNotNull(CommitGraph.open(repo.getRepository(), log));
+	}
+
+	@Test
+	public void theGraphHasTheParentsAndTimesOfEveryCommit() throws Exception {
+		writeCommitGraph();
+		CommitGraph graph = CommitGraph.open(repo.getRepository(), log);
+		RevWalk walk = new RevWalk(repo.getRepository());
+		walk.markStart(walk.parseCommit(head));
+		int commits = 0;
+		MutableObjectId id = new MutableObjectId();
+		for (RevCommit commit : walk) {
+			int position = graph.find(commit);
+			graph.getId(position, id);
+			assertEquals(commit, id.toObjectId());
+			assertEquals(commit.getCommitTime(), graph.getCommitTime(position));
+			int[] parents = graph.getParents(position);
+			assertEquals(commit.getParentCount(), parents.length);
+			for (int p = 0; p < parents.length; p++) {
+				assertEquals(graph.find(commit.getParent(p)), parents[p]);
+			}
+			commits++;
+		}
+		walk.release();
+		assertEquals(commits, graph.size());
+		assertEquals(-1, graph.find(ObjectId.zeroId()));
+	}
+
+	@Test
+	public void theChangelogIsTheSameWithTheGraph() throws Exception {
+		writeCommitGraph();
+		assertSameChangelog(new Date(0));
+		assertSameChangelog(new Date((time - 40) * 1000L));
+	}
+
+	@Test
+	public void commitsMadeSinceTheGraphWasWrittenAreReadFromTheRepository() throws Exception {
+		writeCommitGraph();
+		head = addHistory(head, 1);
+		repo.setHead(head);
+		assertSameChangelog(new Date(0));
+		assertSameChangelog(new Date((time - 10) * 1000L));
+	}
+
+	@Test
+	public void commitsAfterTheCutoffBehindOlderOnesAreNotLeftOut() throws Exception {
+		repo.close();
+		repo = new SyntheticRepository(folder.newFolder("skewed.git"));
+		Map<String, String> files = new TreeMap<String, String>();
+		int cutoff = time;
+		files.put("A.java", "Root");
+		ObjectId commit = repo.commit("Root", cutoff + 1, files);
+		files.put("B.java", "After the cutoff");
+		commit = repo.commit("After the cutoff", cutoff + 5, files, commit);
+		for (int i = 0; i < CommitTimeCutoffFilter.OVER_SCAN + 1; i++) {
+			files.put("C" + i + ".java", "From a slow clock");
+			commit = repo.commit("From a slow clock " + i, cutoff - 100, files, commit);
+		}
+		files.put("D.java", "Head");
+		repo.setHead(repo.commit("Head", cutoff + 50, files, commit));
+		writeCommitGraph();
+
+		Date includeCommitsAfter = new Date(cutoff * 1000L);
+		assertSameChangelog(includeCommitsAfter);
+		String changelog = new String(read(new File(generate(true, false, includeCommitsAfter), "changelog.txt")), "UTF-8");
+		assertTrue(changelog, changelog.contains("After the cutoff"));
+		assertTrue(changelog, changelog.contains("Root"));
+	}
+
+	@Test
+	public void aChainOfGraphsIsReadAsOne() throws Exception {
+		writeCommitGraph("--split");
+		head = addHistory(head, 1);
+		repo.setHead(head);
+		writeCommitGraph("--split=no-merge");
+		assertTrue(new File(repo.getRepository().getDirectory(), "objects/info/commit-graphs/commit-graph-chain").isFile());
+		assertSameChangelog(new Date(0));
+	}
+
+	/**
+	 * Adds merges, an octopus merge, a tagged merge, commits with the same time, and a commit whose clock
+	 * was behind, which are the cases where the order of the walk is easy to get wrong.
+	 */
+	private ObjectId addHistory(ObjectId base, int round) throws Exception {
+		Map<String, String> files = new TreeMap<String, String>();
+		ObjectId tip = base;
+		for (int i = 0; i < 30; i++) {
+			files.put("File" + (i % 4) + ".java", "round " + round + " change " + i);
+			ObjectId[] parents = (tip == null) ? new ObjectId[0] : new ObjectId[] {tip};
+			int when = (i % 5 == 3) ? time - 100 : (i % 3 == 0) ? time : time++;
+			tip = repo.commit((i % 10 == 0) ? "[maven-release-plugin] prepare release" : "Change " + i, when, files, parents);
+			if (i % 7 == 6) {
+				ObjectId branch = repo.commit("Branch " + i, time++, files, tip);
+				ObjectId other = repo.commit("Other branch " + i, time, files, tip);
+				ObjectId[] merged = (i % 14 == 13) ? new ObjectId[] {tip, branch, other} : new ObjectId[] {tip, branch};
+				tip = repo.commit("Merge " + i, time++, files, merged);
+				if (i == 13) {
+					repo.tag("merge-" + round, tip, time);
+				}
+			}
+		}
+		repo.tag("v" + round, tip, time++);
+		return tip;
+	}
+
+	private void assertSameChangelog(Date includeCommitsAfter) throws Exception {
+		for (boolean boundedMemory : new boolean[] {false, true}) {
+			File walked = generate(false, boundedMemory, includeCommitsAfter);
+			File graphed = generate(true, boundedMemory, includeCommitsAfter);
+			for (String filename : Arrays.asList("changelog.txt", "changelog.json")) {
+				byte[] expected = read(new File(walked, filename));
+				assertTrue(expected.length > 0);
+				assertArrayEquals(filename, expected, read(new File(graphed, filename)));
+			}
+		}
+	}
+
+	private File generate(boolean useCommitGraph, boolean boundedMemory, Date includeCommitsAfter) throws Exception {
+		File directory = folder.newFolder("run-" + run++);
+		List<ChangeLogRenderer> renderers = Arrays.<ChangeLogRenderer>asList(
+				new PlainTextRenderer(log, directory, "changelog.txt", false),
+				new JsonRenderer(log, directory, "changelog.json", true));
+		List<CommitFilter> filters = new ArrayList<CommitFilter>(Arrays.<CommitFilter>asList(
+				new MavenReleasePluginMessageFilter(), new MergeCommitFilter(), new DuplicateCommitMessageFilter()));
+		Generator generator = new Generator(renderers, filters, log);
+		generator.setUseCommitGraph(useCommitGraph);
+		generator.setBoundedMemory(boundedMemory);
+		generator.openRepository(repo.getRepository(), null);
+		generator.generate("Changelog", includeCommitsAfter);
+		return directory;
+	}
+
+	private void writeCommitGraph(String... options) throws Exception {
+		List<String> command = new ArrayList<String>(Arrays.asList("git", "--git-dir="
+				+ repo.getRepository().getDirectory().getAbsolutePath(), "commit-graph", "write", "--reachable"));
+		command.addAll(Arrays.asList(options));
+		int exitCode;
+		try {
+			exitCode = new ProcessBuilder(command).redirectErrorStream(true).start().waitFor();
+		} catch (IOException e) {
+			exitCode = -1;
+		}
+		Assume.assumeTrue(exitCode == 0);
+	}
+
+	private static byte[] read(File file) throws Exception {
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			byte[] bytes = new byte[(int) in.length()];
+			in.readFully(bytes);
+			return bytes;
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import com.github.danielflower.mavenplugins.gitlog.renderers.ChangeLogRenderer;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CommitTimeCutoffFilterTest {
+
+	private static final int START = 1300000000;
+	private static final int CUTOFF = START + 40;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private SyntheticRepository repo;
+	private final Map<String, String> files = new TreeMap<String, String>();
+	private final List<ObjectId> ancientCommits = new ArrayList<ObjectId>();
+
+	@Before
+	public void createRepository() throws Exception {
+		repo = new SyntheticRepository(folder.newFolder("repo.git"));
+		ObjectId head = null;
+		ObjectId forkPoint = null;
+		for (int time = START; time < START + 60; time++) {
+			String path = (time % 3 == 0) ? "docs/readme.txt" : "core/File" + (time % 4) + ".java";
+			head = commit("Commit at " + time, time, path, head);
+			if (time < CUTOFF - 20) {
+				ancientCommits.add(head);
+			}
+			if (time == START + 10) {
+				repo.tag("v1.0", head, time);
+			}
+			if (time == CUTOFF - 2) {
+				forkPoint = head;
+			}
+		}
+		// a branch started before the cutoff and merged after it, with a commit from a clock that ran behind
+		ObjectId branch = commit("Branch work", CUTOFF + 5, "core/Branch.java", forkPoint);
+		branch = commit("Commit from a slow clock", CUTOFF - 1, "core/Branch.java", branch);
+		head = commit("Merge the branch", START + 61, "core/Branch.java", head, branch);
+		repo.tag("v2.0", head, START + 61);
+		repo.setHead(commit("After the merge", START + 62, "core/After.java", head));
+	}
+
+	@After
+	public void closeRepository() {
+		repo.close();
+	}
+
+	@Test
+	public void theWalkStopsBeforeReachingTheCommitsMadeLongBeforeTheCutoff() throws Exception {
+		List<String> modules = Arrays.asList(null, "core", "docs");
+		List<List<String>> expected = new ArrayList<List<String>>();
+		for (String module : modules) {
+			expected.add(generate(module, true, false));
+			assertTrue(expected.get(expected.size() - 1).size() > 2);
+			assertEquals(expected.get(expected.size() - 1), generate(module, false, false));
+		}
+		deleteAncientCommits();
+		// the walk would fail with a missing object if it parsed any of the deleted commits
+		for (int i = 0; i < modules.size(); i++) {
+			assertEquals(expected.get(i), generate(modules.get(i), false, true));
+		}
+	}
+
+	@Test
+	public void commitsAfterTheCutoffBehindOlderOnesAreOnlyLeftOutWhenCommitTimesAreTrusted() throws Exception {
+		repo.close();
+		repo = new SyntheticRepository(folder.newFolder("skewed.git"));
+		files.clear();
+		ObjectId commit = commit("Root", CUTOFF + 1, "core/A.java");
+		commit = commit("After the cutoff", CUTOFF + 5, "core/B.java", commit);
+		for (int i = 0; i < CommitTimeCutoffFilter.OVER_SCAN + 1; i++) {
+			commit = commit("From a slow clock " + i, CUTOFF - 100, "core/C" + i + ".java", commit);
+		}
+		repo.setHead(commit("Head", CUTOFF + 50, "core/D.java", commit));
+
+		List<String> expected = generate(null, true, false);
+		assertEquals(5, expected.size());
+		assertTrue(expected.get(2), expected.get(2).endsWith("After the cutoff"));
+		assertEquals(expected, generate(null, false, false));
+		assertEquals(expected, generate("core", false, false));
+		assertEquals(3, generate(null, false, true).size());
+	}
+
+	private void deleteAncientCommits() {
+		File objects = new File(repo.getRepository().getDirectory(), "objects");
+		for (ObjectId id : ancientCommits) {
+			File object = new File(new File(objects, id.name().substring(0, 2)), id.name().substring(2));
+			if (object.exists()) {
+				assertTrue(object.delete());
+			}
+		}
+	}
+
+	private ObjectId commit(String message, int time, String changedPath, ObjectId... parents) throws Exception {
+		files.put(changedPath, message);
+		List<ObjectId> parentIds = new ArrayList<ObjectId>();
+		for (ObjectId parent : parents) {
+			if (parent != null) {
+				parentIds.add(parent);
+			}
+		}
+		return repo.commit(message, time, files, parentIds.toArray(new ObjectId[parentIds.size()]));
+	}
+
+	/**
+	 * Without the cache, the walk is given the cutoff; with it, the whole history is read into the cache and
+	 * the commits are only compared with the cutoff as they are rendered, which is what generation used to do.
+	 */
+	private List<String> generate(String module, boolean readWholeHistory, boolean trustCommitTimes) throws Exception {
+		RecordingRenderer renderer = new RecordingRenderer();
+		Generator generator = new Generator(Arrays.<ChangeLogRenderer>asList(renderer), null, new SystemStreamLog());
+		if (readWholeHistory) {
+			generator.setCacheDirectory(folder.newFolder());
+		}
+		generator.setTrustCommitTimes(trustCommitTimes);
+		generator.openRepository(repo.getRepository(), module);
+		generator.generate("Cutoff test", new Date(CUTOFF * 1000L));
+		return renderer.rendered;
+	}
+}
@@ -0,0 +1,167 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import com.github.danielflower.mavenplugins.gitlog.filters.CommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.DuplicateCommitMessageFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.MavenReleasePluginMessageFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.MergeCommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.renderers.ChangeLogRenderer;
+import com.github.danielflower.mavenplugins.gitlog.renderers.JsonRenderer;
+import com.github.danielflower.mavenplugins.gitlog.renderers.MarkdownRenderer;
+import com.github.danielflower.mavenplugins.gitlog.renderers.NullMessageConverter;
+import com.github.danielflower.mavenplugins.gitlog.renderers.PlainTextRenderer;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentModulesTest {
+
+	private static final List<String> MODULES = Arrays.asList("", "core", "web", "libs/util", "libs/other", "tools");
+	private static final List<String> FILENAMES = Arrays.asList("changelog.txt", "changelog.json", "changelog.md");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private SyntheticRepository repo;
+	private File workTree;
+	private final Log log = new SystemStreamLog();
+
+	@Before
+	public void createRepository() throws Exception {
+		workTree = folder.newFolder("project");
+		repo = new SyntheticRepository(new File(workTree, ".git"), false);
+		Map<String, String> files = new TreeMap<String, String>();
+		ObjectId head = null;
+		ObjectId branchPoint = null;
+		for (int i = 0; i < 200; i++) {
+			String module = MODULES.get(1 + i % (MODULES.size() - 1));
+			files.put(module + "/File" + (i % 7) + ".java", "version " + i);
+			String message = (i % 10 == 0) ? "Tidy up" : "Change " + i + " to " + module;
+			ObjectId[] parents = (head == null) ? new ObjectId[0] : new ObjectId[] {head};
+			head = repo.commit(message, 1300000000 + i, files, parents);
+			if (i % 20 == 5) {
+				branchPoint = head;
+			} else if (i % 20 == 15) {
+				// a branch made from ten commits back, merged in
+				files.put(module + "/Branch" + i + ".java", "branch " + i);
+				ObjectId branch = repo.commit("Branch " + i, 1300000000 + i, files, branchPoint);
+				head = repo.commit("Merge branch " + i, 1300000000 + i, files, head, branch);
+			}
+			if (i % 50 == 49) {
+				repo.tag("v" + i, head, 1300000000 + i);
+			}
+		}
+		repo.setHead(head);
+	}
+
+	@After
+	public void closeRepository() {
+		repo.close();
+	}
+
+	@Test
+	public void eachModuleIsTheSameWhenTheModulesShareTheRepositoryOnSeveralThreads() throws Exception {
+		File sequential = folder.newFolder("sequential");
+		for (String module : MODULES) {
+			generate(module, sequential);
+		}
+		for (int run = 0; run < 3; run++) {
+			final File concurrent = folder.newFolder("concurrent-" + run);
+			ExecutorService executor = Executors.newFixedThreadPool(MODULES.size());
+			try {
+				List<Future<Void>> generated = new ArrayList<Future<Void>>();
+				for (final String module : MODULES) {
+					generated.add(executor.submit(new Callable<Void>() {
+						public Void call() throws Exception {
+							generate(module, concurrent);
+							return null;
+						}
+					}));
+				}
+				for (Future<Void> future : generated) {
+					future.get();
+				}
+			} finally {
+				executor.shutdown();
+			}
+			for (String module : MODULES) {
+				for (String filename : FILENAMES) {
+					byte[] expected = read(new File(new File(sequential, "module-" + module), filename));
+					assertTrue(expected.length > 0);
+					assertArrayEquals(module + " " + filename, expected,
+							read(new File(new File(concurrent, "module-" + module), filename)));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void eachModuleIsTheSameWhenTheCommitsOfTheReactorAreDiffedOnSeveralThreads() throws Exception {
+		ReactorHistory sequential = new ReactorHistory(repo.getRepository(), MODULES, null, 1, log);
+		ReactorHistory concurrent = new ReactorHistory(repo.getRepository(), MODULES, null, 4, log);
+		for (String module : MODULES) {
+			ReactorHistory.ModuleHistory expected = sequential.take(module);
+			ReactorHistory.ModuleHistory actual = concurrent.take(module);
+			assertFalse(module, expected.commits.isEmpty());
+			assertEquals(module, expected.commits, actual.commits);
+			assertEquals(module, expected.simplifiedMerges, actual.simplifiedMerges);
+		}
+	}
+
+	@Test
+	public void eachChangelogHasFiltersOfItsOwn() {
+		List<CommitFilter> first = Defaults.commitFilters();
+		List<CommitFilter> second = Defaults.commitFilters();
+		assertEquals(first.size(), second.size());
+		for (int f = 0; f < first.size(); f++) {
+			assertNotSame(first.get(f), second.get(f));
+		}
+	}
+
+	private void generate(String module, File outputDirectory) throws Exception {
+		File directory = new File(outputDirectory, "module-" + module);
+		assertTrue(directory.mkdirs());
+		List<ChangeLogRenderer> renderers = Arrays.<ChangeLogRenderer>asList(
+				new PlainTextRenderer(log, directory, FILENAMES.get(0), false),
+				new JsonRenderer(log, directory, FILENAMES.get(1), true),
+				new MarkdownRenderer(log, directory, FILENAMES.get(2), false, new NullMessageConverter()));
+		List<CommitFilter> filters = Arrays.<CommitFilter>asList(new MavenReleasePluginMessageFilter(),
+				new MergeCommitFilter(), new DuplicateCommitMessageFilter(true, null));
+		Generator generator = new Generator(renderers, filters, log);
+		generator.openRepository(repo.getRepository(), module);
+		generator.generate("Changelog of " + module);
+	}
+
+	private static byte[] read(File file) throws Exception {
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			byte[] bytes = new byte[(int) in.length()];
+			in.readFully(bytes);
+			return bytes;
+		} finally {
+			in.close();
+		}
+	}
+}
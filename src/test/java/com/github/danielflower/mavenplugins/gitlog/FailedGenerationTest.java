@@ -0,0 +1,142 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import com.github.danielflower.mavenplugins.gitlog.filters.CommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.renderers.ChangeLogRenderer;
+import com.github.danielflower.mavenplugins.gitlog.renderers.MarkdownRenderer;
+import com.github.danielflower.mavenplugins.gitlog.renderers.NullMessageConverter;
+import com.github.danielflower.mavenplugins.gitlog.renderers.PlainTextRenderer;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FailedGenerationTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private SyntheticRepository repo;
+	private final Map<String, String> files = new TreeMap<String, String>();
+	private int time = 1300000000;
+	private ObjectId head;
+	private File output;
+
+	@Before
+	public void createRepository() throws Exception {
+		repo = new SyntheticRepository(folder.newFolder("repo.git"));
+		for (int i = 1; i <= 5; i++) {
+			commit("Work #" + i);
+		}
+		output = folder.newFolder("output");
+	}
+
+	@After
+	public void closeRepository() {
+		repo.close();
+	}
+
+	@Test
+	public void theChangelogsAreLeftAsTheyWereWhenTheWalkFails() throws Exception {
+		theChangelogsAreLeftAsTheyWereWhenTheWalkFails(1);
+	}
+
+	@Test
+	public void theChangelogsAreLeftAsTheyWereWhenTheWalkFailsWithParallelRenderers() throws Exception {
+		theChangelogsAreLeftAsTheyWereWhenTheWalkFails(2);
+	}
+
+	private void theChangelogsAreLeftAsTheyWereWhenTheWalkFails(int rendererThreads) throws Exception {
+		generate(rendererThreads, Collections.<CommitFilter>emptyList());
+		byte[] text = read(new File(output, "changelog.txt"));
+		byte[] markdown = read(new File(output, "changelog.md"));
+		assertTrue(new String(text, "UTF-8").contains("Work #5"));
+
+		commit("Work #6");
+		try {
+			generate(rendererThreads, Collections.<CommitFilter>singletonList(new FailingFilter(3)));
+			fail("The failure of the filter should have ended the generation");
+		} catch (IllegalStateException e) {
+			assertEquals("Filter failed", e.getMessage());
+		}
+		assertArrayEquals(text, read(new File(output, "changelog.txt")));
+		assertArrayEquals(markdown, read(new File(output, "changelog.md")));
+		assertEquals(Arrays.asList("changelog.md", "changelog.txt"), sorted(output.list()));
+	}
+
+	private void generate(int rendererThreads, List<CommitFilter> filters) throws IOException {
+		Log log = new SystemStreamLog();
+		List<ChangeLogRenderer> renderers = Arrays.<ChangeLogRenderer>asList(
+				new PlainTextRenderer(log, output, "changelog.txt", false),
+				new MarkdownRenderer(log, output, "changelog.md", false, new NullMessageConverter()));
+		Generator generator = new Generator(renderers, filters, log);
+		generator.setRendererThreads(rendererThreads);
+		generator.openRepository(repo.getRepository(), null);
+		generator.generate("Failure test");
+	}
+
+	private void commit(String message) throws Exception {
+		files.put("File" + (time % 3) + ".java", message);
+		head = (head == null) ? repo.commit(message, time++, files) : repo.commit(message, time++, files, head);
+		repo.setHead(head);
+	}
+
+	private static List<String> sorted(String[] names) {
+		Arrays.sort(names);
+		return Arrays.asList(names);
+	}
+
+	private static byte[] read(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			for (int read = in.read(buffer); read > 0; read = in.read(buffer)) {
+				bytes.write(buffer, 0, read);
+			}
+			return bytes.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Throws once it is asked about the given number of commits.
+	 */
+	private static class FailingFilter implements CommitFilter {
+		private final int failOn;
+		private int seen;
+
+		FailingFilter(int failOn) {
+			this.failOn = failOn;
+		}
+
+		public boolean renderCommit(RevCommit commit, Repository repository) {
+			if (++seen == failOn) {
+				throw new IllegalStateException("Filter failed");
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import com.github.danielflower.mavenplugins.gitlog.filters.CommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.DuplicateCommitMessageFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.MavenReleasePluginMessageFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.MergeCommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.renderers.ChangeLogRenderer;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FiltersInWalkTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private SyntheticRepository repo;
+	private final Map<String, String> files = new TreeMap<String, String>();
+	private int time = 1300000000;
+	private Generator generator;
+
+	@Before
+	public void createRepository() throws Exception {
+		repo = new SyntheticRepository(folder.newFolder("repo.git"));
+		ObjectId head = commit("core/A.java", "Initial commit");
+		for (int i = 1; i <= 3; i++) {
+			ObjectId branch = commit("core/B.java", "Work on a branch " + i, head);
+			head = commit("web/C.java", "Work on master " + i, head);
+			head = commit("core/A.java", "Same message", head);
+			head = commit("core/A.java", "Same message", head);
+			head = commit("core/B.java", "Merge branch " + i, head, branch);
+			head = commit("pom.xml", "[maven-release-plugin] prepare release v" + i, head);
+			repo.tag("v" + i, head, time);
+			head = commit("pom.xml", "[maven-release-plugin] prepare for next development iteration", head);
+		}
+		repo.setHead(head);
+	}
+
+	@After
+	public void closeRepository() {
+		repo.close();
+	}
+
+	@Test
+	public void theBuiltInFiltersGiveTheSameChangelogInsideTheWalk() throws Exception {
+		for (String module : new String[] {null, "core", "web"}) {
+			// the cached history is read before the filters run, so none of them are evaluated by the walk
+			List<String> expected = generate(folder.newFolder(), module);
+			List<String> actual = generate(null, module);
+			assertEquals(expected, actual);
+		}
+		assertTrue(generate(null, null).contains("tag v3"));
+	}
+
+	@Test
+	public void rejectedCommitsNeverReachTheRenderLoop() throws Exception {
+		generate(null, null);
+		GenerationMetrics metrics = generator.getMetrics();
+		// of the 22 commits, the 3 merges and the 3 untagged release plugin commits are dropped by the walk
+		assertEquals(16, metrics.getCommitsWalked());
+		assertEquals(Arrays.asList("DuplicateCommitMessageFilter"),
+				Arrays.asList(metrics.getFilterNanos().keySet().toArray()));
+	}
+
+	private List<String> generate(File cacheDirectory, String module) throws Exception {
+		RecordingRenderer renderer = new RecordingRenderer();
+		List<CommitFilter> filters = Arrays.<CommitFilter>asList(new MavenReleasePluginMessageFilter(),
+				new MergeCommitFilter(), new DuplicateCommitMessageFilter());
+		generator = new Generator(Arrays.<ChangeLogRenderer>asList(renderer), filters, new SystemStreamLog());
+		if (cacheDirectory != null) {
+			generator.setCacheDirectory(cacheDirectory);
+		}
+		generator.openRepository(repo.getRepository(), module);
+		generator.generate("Filter test");
+		return renderer.rendered;
+	}
+
+	private ObjectId commit(String path, String message, ObjectId... parents) throws Exception {
+		files.put(path, message + " " + time);
+		return repo.commit(message, time++, files, parents);
+	}
+}
@@ -0,0 +1,109 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import com.github.danielflower.mavenplugins.gitlog.filters.CommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.DuplicateCommitMessageFilter;
+import com.github.danielflower.mavenplugins.gitlog.renderers.ChangeLogRenderer;
+import com.github.danielflower.mavenplugins.gitlog.renderers.PlainTextRenderer;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GenerationMetricsTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private SyntheticRepository repo;
+
+	@Before
+	public void createRepository() throws Exception {
+		repo = new SyntheticRepository(folder.newFolder("repo.git"));
+		Map<String, String> files = new TreeMap<String, String>();
+		ObjectId head = null;
+		for (int i = 1; i <= 5; i++) {
+			files.put("File.java", "version " + i);
+			String message = (i == 3) ? "Change 2" : "Change " + i;
+			head = (head == null) ? repo.commit(message, 1300000000 + i, files)
+					: repo.commit(message, 1300000000 + i, files, head);
+		}
+		repo.tag("v1.0", head, 1300000006);
+		repo.setHead(head);
+	}
+
+	@After
+	public void closeRepository() {
+		repo.close();
+	}
+
+	@Test
+	public void everyPartOfTheRunIsMeasured() throws Exception {
+		File output = folder.newFolder("output");
+		PlainTextRenderer plainText = new PlainTextRenderer(new SystemStreamLog(), output, "changelog.txt", false);
+		Generator generator = new Generator(Arrays.<ChangeLogRenderer>asList(plainText, new RecordingRenderer()),
+				Arrays.<CommitFilter>asList(new DuplicateCommitMessageFilter()), new SystemStreamLog());
+		generator.openRepository(repo.getRepository(), null);
+		generator.generate("Metrics test");
+
+		GenerationMetrics metrics = generator.getMetrics();
+		assertEquals(5, metrics.getCommitsWalked());
+		assertEquals(4, metrics.getCommitsRendered());
+		assertEquals(Arrays.asList("DuplicateCommitMessageFilter"),
+				Arrays.asList(metrics.getFilterNanos().keySet().toArray()));
+		assertEquals(Arrays.asList("PlainTextRenderer changelog.txt", "RecordingRenderer"),
+				Arrays.asList(metrics.getRendererNanos().keySet().toArray()));
+		long bytes = new File(output, "changelog.txt").length();
+		assertTrue(bytes > 0);
+		assertEquals(Long.valueOf(bytes), metrics.getOutputBytes().get("changelog.txt"));
+		assertTrue(metrics.getTotalNanos() >= metrics.getPhaseNanos(GenerationMetrics.WALK));
+		assertTrue(metrics.toSummary(), metrics.toSummary().matches("Changelog generated in \\d+ms \\(open \\d+ms, "
+				+ "walk \\d+ms, tags \\d+ms, filter \\d+ms, render \\d+ms, cache \\d+ms\\): 5 commits walked, "
+				+ "4 rendered, " + bytes + " bytes written to 1 file"));
+	}
+
+	@Test
+	public void theMetricsCanBeWrittenAsJson() throws Exception {
+		GenerationMetrics metrics = new GenerationMetrics();
+		metrics.addPhase(GenerationMetrics.WALK, 3000000);
+		metrics.addPhase(GenerationMetrics.RENDER, 2000000);
+		metrics.addFilter("MergeCommitFilter", 1000000);
+		metrics.commitWalked();
+		metrics.commitRendered();
+		File file = folder.newFile("metrics.json");
+		metrics.writeJson(file);
+
+		Scanner scanner = new Scanner(file, "UTF-8");
+		String json = scanner.useDelimiter("\\A").next();
+		scanner.close();
+		assertEquals("{\n"
+				+ "  \"totalMillis\": 5,\n"
+				+ "  \"commitsWalked\": 1,\n"
+				+ "  \"commitsRendered\": 1,\n"
+				+ "  \"phaseMillis\": {\n"
+				+ "    \"open\": 0,\n"
+				+ "    \"walk\": 3,\n"
+				+ "    \"tags\": 0,\n"
+				+ "    \"filter\": 0,\n"
+				+ "    \"render\": 2,\n"
+				+ "    \"cache\": 0\n"
+				+ "  },\n"
+				+ "  \"filterMillis\": {\n"
+				+ "    \"MergeCommitFilter\": 1\n"
+				+ "  },\n"
+				+ "  \"rendererMillis\": {},\n"
+				+ "  \"outputBytes\": {}\n"
+				+ "}\n", json);
+	}
+}
@@ -67,7 +67,7 @@ public class GeneratorTest {
 	}
 
 	private void generateReport(Log log, ChangeLogRenderer renderer) throws IOException, NoGitRepositoryException {
-		Generator generator = new Generator(Arrays.asList(renderer), Defaults.COMMIT_FILTERS, log);
+		Generator generator = new Generator(Arrays.asList(renderer), Defaults.commitFilters(), log);
 		generator.openRepository("");
 		generator.generate("Maven GitLog Plugin changelog");
 	}
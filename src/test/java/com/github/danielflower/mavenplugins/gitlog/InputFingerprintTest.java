@@ -0,0 +1,119 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class InputFingerprintTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private SyntheticRepository repo;
+	private File workTree;
+	private ObjectId head;
+	private final Map<String, String> files = new TreeMap<String, String>();
+
+	@Before
+	public void createRepository() throws Exception {
+		workTree = folder.newFolder("project");
+		repo = new SyntheticRepository(new File(workTree, ".git"), false);
+		files.put("README", "first");
+		head = repo.commit("First", 1300000000, files);
+		repo.tag("v1", head, 1300000001);
+		repo.setHead(head);
+	}
+
+	@After
+	public void closeRepository() {
+		repo.close();
+	}
+
+	@Test
+	public void theSameInputsGiveTheSameFingerprint() throws Exception {
+		assertEquals(fingerprint("title").getDigest(), fingerprint("title").getDigest());
+		assertNotEquals(fingerprint("title").getDigest(), fingerprint("other title").getDigest());
+	}
+
+	@Test
+	public void aNewCommitOrTagChangesTheFingerprint() throws Exception {
+		String before = fingerprint("title").getDigest();
+		repo.tag("v2", head, 1300000002);
+		String tagged = fingerprint("title").getDigest();
+		assertNotEquals(before, tagged);
+		files.put("README", "second");
+		repo.setHead(repo.commit("Second", 1300000003, files, head));
+		assertNotEquals(tagged, fingerprint("title").getDigest());
+	}
+
+	@Test
+	public void theStoredFingerprintOnlyMatchesWhileTheOutputsExist() throws Exception {
+		File directory = folder.newFolder("output");
+		File changelog = new File(directory, "changelog.txt");
+		assertTrue(changelog.createNewFile());
+		InputFingerprint fingerprint = fingerprint("title");
+		assertFalse(fingerprint.matches(directory, Arrays.asList(changelog)));
+		fingerprint.save(directory, new SystemStreamLog());
+		assertTrue(fingerprint.matches(directory, Arrays.asList(changelog)));
+		assertFalse(fingerprint("other title").matches(directory, Arrays.asList(changelog)));
+		assertFalse(fingerprint.matches(directory, Arrays.asList(changelog, new File(directory, "changelog.md"))));
+		InputFingerprint.delete(directory);
+		assertFalse(fingerprint.matches(directory, Collections.<File>emptyList()));
+	}
+
+	@Test
+	public void theChangelogIsStillLoggedWhenTheFilesAreUpToDate() throws Exception {
+		File output = new File(workTree, "target");
+		List<String> logged = new ArrayList<String>();
+		assertTrue(changeLog(output, logged).generate());
+		assertTrue(logged.contains("First"));
+		File changelog = new File(output, "changelog.txt");
+		long modified = changelog.lastModified();
+		assertTrue(changelog.setLastModified(modified - 10000));
+
+		logged.clear();
+		assertTrue(changeLog(output, logged).generate());
+		assertTrue(logged.contains("The changelog is up to date: nothing has changed since it was generated"));
+		assertTrue(logged.contains("First"));
+		assertEquals(modified - 10000, changelog.lastModified());
+	}
+
+	private ChangeLogGenerator changeLog(File output, final List<String> logged) {
+		ChangeLogGenerator changeLog = new ChangeLogGenerator(new SystemStreamLog() {
+			@Override
+			public void info(CharSequence content) {
+				// the commits are logged with their date and committer around the message
+				String line = content.toString();
+				logged.add(line.endsWith(")") ? line.substring(line.indexOf(' ') + 1, line.lastIndexOf(" (")) : line);
+			}
+		});
+		changeLog.setProjectDirectory(workTree);
+		changeLog.setOutputDirectory(output);
+		changeLog.setReportTitle("title");
+		changeLog.setDateFormat("yyyy-MM-dd");
+		changeLog.setVerbose(true);
+		changeLog.setSkipWhenUnchanged(true);
+		return changeLog;
+	}
+
+	private InputFingerprint fingerprint(String title) throws Exception {
+		return new InputFingerprint(repo.getRepository()).add("reportTitle", title);
+	}
+}
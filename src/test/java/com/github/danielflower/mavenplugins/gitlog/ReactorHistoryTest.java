@@ -0,0 +1,230 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import com.github.danielflower.mavenplugins.gitlog.filters.ChangedPathIndex;
+import com.github.danielflower.mavenplugins.gitlog.filters.CommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.filters.MergeCommitFilter;
+import com.github.danielflower.mavenplugins.gitlog.renderers.ChangeLogRenderer;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ReactorHistoryTest {
+
+	private static final List<String> MODULES = Arrays.asList("", "core", "web", "libs", "libs/util", "libs/other", "tools");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private SyntheticRepository repo;
+	private Map<String, String> files = new TreeMap<String, String>();
+
+	@Before
+	public void createRepository() throws Exception {
+		repo = new SyntheticRepository(folder.newFolder("repo.git"));
+	}
+
+	@After
+	public void closeRepository() {
+		repo.close();
+	}
+
+	@Test
+	public void eachModuleGetsTheSameCommitsAsAPathLimitedWalk() throws Exception {
+		for (String path : Arrays.asList("core/A.java", "web/W.java", "libs/util/U.java", "libs/other/O.java", "tools/Old.java")) {
+			files.put(path, "Initial commit");
+		}
+		ObjectId root = commit("Initial commit", 100, "pom.xml");
+		ObjectId second = commit("Change core", 200, "core/A.java", root);
+
+		ObjectId web = commit("Change web on a branch", 300, "web/W.java", second);
+		ObjectId util = commit("Change util on a branch", 310, "libs/util/U.java", web);
+		ObjectId mainline = commit("Change core on the mainline", 305, "core/B.java", second);
+		ObjectId firstMerge = merge("Merge branch", 400, mainline, util);
+		repo.tag("v1.0", firstMerge, 400);
+
+		files.remove("tools/Old.java");
+		ObjectId removeTools = commit("Remove the old tools", 450, "pom.xml", firstMerge);
+
+		// an unrelated history that is merged in, bringing the module back with a change made in the merge
+		Map<String, String> mainFiles = files;
+		files = new TreeMap<String, String>();
+		ObjectId toolsRoot = commit("Start the tools", 150, "tools/T.java");
+		ObjectId toolsChange = commit("Change the tools", 250, "tools/T.java", toolsRoot);
+		files.putAll(mainFiles);
+		ObjectId toolsMerge = commit("Merge the tools", 500, "tools/Merge.java", removeTools, toolsChange);
+
+		// two branches with commits made in the same second, merged with a change of its own
+		Map<String, String> atToolsMerge = new TreeMap<String, String>(files);
+		ObjectId left = commit("Left", 700, "libs/other/O.java", toolsMerge);
+		ObjectId right = commit("Right", 700, "core/A.java", toolsMerge);
+		ObjectId sameTime = commit("Same second", 700, "web/W.java", left);
+		ObjectId evilMerge = commit("Merge with a change of its own", 800, "libs/util/U.java", sameTime, right);
+		repo.tag("v1.1", evilMerge, 800);
+
+		// a branch that changed nothing any module cares about
+		Map<String, String> atEvilMerge = files;
+		files = atToolsMerge;
+		ObjectId docs = commit("Docs", 750, "README.txt", toolsMerge);
+		files.putAll(atEvilMerge);
+		ObjectId docsMerge = merge("Merge docs", 850, evilMerge, docs);
+		ObjectId web2 = commit("Change web", 855, "web/W.java", docsMerge);
+
+		// an octopus merge of three branches committed in the same second
+		Map<String, String> atWeb2 = files;
+		ObjectId[] branches = new ObjectId[3];
+		Map<String, String> octopusFiles = new TreeMap<String, String>(atWeb2);
+		for (int i = 0; i < branches.length; i++) {
+			files = new TreeMap<String, String>(atWeb2);
+			branches[i] = commit("Branch " + i, 860, "core/X" + i + ".java", web2);
+			octopusFiles.putAll(files);
+		}
+		files = octopusFiles;
+		repo.setHead(merge("Octopus", 900, branches));
+
+		assertSameAsPathLimitedWalks(false, null);
+		assertSameAsPathLimitedWalks(true, null);
+
+		// the index is built by the first run and read from disk by the second
+		File cacheDirectory = new File(folder.getRoot(), "cache");
+		for (int run = 0; run < 2; run++) {
+			ChangedPathIndex changedPaths = new ChangedPathIndex(cacheDirectory, new SystemStreamLog());
+			assertSameAsPathLimitedWalks(false, changedPaths);
+			assertSameAsPathLimitedWalks(true, changedPaths);
+			changedPaths.save();
+			String[] indexFiles = cacheDirectory.list();
+			assertEquals(1, indexFiles.length);
+			assertTrue(indexFiles[0], indexFiles[0].startsWith("gitlog-changed-paths-"));
+		}
+	}
+
+	@Test
+	public void theHistoryIsSharedUntilEveryModuleHasTakenItOrItIsReleased() throws Exception {
+		ObjectId root = commit("Initial commit", 100, "core/A.java");
+		repo.setHead(commit("Change web", 200, "web/W.java", root));
+		List<String> modules = Arrays.asList("core", "web");
+		SystemStreamLog log = new SystemStreamLog();
+
+		ReactorHistory history = ReactorHistory.forModules(repo.getRepository(), modules, null, log);
+		assertSame(history, ReactorHistory.forModules(repo.getRepository(), modules, null, log));
+		history.take("core");
+		assertSame(history, ReactorHistory.forModules(repo.getRepository(), modules, null, log));
+		history.take("web");
+		ReactorHistory next = ReactorHistory.forModules(repo.getRepository(), modules, null, log);
+		assertNotSame(history, next);
+
+		// a module that failed releases the history rather than leaving it to the modules after it
+		next.release();
+		ReactorHistory afterFailure = ReactorHistory.forModules(repo.getRepository(), modules, null, log);
+		assertNotSame(next, afterFailure);
+		afterFailure.release();
+		// the holds on the repository given with each of the histories above
+		for (int hold = 0; hold < 5; hold++) {
+			repo.getRepository().close();
+		}
+	}
+
+	@Test
+	public void aHistoryWalkedBeforeTheTagsMovedIsNotShared() throws Exception {
+		ObjectId root = commit("Initial commit", 100, "core/A.java");
+		ObjectId head = commit("Change web", 200, "web/W.java", root);
+		repo.setHead(head);
+		List<String> modules = Arrays.asList("core", "web");
+		SystemStreamLog log = new SystemStreamLog();
+
+		// left behind by a build that stopped before every module took its history
+		ReactorHistory stale = ReactorHistory.forModules(repo.getRepository(), modules, null, log);
+		repo.tag("v1.0", head, 300);
+		ReactorHistory history = ReactorHistory.forModules(repo.getRepository(), modules, null, log);
+		assertNotSame(stale, history);
+		assertEquals(1, history.getTagIndex().getTags(history.take("web").commits.get(0)).size());
+		history.release();
+		for (int hold = 0; hold < 2; hold++) {
+			repo.getRepository().close();
+		}
+	}
+
+	@Test
+	public void theMergeFilterOfAModuleIsReportedUnderItsName() throws Exception {
+		ObjectId root = commit("Initial commit", 100, "core/A.java");
+		ObjectId left = commit("Change web", 200, "web/W.java", root);
+		ObjectId right = commit("Change web again", 300, "web/X.java", root);
+		// both parents are the initial commit as far as core is concerned
+		repo.setHead(commit("Merge with a change to core", 400, "core/A.java", left, right));
+		ReactorHistory history = new ReactorHistory(repo.getRepository(), MODULES, null, new SystemStreamLog());
+
+		RecordingRenderer renderer = new RecordingRenderer();
+		Generator generator = new Generator(Arrays.<ChangeLogRenderer>asList(renderer), filters(true), new SystemStreamLog());
+		generator.useReactorHistory(history, "core");
+		generator.generate("core");
+
+		assertEquals(4, renderer.rendered.size());
+		assertTrue(renderer.rendered.get(1).endsWith(" Merge with a change to core"));
+		assertEquals(Collections.singleton("ModuleMergeFilter"), generator.getMetrics().getFilterNanos().keySet());
+	}
+
+	@Test
+	public void anEmptyRepositoryGivesEmptyModules() throws Exception {
+		assertSameAsPathLimitedWalks(true, null);
+	}
+
+	private void assertSameAsPathLimitedWalks(boolean filterMerges, ChangedPathIndex changedPaths) throws Exception {
+		ReactorHistory history = new ReactorHistory(repo.getRepository(), MODULES, changedPaths, new SystemStreamLog());
+		for (String module : MODULES) {
+			RecordingRenderer expected = new RecordingRenderer();
+			Generator generator = new Generator(Arrays.<ChangeLogRenderer>asList(expected), filters(filterMerges), new SystemStreamLog());
+			generator.openRepository(repo.getRepository(), module);
+			generator.generate(module);
+
+			RecordingRenderer actual = new RecordingRenderer();
+			generator = new Generator(Arrays.<ChangeLogRenderer>asList(actual), filters(filterMerges), new SystemStreamLog());
+			generator.useReactorHistory(history, module);
+			generator.generate(module);
+
+			assertEquals("Commits of module '" + module + "'", expected.rendered, actual.rendered);
+
+			if (changedPaths != null) {
+				// a single module read with the index
+				actual = new RecordingRenderer();
+				generator = new Generator(Arrays.<ChangeLogRenderer>asList(actual), filters(filterMerges), new SystemStreamLog());
+				generator.setChangedPathIndex(changedPaths);
+				generator.openRepository(repo.getRepository(), module);
+				generator.generate(module);
+				assertEquals("Commits of module '" + module + "' with the index", expected.rendered, actual.rendered);
+			}
+		}
+	}
+
+	private static List<CommitFilter> filters(boolean filterMerges) {
+		List<CommitFilter> filters = new ArrayList<CommitFilter>();
+		if (filterMerges) {
+			filters.add(new MergeCommitFilter());
+		}
+		return filters;
+	}
+
+	private ObjectId commit(String message, int commitTime, String changedPath, ObjectId... parents) throws Exception {
+		files.put(changedPath, message);
+		return repo.commit(message, commitTime, files, parents);
+	}
+
+	private ObjectId merge(String message, int commitTime, ObjectId... parents) throws Exception {
+		return repo.commit(message, commitTime, files, parents);
+	}
+}
@@ -0,0 +1,36 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import com.github.danielflower.mavenplugins.gitlog.renderers.ChangeLogRenderer;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTag;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Remembers what was rendered so that tests can compare the output of different generation strategies.
+ */
+public class RecordingRenderer implements ChangeLogRenderer {
+
+	public final List<String> rendered = new ArrayList<String>();
+
+	public void renderHeader(String reportTitle) throws IOException {
+		rendered.add("header " + reportTitle);
+	}
+
+	public void renderTag(RevTag tag) throws IOException {
+		rendered.add("tag " + tag.getTagName());
+	}
+
+	public void renderCommit(RevCommit commit) throws IOException {
+		rendered.add("commit " + commit.name() + " " + commit.getShortMessage());
+	}
+
+	public void renderFooter() throws IOException {
+		rendered.add("footer");
+	}
+
+	public void close() {
+	}
+}
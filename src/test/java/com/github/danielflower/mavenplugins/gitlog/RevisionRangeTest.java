@@ -0,0 +1,129 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import com.github.danielflower.mavenplugins.gitlog.renderers.ChangeLogRenderer;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RevisionRangeTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private SyntheticRepository repo;
+	private final Map<String, String> files = new TreeMap<String, String>();
+	private final List<ObjectId> firstRelease = new ArrayList<ObjectId>();
+	private int time = 1300000000;
+	private ObjectId head;
+
+	@Before
+	public void createRepository() throws Exception {
+		repo = new SyntheticRepository(folder.newFolder("repo.git"));
+		for (int i = 1; i <= 20; i++) {
+			head = commit("Work for 1.0 #" + i, head);
+			firstRelease.add(head);
+		}
+		repo.tag("v1.0", head, time);
+		head = commit("Work for 1.1", head);
+		ObjectId branch = commit("Work on a branch", head);
+		head = commit("More work for 1.1", head);
+		head = commit("Merge branch", head, branch);
+		repo.lightweightTag("v1.1", head);
+		head = commit("Work for 1.2", head);
+		repo.tag("nightly-1", head, time);
+		head = commit("More work for 1.2", head);
+		repo.setHead(head);
+	}
+
+	@After
+	public void closeRepository() {
+		repo.close();
+	}
+
+	@Test
+	public void theChangelogStartsAfterTheLatestMatchingTag() throws Exception {
+		assertEquals(Arrays.asList("More work for 1.2", "nightly-1", "Work for 1.2"),
+				generate(null, null, "v[0-9.]+"));
+	}
+
+	@Test
+	public void aTagOnTheEndRevisionIsNotTheStartOfItsOwnChangelog() throws Exception {
+		assertEquals(Arrays.asList("v1.1", "Merge branch", "More work for 1.1", "Work on a branch", "Work for 1.1"),
+				generate(null, "v1.1", "v[0-9.]+"));
+	}
+
+	@Test
+	public void theChangelogCanBeLimitedToTheCommitsBetweenTwoRevisions() throws Exception {
+		assertEquals(Arrays.asList("nightly-1", "Work for 1.2", "v1.1", "Merge branch", "More work for 1.1",
+				"Work on a branch", "Work for 1.1"), generate("v1.0", "nightly-1", null));
+	}
+
+	@Test
+	public void withoutAMatchingTagTheWholeHistoryIsShown() throws Exception {
+		assertEquals(generate(null, null, null), generate(null, null, "release-.*"));
+	}
+
+	@Test
+	public void commitsBeforeTheStartOfTheRangeAreNotRead() throws Exception {
+		List<String> expected = generate("v1.0", null, null);
+		// leave the commits the walk looks at to confirm that the rest of the history is excluded
+		for (ObjectId id : firstRelease.subList(0, 10)) {
+			File objects = new File(repo.getRepository().getDirectory(), "objects");
+			assertTrue(new File(new File(objects, id.name().substring(0, 2)), id.name().substring(2)).delete());
+		}
+		assertEquals(expected, generate("v1.0", null, null));
+		assertEquals(expected.subList(0, 3), generate(null, null, "v[0-9.]+"));
+	}
+
+	@Test(expected = IOException.class)
+	public void anUnknownRevisionIsAnError() throws Exception {
+		generate("v0.9", null, null);
+	}
+
+	private ObjectId commit(String message, ObjectId... parents) throws Exception {
+		files.put("File" + (time % 7) + ".java", message);
+		List<ObjectId> parentIds = new ArrayList<ObjectId>();
+		for (ObjectId parent : parents) {
+			if (parent != null) {
+				parentIds.add(parent);
+			}
+		}
+		return repo.commit(message, time++, files, parentIds.toArray(new ObjectId[parentIds.size()]));
+	}
+
+	private List<String> generate(String startRef, String endRef, String sinceTagPattern) throws Exception {
+		RecordingRenderer renderer = new RecordingRenderer();
+		Generator generator = new Generator(Arrays.<ChangeLogRenderer>asList(renderer), null, new SystemStreamLog());
+		generator.setRange(startRef, endRef);
+		if (sinceTagPattern != null) {
+			generator.setSinceTagPattern(Pattern.compile(sinceTagPattern));
+		}
+		generator.openRepository(repo.getRepository(), null);
+		generator.generate("Range test");
+		List<String> rendered = new ArrayList<String>();
+		for (String line : renderer.rendered) {
+			if (line.startsWith("tag ")) {
+				rendered.add(line.substring("tag ".length()));
+			} else if (line.startsWith("commit ")) {
+				rendered.add(line.substring("commit ".length() + 41));
+			}
+		}
+		return rendered;
+	}
+}
@@ -0,0 +1,143 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TagBuilder;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Builds git repositories directly through the object inserter so that tests and benchmarks can create
+ * histories of arbitrary shape without needing a working tree.
+ */
+public class SyntheticRepository {
+
+	private final Repository repository;
+	private final ObjectInserter inserter;
+
+	public SyntheticRepository(File directory) throws IOException {
+		this(directory, true);
+	}
+
+	/**
+	 * Creates a repository with a work tree when the directory is the <code>.git</code> directory of one, and
+	 * bare is false. Nothing is ever checked out into the work tree.
+	 */
+	public SyntheticRepository(File directory, boolean bare) throws IOException {
+		repository = new FileRepositoryBuilder().setGitDir(directory).build();
+		repository.create(bare);
+		inserter = repository.newObjectInserter();
+	}
+
+	public Repository getRepository() {
+		return repository;
+	}
+
+	/**
+	 * Creates a commit whose tree contains exactly the given files, mapped from path to content.
+	 */
+	public ObjectId commit(String message, int commitTime, Map<String, String> files, ObjectId... parents) throws IOException {
+		PersonIdent ident = new PersonIdent("Some Body", "somebody@example.com", commitTime * 1000L, 0);
+		CommitBuilder builder = new CommitBuilder();
+		builder.setTreeId(writeTree(files));
+		builder.setParentIds(parents);
+		builder.setAuthor(ident);
+		builder.setCommitter(ident);
+		builder.setMessage(message);
+		return inserter.insert(builder);
+	}
+
+	public ObjectId tag(String name, ObjectId commit, int tagTime) throws IOException {
+		TagBuilder builder = new TagBuilder();
+		builder.setTag(name);
+		builder.setObjectId(commit, Constants.OBJ_COMMIT);
+		builder.setTagger(new PersonIdent("Some Body", "somebody@example.com", tagTime * 1000L, 0));
+		builder.setMessage("Release " + name + "\n");
+		ObjectId tagId = inserter.insert(builder);
+		updateRef(Constants.R_TAGS + name, tagId);
+		return tagId;
+	}
+
+	public void lightweightTag(String name, ObjectId commit) throws IOException {
+		updateRef(Constants.R_TAGS + name, commit);
+	}
+
+	/**
+	 * Points the master branch, and therefore HEAD, at the given commit.
+	 */
+	public void setHead(ObjectId commit) throws IOException {
+		updateRef(Constants.R_HEADS + Constants.MASTER, commit);
+	}
+
+	public void close() {
+		inserter.release();
+		repository.close();
+	}
+
+	private void updateRef(String name, ObjectId id) throws IOException {
+		inserter.flush();
+		RefUpdate update = repository.updateRef(name);
+		update.setNewObjectId(id);
+		update.setForceUpdate(true);
+		RefUpdate.Result result = update.update();
+		if (result == RefUpdate.Result.LOCK_FAILURE || result == RefUpdate.Result.IO_FAILURE
+				|| result == RefUpdate.Result.REJECTED) {
+			throw new IOException("Could not update " + name + ": " + result);
+		}
+	}
+
+	private ObjectId writeTree(Map<String, String> files) throws IOException {
+		Directory root = new Directory();
+		for (Map.Entry<String, String> file : files.entrySet()) {
+			root.add(file.getKey(), file.getValue());
+		}
+		return root.insert(inserter);
+	}
+
+	private static class Directory {
+		// git orders tree entries as if directory names ended with a slash
+		private final SortedMap<String, Object> entries = new TreeMap<String, Object>();
+
+		void add(String path, String content) {
+			int slash = path.indexOf('/');
+			if (slash < 0) {
+				entries.put(path, content);
+			} else {
+				String key = path.substring(0, slash) + "/";
+				Directory child = (Directory) entries.get(key);
+				if (child == null) {
+					child = new Directory();
+					entries.put(key, child);
+				}
+				child.add(path.substring(slash + 1), content);
+			}
+		}
+
+		ObjectId insert(ObjectInserter inserter) throws IOException {
+			TreeFormatter formatter = new TreeFormatter();
+			for (Map.Entry<String, Object> entry : entries.entrySet()) {
+				String name = entry.getKey();
+				if (entry.getValue() instanceof Directory) {
+					ObjectId tree = ((Directory) entry.getValue()).insert(inserter);
+					formatter.append(name.substring(0, name.length() - 1), FileMode.TREE, tree);
+				} else {
+					byte[] content = Constants.encode((String) entry.getValue());
+					formatter.append(name, FileMode.REGULAR_FILE, inserter.insert(Constants.OBJ_BLOB, content));
+				}
+			}
+			return formatter.insertTo(inserter);
+		}
+	}
+}
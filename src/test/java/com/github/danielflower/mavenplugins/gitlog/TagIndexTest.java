@@ -0,0 +1,113 @@
+package com.github.danielflower.mavenplugins.gitlog;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevTag;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TagIndexTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private SyntheticRepository repo;
+	private ObjectId first;
+	private ObjectId second;
+	private ObjectId third;
+	private ObjectId firstTag;
+	private ObjectId thirdTag;
+
+	@Before
+	public void createRepository() throws Exception {
+		repo = new SyntheticRepository(folder.newFolder("repo.git"));
+		Map<String, String> files = new TreeMap<String, String>();
+		files.put("A.java", "1");
+		first = repo.commit("First", 1300000000, files);
+		files.put("A.java", "2");
+		second = repo.commit("Second", 1300000001, files, first);
+		files.put("A.java", "3");
+		third = repo.commit("Third", 1300000002, files, second);
+		firstTag = repo.tag("v1.0", first, 1300000000);
+		repo.lightweightTag("light", second);
+		thirdTag = repo.tag("v3.0", third, 1300000002);
+		repo.setHead(third);
+	}
+
+	@After
+	public void closeRepository() {
+		repo.close();
+	}
+
+	@Test
+	public void tagObjectsAreOnlyReadForTheCommitsAskedFor() throws Exception {
+		packTagRefs();
+		assertTrue(objectFile(firstTag).delete());
+
+		TagIndex index = new TagIndex(repo.getRepository(), null, new SystemStreamLog());
+		List<RevTag> tags = index.getTags(third);
+		assertEquals(1, tags.size());
+		assertEquals("v3.0", tags.get(0).getTagName());
+		assertEquals("Release v3.0\n", tags.get(0).getFullMessage());
+		assertNull(index.getTags(repo.getRepository().resolve("HEAD~0^{tree}")));
+		try {
+			index.getTags(first);
+		} catch (MissingObjectException e) {
+			// the deleted tag object is only needed once its commit is rendered
+			return;
+		}
+		throw new AssertionError("The tag of the first commit should have been read");
+	}
+
+	@Test
+	public void lightweightTagsAreTags() throws Exception {
+		TagIndex index = new TagIndex(repo.getRepository(), null, new SystemStreamLog());
+		List<RevTag> tags = index.getTags(second);
+		assertEquals(1, tags.size());
+		assertEquals("light", tags.get(0).getTagName());
+		assertEquals(second, tags.get(0).getObject());
+		assertNull(tags.get(0).getTaggerIdent());
+	}
+
+	/**
+	 * Writes the tag refs to packed-refs with their peeled values, as "git pack-refs" does.
+	 */
+	private void packTagRefs() throws Exception {
+		File gitDir = repo.getRepository().getDirectory();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(new File(gitDir, "packed-refs")), "UTF-8");
+		try {
+			writer.write("# pack-refs with: peeled \n");
+			writer.write(second.name() + " refs/tags/light\n");
+			writer.write(firstTag.name() + " refs/tags/v1.0\n");
+			writer.write("^" + first.name() + "\n");
+			writer.write(thirdTag.name() + " refs/tags/v3.0\n");
+			writer.write("^" + third.name() + "\n");
+		} finally {
+			writer.close();
+		}
+		for (String tag : new String[] {"light", "v1.0", "v3.0"}) {
+			assertTrue(new File(gitDir, "refs/tags/" + tag).delete());
+		}
+	}
+
+	private File objectFile(ObjectId id) {
+		File objects = new File(repo.getRepository().getDirectory(), "objects");
+		return new File(new File(objects, id.name().substring(0, 2)), id.name().substring(2));
+	}
+}
@@ -0,0 +1,50 @@
+package com.github.danielflower.mavenplugins.gitlog.filters;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CacheGenerationsTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void buildsSavingAtTheSameTimeWriteFilesOfTheirOwn() throws Exception {
+		File directory = folder.newFolder("cache");
+		CacheGenerations one = new CacheGenerations(directory, "gitlog-test", "cache");
+		CacheGenerations other = new CacheGenerations(directory, "gitlog-test", "cache");
+
+		File first = one.next();
+		File second = other.next();
+
+		assertEquals("gitlog-test-0.cache", first.getName());
+		assertEquals("gitlog-test-1.cache", second.getName());
+		// neither has been written yet
+		assertNull(one.latest());
+
+		one.replace(first, written(directory, "first.tmp"));
+		assertEquals(first, other.latest());
+		other.replace(second, written(directory, "second.tmp"));
+		assertEquals(second, one.latest());
+		assertEquals("gitlog-test-2.cache", one.next().getName());
+	}
+
+	private static File written(File directory, String name) throws IOException {
+		File file = new File(directory, name);
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(new byte[8]);
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+}
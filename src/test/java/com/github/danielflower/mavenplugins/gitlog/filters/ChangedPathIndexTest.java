@@ -0,0 +1,117 @@
+package com.github.danielflower.mavenplugins.gitlog.filters;
+
+import com.github.danielflower.mavenplugins.gitlog.SyntheticRepository;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChangedPathIndexTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private SyntheticRepository repo;
+	private RevWalk walk;
+	private File cacheDirectory;
+	private final Map<String, String> files = new TreeMap<String, String>();
+	private RevCommit root;
+	private RevCommit change;
+	private RevCommit nothing;
+	private RevCommit bigImport;
+
+	@Before
+	public void createRepository() throws Exception {
+		repo = new SyntheticRepository(folder.newFolder("repo.git"));
+		cacheDirectory = new File(folder.getRoot(), "cache");
+		files.put("core/src/A.java", "a");
+		files.put("libs/util/U.java", "u");
+		files.put("libs/other/O.java", "o");
+		ObjectId rootId = repo.commit("Initial commit", 100, files);
+		files.put("libs/util/U.java", "u changed");
+		ObjectId changeId = repo.commit("Change util", 200, files, rootId);
+		ObjectId nothingId = repo.commit("Change nothing", 300, files, changeId);
+		for (int i = 0; i < 600; i++) {
+			files.put("imported/File" + i + ".java", "imported");
+		}
+		ObjectId importId = repo.commit("Import everything", 400, files, nothingId);
+		repo.setHead(importId);
+		walk = new RevWalk(repo.getRepository());
+		root = walk.parseCommit(rootId);
+		change = walk.parseCommit(changeId);
+		nothing = walk.parseCommit(nothingId);
+		bigImport = walk.parseCommit(importId);
+	}
+
+	@After
+	public void closeRepository() {
+		walk.release();
+		repo.close();
+	}
+
+	@Test
+	public void aCommitMightHaveChangedTheDirectoriesOfItsChangesButNotTheOthers() throws Exception {
+		ChangedPathIndex index = new ChangedPathIndex(cacheDirectory, new SystemStreamLog());
+		assertChanges(index);
+	}
+
+	@Test
+	public void theIndexIsKeptOnDiskAndOnlyWrittenWhenCommitsAreAdded() throws Exception {
+		ChangedPathIndex index = new ChangedPathIndex(cacheDirectory, new SystemStreamLog());
+		assertChanges(index);
+		index.save();
+
+		File indexFile = new File(cacheDirectory, "gitlog-changed-paths-0.index");
+		assertTrue(indexFile.setLastModified(1000));
+		index = new ChangedPathIndex(cacheDirectory, new SystemStreamLog());
+		assertChanges(index);
+		index.save();
+		assertEquals("nothing new to save", 1000, indexFile.lastModified());
+
+		// the file that is still mapped is not replaced; the new one is written next to it
+		files.put("core/src/A.java", "a changed");
+		RevCommit later = walk.parseCommit(repo.commit("Change core", 500, files, bigImport));
+		assertTrue(index.mightHaveChanged(later, "core", repo.getRepository()));
+		index.save();
+		assertEquals(Arrays.asList("gitlog-changed-paths-1.index"), Arrays.asList(cacheDirectory.list()));
+		index = new ChangedPathIndex(cacheDirectory, new SystemStreamLog());
+		assertChanges(index);
+		assertFalse(index.mightHaveChanged(later, "libs", repo.getRepository()));
+	}
+
+	@Test
+	public void theModuleFilterRejectsTheCommitsTheIndexKnowsDidNotChangeTheModule() throws Exception {
+		ModuleCommitFilter filter = ModuleCommitFilter.forModulePath("libs/util", new SystemStreamLog(), false);
+		filter.setChangedPathIndex(new ChangedPathIndex(cacheDirectory, new SystemStreamLog()));
+		assertTrue(filter.renderCommit(change, repo.getRepository()));
+		assertFalse(filter.renderCommit(nothing, repo.getRepository()));
+	}
+
+	private void assertChanges(ChangedPathIndex index) {
+		for (String path : new String[] {"libs", "libs/util", "libs/util/U.java"}) {
+			assertTrue(path, index.mightHaveChanged(change, path, repo.getRepository()));
+		}
+		for (String path : new String[] {"core", "core/src", "libs/other", "libs/util/V.java", "imported"}) {
+			assertFalse(path, index.mightHaveChanged(change, path, repo.getRepository()));
+		}
+		assertFalse(index.mightHaveChanged(nothing, "libs", repo.getRepository()));
+		// the first commit is not diffed, and a commit with too many changes has no filter
+		assertTrue(index.mightHaveChanged(root, "anything", repo.getRepository()));
+		assertTrue(index.mightHaveChanged(bigImport, "imported", repo.getRepository()));
+		assertTrue(index.mightHaveChanged(bigImport, "core", repo.getRepository()));
+	}
+}
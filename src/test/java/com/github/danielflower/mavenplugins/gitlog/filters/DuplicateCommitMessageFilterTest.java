@@ -0,0 +1,125 @@
+package com.github.danielflower.mavenplugins.gitlog.filters;
+
+import com.github.danielflower.mavenplugins.gitlog.SyntheticRepository;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DuplicateCommitMessageFilterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private SyntheticRepository repo;
+	private ObjectId head;
+	private int time = 1300000000;
+
+	@Before
+	public void createRepository() throws Exception {
+		repo = new SyntheticRepository(folder.newFolder("repo.git"));
+		Map<String, String> master = new TreeMap<String, String>();
+		ObjectId root = commit(master, "A.java", "a", "Initial commit");
+		Map<String, String> release = new TreeMap<String, String>(master);
+		ObjectId fix = commit(master, "A.java", "a fixed", "Fix the bug", root);
+		ObjectId backport = commit(release, "A.java", "a fixed", "Back-port the fix", root);
+		ObjectId feature = commit(master, "B.java", "b", "Add a feature", fix);
+		ObjectId tidy = commit(master, "B.java", "b tidied", "Tidy up", feature);
+		ObjectId again = commit(master, "C.java", "c", "  add a FEATURE\n", tidy);
+		ObjectId last = commit(master, "C.java", "c changed", "Add a feature", again);
+		head = repo.commit("Merge the release branch", time++, master, last, backport);
+		repo.setHead(head);
+	}
+
+	@After
+	public void closeRepository() {
+		repo.close();
+	}
+
+	@Test
+	public void onlyTheCommitBeforeIsComparedByDefault() throws Exception {
+		assertEquals(Arrays.asList("Merge the release branch", "Add a feature", "Tidy up", "Add a feature",
+				"Back-port the fix", "Fix the bug", "Initial commit"), shown(new DuplicateCommitMessageFilter()));
+	}
+
+	@Test
+	public void aMessageIsOnlyShownOnceAcrossTheHistory() throws Exception {
+		assertEquals(Arrays.asList("Merge the release branch", "Add a feature", "Tidy up", "Back-port the fix",
+				"Fix the bug", "Initial commit"), shown(new DuplicateCommitMessageFilter(true, null)));
+	}
+
+	@Test
+	public void cherryPicksAreFoundByTheirPatchIdWhichIsCached() throws Exception {
+		File cacheDirectory = new File(folder.getRoot(), "cache");
+		List<String> expected = Arrays.asList("Merge the release branch", "Add a feature", "Tidy up",
+				"Back-port the fix", "Initial commit");
+		PatchIdCache patchIds = new PatchIdCache(cacheDirectory, new SystemStreamLog());
+		assertEquals(expected, shown(new DuplicateCommitMessageFilter(false, patchIds)));
+		patchIds.save();
+
+		// the four commits with one parent and a new message: the header and a pair of longs for each
+		File cacheFile = new File(cacheDirectory, "gitlog-patch-ids-0.cache");
+		assertEquals(8 + 4 * 16, cacheFile.length());
+		assertTrue(cacheFile.setLastModified(1000));
+		patchIds = new PatchIdCache(cacheDirectory, new SystemStreamLog());
+		assertEquals(expected, shown(new DuplicateCommitMessageFilter(false, patchIds)));
+		patchIds.save();
+		assertEquals("nothing new to save", 1000, cacheFile.lastModified());
+
+		// the file that is still mapped is not replaced; the new one is written next to it
+		head = commit(new TreeMap<String, String>(), "D.java", "d", "Add another feature", head);
+		repo.setHead(head);
+		assertEquals("Add another feature", shown(new DuplicateCommitMessageFilter(false, patchIds)).get(0));
+		patchIds.save();
+		assertEquals(Arrays.asList("gitlog-patch-ids-1.cache"), Arrays.asList(cacheDirectory.list()));
+		patchIds = new PatchIdCache(cacheDirectory, new SystemStreamLog());
+		shown(new DuplicateCommitMessageFilter(false, patchIds));
+		patchIds.save();
+		assertEquals("nothing new to save", 8 + 5 * 16, new File(cacheDirectory, "gitlog-patch-ids-1.cache").length());
+	}
+
+	@Test
+	public void messagesAreComparedIgnoringCaseAndSurroundingWhitespace() {
+		long hash = DuplicateCommitMessageFilter.hash("Add a feature");
+		assertEquals(hash, DuplicateCommitMessageFilter.hash(" \tADD A FEATURE\n"));
+		assertFalse(hash == DuplicateCommitMessageFilter.hash("Add a  feature"));
+		assertEquals(DuplicateCommitMessageFilter.hash(""), DuplicateCommitMessageFilter.hash("  "));
+	}
+
+	private List<String> shown(CommitFilter filter) throws Exception {
+		RevWalk walk = new RevWalk(repo.getRepository());
+		walk.sort(RevSort.COMMIT_TIME_DESC);
+		walk.markStart(walk.parseCommit(head));
+		List<String> shown = new ArrayList<String>();
+		for (RevCommit commit : walk) {
+			if (filter.renderCommit(commit, repo.getRepository())) {
+				shown.add(commit.getShortMessage());
+			}
+		}
+		walk.release();
+		return shown;
+	}
+
+	private ObjectId commit(Map<String, String> files, String path, String content, String message,
+			ObjectId... parents) throws Exception {
+		files.put(path, content + "\n");
+		return repo.commit(message, time++, files, parents);
+	}
+}
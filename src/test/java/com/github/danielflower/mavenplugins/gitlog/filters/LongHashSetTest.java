@@ -0,0 +1,47 @@
+package com.github.danielflower.mavenplugins.gitlog.filters;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LongHashSetTest {
+
+	@Test
+	public void eachValueIsOnlyAddedOnce() {
+		LongHashSet set = new LongHashSet();
+		for (long value = -50000; value < 50000; value++) {
+			assertTrue(set.add(value * 31));
+		}
+		for (long value = -50000; value < 50000; value++) {
+			assertFalse(set.add(value * 31));
+			assertTrue(set.contains(value * 31));
+			assertFalse(set.contains(value * 31 + 1));
+		}
+		assertEquals(100000, set.size());
+	}
+
+	@Test
+	public void zeroAndTheExtremesAreValuesLikeAnyOther() {
+		LongHashSet set = new LongHashSet();
+		assertFalse(set.contains(0));
+		assertTrue(set.add(0));
+		assertFalse(set.add(0));
+		assertTrue(set.add(Long.MIN_VALUE));
+		assertTrue(set.add(Long.MAX_VALUE));
+		assertTrue(set.contains(0));
+		assertTrue(set.contains(Long.MIN_VALUE));
+		assertEquals(3, set.size());
+	}
+
+	@Test
+	public void theTableStaysBetweenOneAndTwoTimesAndAThirdTheSizeOfItsValues() {
+		LongHashSet set = new LongHashSet();
+		for (long value = 1; value <= 1000000; value++) {
+			set.add(value);
+			long bytesPerValue = set.tableBytes() / set.size();
+			assertTrue(set.size() < 16 || (bytesPerValue >= 10 && bytesPerValue <= 21));
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package com.github.danielflower.mavenplugins.gitlog.filters;
+
+import com.github.danielflower.mavenplugins.gitlog.SyntheticRepository;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+
+public class ModuleCommitFilterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private SyntheticRepository repo;
+	private final Map<String, String> files = new TreeMap<String, String>();
+	private int time = 1300000000;
+
+	@Before
+	public void createRepository() throws Exception {
+		repo = new SyntheticRepository(folder.newFolder("repo.git"));
+		ObjectId root = commit("Initial commit", "old-core/A.java", "contents of A");
+		ObjectId change = commit("Change old core", "old-core/B.java", "contents of B", root);
+		ObjectId web = commit("Change web", "web/W.java", "contents of W", change);
+		files.put("core/A.java", files.remove("old-core/A.java"));
+		files.put("core/B.java", files.remove("old-core/B.java"));
+		ObjectId move = commit("Move the core", "web/W.java", "contents of W", web);
+		repo.setHead(commit("Change core", "core/C.java", "contents of C", move));
+	}
+
+	@After
+	public void closeRepository() {
+		repo.close();
+	}
+
+	@Test
+	public void theWalkReturnsTheCommitsTheFilterAccepts() throws Exception {
+		ModuleCommitFilter filter = ModuleCommitFilter.forModulePath("core", new SystemStreamLog(), false);
+		List<String> accepted = new ArrayList<String>();
+		for (RevCommit commit : walk(null)) {
+			if (filter.renderCommit(commit, repo.getRepository())) {
+				accepted.add(commit.getShortMessage());
+			}
+		}
+		assertEquals(Arrays.asList("Change core", "Move the core"), accepted);
+		assertEquals(accepted, messages(walk(filter)));
+	}
+
+	@Test
+	public void renamesAreFollowedToTheModulesPreviousDirectory() throws Exception {
+		ModuleCommitFilter filter = ModuleCommitFilter.forModulePath("core", new SystemStreamLog(), true);
+		assertEquals(Arrays.asList("Change core", "Move the core", "Change old core", "Initial commit"),
+				messages(walk(filter)));
+	}
+
+	@Test
+	public void aRenameOnTheSideBranchOfAMergeIsFollowed() throws Exception {
+		Map<String, String> atHead = new TreeMap<String, String>(files);
+		ObjectId head = repo.getRepository().resolve(Constants.HEAD);
+		ObjectId mainline = commit("Change web on the mainline", "web/W.java", "new contents of W", head);
+
+		files.clear();
+		files.putAll(atHead);
+		for (String name : Arrays.asList("A.java", "B.java", "C.java")) {
+			files.put("engine/" + name, files.remove("core/" + name));
+		}
+		ObjectId move = commit("Move the core to the engine", "engine/A.java", "contents of A", head);
+		ObjectId side = commit("Change the engine", "engine/D.java", "contents of D", move);
+		repo.setHead(commit("Merge the engine", "web/W.java", "new contents of W", mainline, side));
+
+		// the merge kept the engine as it was on the side branch, so only the commits on that branch changed it
+		ModuleCommitFilter filter = ModuleCommitFilter.forModulePath("engine", new SystemStreamLog(), true);
+		assertEquals(Arrays.asList("Change the engine", "Move the core to the engine", "Change core",
+				"Move the core", "Change old core", "Initial commit"), messages(walk(filter)));
+	}
+
+	@Test
+	public void aChangeMadeBeforeTheRenameOnTheSecondParentOfAMergeIsFollowed() throws Exception {
+		Map<String, String> atHead = new TreeMap<String, String>(files);
+		ObjectId head = repo.getRepository().resolve(Constants.HEAD);
+		for (String name : Arrays.asList("A.java", "B.java", "C.java")) {
+			files.put("engine/" + name, files.remove("core/" + name));
+		}
+		ObjectId move = commit("Move the core to the engine", "web/W.java", "new contents of W", head);
+		Map<String, String> afterMove = new TreeMap<String, String>(files);
+
+		files.clear();
+		files.putAll(atHead);
+		ObjectId branch = commit("Change core on a branch", "core/B.java", "changed on the branch", head);
+
+		files.clear();
+		files.putAll(afterMove);
+		repo.setHead(commit("Merge the branch", "engine/B.java", "changed on the branch", move, branch));
+
+		ModuleCommitFilter filter = ModuleCommitFilter.forModulePath("engine", new SystemStreamLog(), true);
+		assertEquals(Arrays.asList("Merge the branch", "Change core on a branch", "Move the core to the engine",
+				"Change core", "Move the core", "Change old core", "Initial commit"), messages(walk(filter)));
+	}
+
+	@Test
+	public void theRootModuleDoesNotLimitTheWalk() throws Exception {
+		ModuleCommitFilter filter = ModuleCommitFilter.forModulePath("", new SystemStreamLog(), false);
+		assertEquals(messages(walk(null)), messages(walk(filter)));
+	}
+
+	private ObjectId commit(String message, String path, String content, ObjectId... parents) throws Exception {
+		files.put(path, content);
+		return repo.commit(message, time++, files, parents);
+	}
+
+	private RevWalk walk(WalkCommitFilter filter) throws Exception {
+		Repository repository = repo.getRepository();
+		RevWalk walk = new RevWalk(repository);
+		if (filter != null) {
+			filter.applyTo(walk, repository);
+		}
+		walk.markStart(walk.parseCommit(repository.resolve(Constants.HEAD)));
+		return walk;
+	}
+
+	private static List<String> messages(RevWalk walk) {
+		List<String> messages = new ArrayList<String>();
+		for (RevCommit commit : walk) {
+			messages.add(commit.getShortMessage());
+		}
+		walk.release();
+		return messages;
+	}
+}
@@ -0,0 +1,106 @@
+package com.github.danielflower.mavenplugins.gitlog.renderers;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTag;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ChangeLogEntryFactoryTest {
+
+	@Test
+	public void theEntryHoldsWhatTheRenderersNeedFromTheCommit() throws Exception {
+		RevCommit commit = TestObjects.commit("Fix the build\n\nThe full story", "Some Author", "Some Committer", 1300000000);
+		ChangeLogEntry entry = new ChangeLogEntryFactory().create(commit, Arrays.asList(TestObjects.tag("v1.0")));
+
+		assertNull(entry.getCommit());
+		assertEquals(commit.getId().name(), entry.getId());
+		assertEquals("Fix the build", entry.getMessage(false));
+		assertEquals("Fix the build\n\nThe full story", entry.getMessage(true));
+		assertEquals("Some Author", entry.getAuthorName());
+		assertEquals("some.committer@example.com", entry.getCommitterEmail());
+		assertEquals(Formatter.formatDateTime(1300000000), entry.getDate());
+		assertEquals(Arrays.asList("v1.0"), entry.getTags());
+	}
+
+	@Test
+	public void theShortMessageIsWorkedOutFromTheFullOneAsJGitDoes() throws Exception {
+		String[] messages = { "One line", "One line\n", "Two\nlines\n\nAnd a body\n", "Trailing\n\n\n",
+				"\nStarts blank", "No\nblank\nline", "" };
+		for (String message : messages) {
+			RevCommit commit = TestObjects.commit(message, "Some Body", "Some Body", 1300000000);
+			assertEquals(commit.getShortMessage(), new ChangeLogEntryFactory().create(commit, null).getShortMessage());
+		}
+	}
+
+	@Test
+	public void onlyTheShortMessageIsHeldWhenFullMessagesAreNotAskedFor() throws Exception {
+		ChangeLogEntryFactory factory = new ChangeLogEntryFactory();
+		factory.setFullMessages(false);
+		ChangeLogEntry entry = factory.create(TestObjects.commit("Fix the build\n\nThe full story", "Some Body",
+				"Some Body", 1300000000), null);
+
+		assertEquals("Fix the build", entry.getMessage(false));
+		try {
+			entry.getMessage(true);
+			fail("Only the short message should have been read from the commit");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void namesAreSharedBetweenTheEntriesOfAChangelog() throws Exception {
+		ChangeLogEntryFactory factory = new ChangeLogEntryFactory();
+		ChangeLogEntry first = factory.create(TestObjects.commit("One", "Some Body", "Some Body", 1300000000), null);
+		ChangeLogEntry second = factory.create(TestObjects.commit("Two", "Some Body", "Some Body", 1300000001), null);
+
+		assertSame(first.getAuthorName(), second.getAuthorName());
+		assertSame(first.getAuthorName(), second.getCommitterName());
+		assertTrue(second.getTags().isEmpty());
+	}
+
+	@Test
+	public void aRendererThatOnlyKnowsCommitsIsGivenTheCommitOfTheEntry() throws Exception {
+		final List<RevCommit> rendered = new ArrayList<RevCommit>();
+		ChangeLogRenderer legacy = new ChangeLogRenderer() {
+			public void renderHeader(String reportTitle) {
+			}
+
+			public void renderTag(RevTag tag) {
+			}
+
+			public void renderCommit(RevCommit commit) {
+				rendered.add(commit);
+			}
+
+			public void renderFooter() {
+			}
+
+			public void close() {
+			}
+		};
+		RevCommit commit = TestObjects.commit("Fix the build", "Some Body", "Some Body", 1300000000);
+
+		ChangeLogEntryFactory factory = new ChangeLogEntryFactory();
+		factory.setKeepCommits(true);
+
+		ChangeLogRendererAdapter.adapt(legacy).renderEntry(factory.create(commit, null));
+
+		assertEquals(Arrays.asList(commit), rendered);
+	}
+
+	@Test
+	public void renderersThatAcceptEntriesAreNotWrapped() {
+		ChangeLogEntryRenderer renderer = new ChangeLogRendererAdapter(null);
+		assertSame(renderer, ChangeLogRendererAdapter.adapt(renderer));
+	}
+}
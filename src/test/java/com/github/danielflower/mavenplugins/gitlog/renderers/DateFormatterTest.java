@@ -0,0 +1,97 @@
+package com.github.danielflower.mavenplugins.gitlog.renderers;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Test;
+
+public class DateFormatterTest {
+
+	private static final int MILLENNIUM = 946684800;
+
+	@Test
+	public void datesAreShownInTheGivenTimeZone() {
+		assertThat(new DateFormatter("yyyy-MM-dd HH:mm", TimeZone.getTimeZone("UTC")).format(MILLENNIUM),
+				is("2000-01-01 00:00"));
+		assertThat(new DateFormatter("yyyy-MM-dd HH:mm", TimeZone.getTimeZone("GMT-05:00")).format(MILLENNIUM),
+				is("1999-12-31 19:00"));
+	}
+
+	@Test
+	public void formattersDoNotAffectEachOther() {
+		DateFormatter first = new DateFormatter("yyyy", TimeZone.getTimeZone("UTC"));
+		Formatter.setFormat("HH:mm", new SystemStreamLog());
+		try {
+			DateFormatter second = new DateFormatter("MM", TimeZone.getTimeZone("UTC"));
+			assertThat(first.format(MILLENNIUM), is("2000"));
+			assertThat(second.format(MILLENNIUM), is("01"));
+		} finally {
+			Formatter.setFormat(DateFormatter.DEFAULT_FORMAT, new SystemStreamLog());
+		}
+	}
+
+	@Test
+	public void cachedTimesAreNotConfusedWithOthersInTheSameSlot() {
+		DateFormatter formatter = new DateFormatter("HH:mm:ss", TimeZone.getTimeZone("UTC"));
+		assertThat(formatter.format(MILLENNIUM), is("00:00:00"));
+		assertThat(formatter.format(MILLENNIUM + 256), is("00:04:16"));
+		assertThat(formatter.format(MILLENNIUM), is("00:00:00"));
+	}
+
+	@Test
+	public void invalidSettingsFallBackToTheDefaults() {
+		DateFormatter formatter = DateFormatter.create("xxx", "Not/AZone", new SystemStreamLog());
+		assertThat(formatter.getPattern(), is(DateFormatter.DEFAULT_FORMAT));
+		assertThat(formatter.getTimeZone().getID(), is(TimeZone.getDefault().getID()));
+	}
+
+	@Test
+	public void customOffsetsAndAliasesAreValidTimeZones() {
+		assertThat(DateFormatter.create("HH:mm", "GMT+1", new SystemStreamLog()).format(MILLENNIUM), is("01:00"));
+		assertThat(DateFormatter.create("HH:mm", "GMT", new SystemStreamLog()).format(MILLENNIUM), is("00:00"));
+		assertThat(DateFormatter.create("HH:mm", "Asia/Kolkata", new SystemStreamLog()).format(MILLENNIUM), is("05:30"));
+	}
+
+	@Test
+	public void oneFormatterCanBeUsedByManyThreads() throws Exception {
+		final DateFormatter formatter = new DateFormatter("yyyy-MM-dd HH:mm:ss", TimeZone.getTimeZone("UTC"));
+		final DateFormatter reference = new DateFormatter("yyyy-MM-dd HH:mm:ss", TimeZone.getTimeZone("UTC"));
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+			for (int t = 0; t < 4; t++) {
+				final int offset = t * 7919;
+				results.add(executor.submit(new Callable<Integer>() {
+					public Integer call() {
+						int wrong = 0;
+						for (int i = 0; i < 20000; i++) {
+							int time = MILLENNIUM + (offset + i * 37) % 100000;
+							String expected;
+							synchronized (reference) {
+								expected = reference.format(time);
+							}
+							if (!formatter.format(time).equals(expected)) {
+								wrong++;
+							}
+						}
+						return wrong;
+					}
+				}));
+			}
+			for (Future<Integer> result : results) {
+				assertThat(result.get(), is(0));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
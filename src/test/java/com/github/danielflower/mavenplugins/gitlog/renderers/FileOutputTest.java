@@ -0,0 +1,126 @@
+package com.github.danielflower.mavenplugins.gitlog.renderers;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FileOutputTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void theTextIsWrittenAsUtf8AcrossManyBuffers() throws Exception {
+		StringBuilder expected = new StringBuilder();
+		File file = new File(folder.getRoot(), "changelog.txt");
+		FileOutput output = new FileOutput(file);
+		output.setCompressedCopy(true);
+		for (int i = 0; i < 20000; i++) {
+			// an odd length, so that the surrogate pairs end up split between buffers
+			String line = "Änderung " + i + " 😀 fixes [#" + i + "]\n";
+			expected.append(line);
+			if (i % 3 == 0) {
+				output.write(line);
+			} else if (i % 3 == 1) {
+				output.write(line.toCharArray(), 0, line.length());
+			} else {
+				for (int c = 0; c < line.length(); c++) {
+					output.write(line.charAt(c));
+				}
+			}
+		}
+		output.close();
+		byte[] bytes = expected.toString().getBytes("UTF-8");
+		assertArrayEquals(bytes, read(new FileInputStream(file)));
+		assertArrayEquals(bytes, read(new GZIPInputStream(new FileInputStream(new File(folder.getRoot(), "changelog.txt.gz")))));
+		assertEquals(2, folder.getRoot().list().length);
+	}
+
+	@Test
+	public void theOldFileIsOnlyReplacedOnClose() throws Exception {
+		File file = new File(folder.getRoot(), "changelog.md");
+		FileWriter old = new FileWriter(file);
+		old.write("old");
+		old.close();
+		FileOutput output = new FileOutput(file);
+		output.write("new");
+		output.flush();
+		assertArrayEquals("old".getBytes("UTF-8"), read(new FileInputStream(file)));
+		output.close();
+		assertArrayEquals("new".getBytes("UTF-8"), read(new FileInputStream(file)));
+		assertEquals(1, folder.getRoot().list().length);
+	}
+
+	@Test
+	public void twoOutputsOfTheSameFileWriteTemporaryFilesOfTheirOwn() throws Exception {
+		File file = new File(folder.getRoot(), "changelog.txt");
+		FileOutput first = new FileOutput(file);
+		FileOutput second = new FileOutput(file);
+		first.write("first");
+		first.flush();
+		second.write("second");
+		second.flush();
+		assertEquals(2, folder.getRoot().list().length);
+		first.close();
+		assertArrayEquals("first".getBytes("UTF-8"), read(new FileInputStream(file)));
+		second.close();
+		assertArrayEquals("second".getBytes("UTF-8"), read(new FileInputStream(file)));
+		assertEquals(1, folder.getRoot().list().length);
+	}
+
+	@Test
+	public void anOutputThatCouldNotBeOpenedFailsToClose() throws Exception {
+		FileOutput output = new FileOutput(new File(new File(folder.getRoot(), "missing"), "changelog.txt"));
+		output.write("text");
+		try {
+			output.flush();
+			fail("The directory of the file does not exist");
+		} catch (IOException e) {
+			// expected
+		}
+		try {
+			output.close();
+			fail("The file could not be written");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Not replacing "));
+		}
+		assertEquals(0, folder.getRoot().list().length);
+	}
+
+	@Test
+	public void nothingIsCreatedUntilSomethingIsWritten() throws Exception {
+		File file = new File(folder.getRoot(), "changelog.html");
+		FileOutput output = new FileOutput(file);
+		output.setCompressedCopy(true);
+		assertEquals(0, folder.getRoot().list().length);
+		output.close();
+		assertTrue(file.isFile());
+		assertEquals(0, file.length());
+	}
+
+	private static byte[] read(InputStream in) throws IOException {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			for (int read = in.read(buffer); read > 0; read = in.read(buffer)) {
+				bytes.write(buffer, 0, read);
+			}
+			return bytes.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package com.github.danielflower.mavenplugins.gitlog.renderers;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.StringWriter;
+
+import static com.github.danielflower.mavenplugins.gitlog.renderers.TestObjects.commit;
+import static com.github.danielflower.mavenplugins.gitlog.renderers.TestObjects.read;
+import static com.github.danielflower.mavenplugins.gitlog.renderers.TestObjects.tag;
+import static org.junit.Assert.assertEquals;
+
+public class JsonRendererTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void commitsAndTheirTagsAreWrittenAsAnArray() throws Exception {
+		RevCommit first = commit("Quote \"this\" and C:\\path\n\nMore detail\n", "Some Body", "Some Body", 1300000000);
+		RevCommit second = commit("Second {message}\n", "An Author", "A Committer", 1300000100);
+
+		File folder = this.folder.getRoot();
+		JsonRenderer renderer = new JsonRenderer(new SystemStreamLog(), folder, "changelog.json", true);
+		renderer.renderHeader("Title");
+		renderer.renderTag(tag("v1.0"));
+		renderer.renderTag(tag("v1.0-final"));
+		renderer.renderCommit(first);
+		renderer.renderCommit(second);
+		renderer.renderFooter();
+		renderer.close();
+
+		String expected = "[\n"
+				+ "    { \"id\":\"" + first.name() + "\", \"message\":\"Quote \\\"this\\\" and C:\\\\path\\n\\nMore detail\", "
+				+ "\"authorName\":\"Some Body\", \"authorEmail\":\"some.body@example.com\", "
+				+ "\"committerName\":\"Some Body\", \"committerEmail\":\"some.body@example.com\", "
+				+ "\"date\":\"" + Formatter.formatDateTime(1300000000) + "\", "
+				+ "\"tags\":[ { \"name\":\"v1.0\" }, { \"name\":\"v1.0-final\" } ] }\n"
+				+ "  , { \"id\":\"" + second.name() + "\", \"message\":\"Second {message}\", "
+				+ "\"authorName\":\"An Author\", \"authorEmail\":\"an.author@example.com\", "
+				+ "\"committerName\":\"A Committer\", \"committerEmail\":\"a.committer@example.com\", "
+				+ "\"date\":\"" + Formatter.formatDateTime(1300000100) + "\", \"tags\":[] }\n"
+				+ "]\n";
+		assertEquals(expected, read(new File(folder, "changelog.json")));
+	}
+
+	@Test
+	public void encodingEscapesQuotesBackslashesAndNewLines() throws Exception {
+		assertEquals("a\\\\b\\\"c\\nd", JsonRenderer.encode("a\\b\"c\nd\n"));
+		assertEquals("", JsonRenderer.encode(""));
+
+		StringWriter writer = new StringWriter();
+		JsonRenderer.writeEncoded(writer, "plain");
+		JsonRenderer.writeEncoded(writer, null);
+		assertEquals("plain", writer.toString());
+	}
+}
@@ -0,0 +1,94 @@
+package com.github.danielflower.mavenplugins.gitlog.renderers;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static com.github.danielflower.mavenplugins.gitlog.renderers.Formatter.NEW_LINE;
+import static com.github.danielflower.mavenplugins.gitlog.renderers.TestObjects.commit;
+import static com.github.danielflower.mavenplugins.gitlog.renderers.TestObjects.read;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MessageTokenizerTest {
+
+	private static final String GITHUB = "https://github.com/danielflower/maven-gitlog-plugin/issues/";
+	private static final String JIRA = "https://jira.atlassian.com/browse/";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final GitHubIssueLinkConverter gitHub = new GitHubIssueLinkConverter(new SystemStreamLog(), GITHUB);
+	private final JiraIssueLinkConverter jira = new JiraIssueLinkConverter(new SystemStreamLog(), JIRA + "CONF");
+	private final MessageTokenizer both = new MessageTokenizer(gitHub, jira);
+
+	@Test
+	public void issuesOfEveryTrackerAreLinkedInOnePass() {
+		assertEquals("<a href=\"" + GITHUB + "10\">#10</a> fixes <a href=\"" + JIRA + "CONF-12\">CONF-12</a>"
+				+ " and <a href=\"" + GITHUB + "3\">gh-3</a>", both.formatCommitMessage("#10 fixes CONF-12 and gh-3"));
+	}
+
+	@Test
+	public void nothingInAUrlIsTakenForAnIssue() {
+		assertEquals("See http://jira.atlassian.com/browse/CONF-12#10, or <a href=\"" + JIRA + "JRA-1\">JRA-1</a>.",
+				both.formatCommitMessage("See http://jira.atlassian.com/browse/CONF-12#10, or JRA-1."));
+		assertEquals("(https://example.com/#1) <a href=\"" + GITHUB + "2\">#2</a>",
+				both.formatCommitMessage("(https://example.com/#1) #2"));
+	}
+
+	@Test
+	public void urlsEndBeforeTheSentenceDoes() {
+		String message = "Read https://en.wikipedia.org/wiki/Bloom_filter_(data_structure). Then HTTPS://example.com/a?b=c, and x";
+		int first = message.indexOf("https");
+		assertEquals(message.indexOf(". Then"), MessageTokenizer.matchUrl(message, first));
+		int second = message.indexOf("HTTPS");
+		assertEquals(message.indexOf(", and"), MessageTokenizer.matchUrl(message, second));
+		assertEquals(-1, MessageTokenizer.matchUrl("http:// x", 0));
+		assertEquals(-1, MessageTokenizer.matchUrl("xhttp://example.com", 1));
+	}
+
+	@Test
+	public void eachTrackerLinksWhatItsRegularExpressionDid() {
+		Pattern gitHubPattern = Pattern.compile("(GH-|#)([0-9]+)", Pattern.CASE_INSENSITIVE);
+		Pattern jiraPattern = Pattern.compile("[A-Z]+-[0-9]+");
+		String[] pieces = {"A", "BC", "-", "1", "23", "#", "g", "G", "h", "H", "gh-", " ", "[", "x", "\n"};
+		Random random = new Random(42);
+		for (int i = 0; i < 5000; i++) {
+			StringBuilder message = new StringBuilder();
+			int length = random.nextInt(12);
+			for (int p = 0; p < length; p++) {
+				message.append(pieces[random.nextInt(pieces.length)]);
+			}
+			String original = message.toString();
+			assertEquals(original, gitHubPattern.matcher(original).replaceAll("<a href=\"" + GITHUB + "$2\">$0</a>"),
+					gitHub.formatCommitMessage(original));
+			assertEquals(original, jiraPattern.matcher(original).replaceAll("<a href=\"" + JIRA + "$0\">$0</a>"),
+					jira.formatCommitMessage(original));
+		}
+	}
+
+	@Test
+	public void markdownIsRenderedFromTheTokens() throws Exception {
+		MarkdownRenderer renderer = new MarkdownRenderer(new SystemStreamLog(), folder.getRoot(), "changelog.md", false, both);
+		renderer.renderCommit(commit("[Fix] CONF-1 and #2, see http://example.com/[x]", "Some Body", "Some Body", 1300000000));
+		renderer.close();
+		assertEquals(Formatter.formatDateTime(1300000000) + "    \\[Fix\\] [CONF-1](" + JIRA + "CONF-1) and [#2]("
+				+ GITHUB + "2), see http://example.com/\\[x\\] (Some Body)  " + NEW_LINE,
+				read(new File(folder.getRoot(), "changelog.md")));
+	}
+
+	@Test
+	public void htmlIsRenderedFromTheTokens() throws Exception {
+		SimpleHtmlRenderer renderer = new SimpleHtmlRenderer(new SystemStreamLog(), folder.getRoot(), "changelog.html", true, both, true);
+		renderer.renderCommit(commit("<b>CONF-1</b> & #2\nhttp://example.com/?a=1&b=2", "Some Body", "Some Body", 1300000000));
+		renderer.close();
+		String html = read(new File(folder.getRoot(), "changelog.html"));
+		assertTrue(html, html.contains("<td>&lt;b&gt;<a href=\"" + JIRA + "CONF-1\">CONF-1</a>&lt;/b&gt; &amp; <a href=\""
+				+ GITHUB + "2\">#2</a><br/>http://example.com/?a=1&amp;b=2</td>"));
+	}
+}
@@ -0,0 +1,105 @@
+package com.github.danielflower.mavenplugins.gitlog.renderers;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTag;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.github.danielflower.mavenplugins.gitlog.renderers.TestObjects.commit;
+import static com.github.danielflower.mavenplugins.gitlog.renderers.TestObjects.tag;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelRendererTest {
+
+	@Test
+	public void everyRendererSeesEverythingInOrder() throws Exception {
+		List<Recorder> recorders = Arrays.asList(new Recorder(-1), new Recorder(-1), new Recorder(-1));
+		ParallelRenderer renderer = new ParallelRenderer(new ArrayList<ChangeLogRenderer>(recorders), 2, new SystemStreamLog());
+		List<String> expected = new ArrayList<String>();
+		renderer.renderHeader("Title");
+		expected.add("header Title");
+		for (int i = 0; i < 1000; i++) {
+			if (i % 100 == 0) {
+				renderer.renderTag(tag("v" + i));
+				expected.add("tag v" + i);
+			}
+			RevCommit commit = commit("Commit " + i, "Some Body", "Some Body", 1300000000 + i);
+			renderer.renderCommit(commit);
+			expected.add("commit Commit " + i);
+		}
+		renderer.renderFooter();
+		expected.add("footer");
+		renderer.close();
+
+		for (Recorder recorder : recorders) {
+			assertEquals(expected, recorder.rendered);
+			assertEquals(1, recorder.closeCount);
+		}
+	}
+
+	@Test
+	public void theFirstFailureIsRethrownAndEveryRendererIsClosed() throws Exception {
+		Recorder failing = new Recorder(10);
+		Recorder other = new Recorder(-1);
+		ParallelRenderer renderer = new ParallelRenderer(Arrays.<ChangeLogRenderer>asList(failing, other), 2, new SystemStreamLog());
+		try {
+			renderer.renderHeader("Title");
+			for (int i = 0; i < 1000; i++) {
+				renderer.renderCommit(commit("Commit " + i, "Some Body", "Some Body", 1300000000 + i));
+			}
+			renderer.renderFooter();
+			fail("The failure of the renderer should have been rethrown");
+		} catch (IOException e) {
+			assertSame(failing.thrown, e);
+		} finally {
+			renderer.close();
+		}
+		assertEquals(1, failing.closeCount);
+		assertEquals(1, other.closeCount);
+		assertTrue(failing.rendered.size() <= 11);
+	}
+
+	private static class Recorder implements ChangeLogRenderer {
+		final List<String> rendered = new ArrayList<String>();
+		final int failAtCommit;
+		IOException thrown;
+		int commits;
+		int closeCount;
+
+		Recorder(int failAtCommit) {
+			this.failAtCommit = failAtCommit;
+		}
+
+		public void renderHeader(String reportTitle) {
+			rendered.add("header " + reportTitle);
+		}
+
+		public void renderTag(RevTag tag) {
+			rendered.add("tag " + tag.getTagName());
+		}
+
+		public void renderCommit(RevCommit commit) throws IOException {
+			if (commits++ == failAtCommit) {
+				thrown = new IOException("Disk full");
+				throw thrown;
+			}
+			rendered.add("commit " + commit.getShortMessage());
+		}
+
+		public void renderFooter() {
+			rendered.add("footer");
+		}
+
+		public void close() {
+			closeCount++;
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package com.github.danielflower.mavenplugins.gitlog.renderers;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Scanner;
+
+import static com.github.danielflower.mavenplugins.gitlog.renderers.Formatter.NEW_LINE;
+import static com.github.danielflower.mavenplugins.gitlog.renderers.TestObjects.commit;
+import static com.github.danielflower.mavenplugins.gitlog.renderers.TestObjects.read;
+import static com.github.danielflower.mavenplugins.gitlog.renderers.TestObjects.tag;
+import static org.junit.Assert.assertEquals;
+
+public class SimpleHtmlRendererTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final RevCommit first = commit("Fix <b>this</b> & that", "Some Body", "Some Body", 1300000000);
+	private final RevCommit second = commit("Second change", "An Author", "A Committer", 1300000100);
+
+	public SimpleHtmlRendererTest() throws Exception {
+	}
+
+	@Test
+	public void theTableIsWrittenInsideThePage() throws Exception {
+		String template = loadTemplate();
+		String expected = template
+				.replace("{title}", "Changes &amp; fixes")
+				.replace("{table}", expectedTable());
+		assertEquals(expected, render("changelog.html", false));
+	}
+
+	@Test
+	public void theTableCanBeWrittenOnItsOwn() throws Exception {
+		assertEquals(expectedTable(), render("changelogtable.html", true));
+	}
+
+	private String render(String filename, boolean tableOnly) throws Exception {
+		SimpleHtmlRenderer renderer = new SimpleHtmlRenderer(new SystemStreamLog(), folder.getRoot(), filename,
+				false, new NullMessageConverter(), tableOnly);
+		renderer.renderHeader("Changes & fixes");
+		renderer.renderTag(tag("v1.0"));
+		renderer.renderCommit(first);
+		renderer.renderCommit(second);
+		renderer.renderFooter();
+		renderer.close();
+		return read(new File(folder.getRoot(), filename));
+	}
+
+	private String expectedTable() {
+		return "\t<table class=\"changelog\">" + NEW_LINE
+				+ "\t\t<tbody>" + NEW_LINE
+				+ "\t\t<tr class=\"tag\"><td colspan=3>v1.0</td></tr>" + NEW_LINE
+				+ "\t\t<tr><td class=\"date\">" + Formatter.formatDateTime(1300000000) + "</td>"
+				+ "<td>Fix &lt;b&gt;this&lt;/b&gt; &amp; that</td>"
+				+ "<td><span class=\"committer\">Some Body</span></td></tr>" + NEW_LINE
+				+ "\t\t<tr><td class=\"date\">" + Formatter.formatDateTime(1300000100) + "</td>"
+				+ "<td>Second change</td>"
+				+ "<td><span class=\"committer\">An Author</span></td></tr>" + NEW_LINE
+				+ "\t\t</tbody>" + NEW_LINE
+				+ "\t</table>" + NEW_LINE;
+	}
+
+	private String loadTemplate() throws Exception {
+		InputStream in = getClass().getResourceAsStream("/html/SimpleHtmlTemplate.html");
+		Scanner scanner = new Scanner(in, "UTF-8");
+		try {
+			return scanner.useDelimiter("\\A").next();
+		} finally {
+			scanner.close();
+		}
+	}
+}
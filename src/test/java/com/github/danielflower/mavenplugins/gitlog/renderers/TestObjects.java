@@ -0,0 +1,47 @@
+package com.github.danielflower.mavenplugins.gitlog.renderers;
+
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.TagBuilder;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTag;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Scanner;
+
+/**
+ * Creates commits and tags for renderer tests without a repository.
+ */
+class TestObjects {
+
+	static RevCommit commit(String message, String author, String committer, int commitTime) throws IOException {
+		CommitBuilder builder = new CommitBuilder();
+		builder.setTreeId(ObjectId.zeroId());
+		builder.setAuthor(new PersonIdent(author, author.toLowerCase().replace(' ', '.') + "@example.com", commitTime * 1000L, 0));
+		builder.setCommitter(new PersonIdent(committer, committer.toLowerCase().replace(' ', '.') + "@example.com", commitTime * 1000L, 0));
+		builder.setMessage(message);
+		return RevCommit.parse(builder.build());
+	}
+
+	static RevTag tag(String name) throws IOException {
+		TagBuilder builder = new TagBuilder();
+		builder.setTag(name);
+		builder.setObjectId(ObjectId.zeroId(), Constants.OBJ_COMMIT);
+		builder.setTagger(new PersonIdent("Some Body", "somebody@example.com", 0L, 0));
+		builder.setMessage("Release " + name + "\n");
+		return RevTag.parse(builder.build());
+	}
+
+	static String read(File file) throws IOException {
+		Scanner scanner = new Scanner(new FileInputStream(file), "UTF-8");
+		try {
+			return scanner.useDelimiter("\\A").hasNext() ? scanner.next() : "";
+		} finally {
+			scanner.close();
+		}
+	}
+}